@@ -1,13 +1,13 @@
 package cs1302.game;
 
+import java.nio.ByteBuffer;
 import java.util.Objects;
 
-import javafx.geometry.Bounds;
 import javafx.geometry.Point2D;
 import javafx.scene.shape.Shape;
 
 /**
- * An animated object on the game screen.
+ * An animated object in an {@link AsteroidsWorld}.
  * <p>
  * Animated objects have a constant {@code velocity} and {@code spin} applied
  * after each {@link #update()} call. Instant motions, {@code movement} and
@@ -20,30 +20,55 @@ import javafx.scene.shape.Shape;
  * setting {@code maxSpeed}. Instant {@code movement} is not affected by
  * {@code maxSpeed}.
  * <p>
- * Subclasses must initialize the {@code object} field and implement
- * {@link #update()}.
+ * The geometry of an object is a polygon given by its vertices in local
+ * coordinates. The object is rotated around the center of the polygon's bounding
+ * box and then translated, just like a JavaFX node with the same points. All
+ * state, including collision detection, is plain Java, so objects can be
+ * simulated without the JavaFX toolkit. The position, motion and direction of
+ * an object are kept in the {@link EntityStore} of its world, in the slot of the
+ * object, so objects can be moved without allocating. The object is displayed by a separate
+ * node created with {@link #createView()}, which the game moves between the
+ * previous and current state of the object.
+ * <p>
+ * Subclasses must implement {@link #update()} and {@link #createView()}.
  */
 public abstract class AnimatedObject {
 
-    private static final Point2D ZERO_MOVEMENT = new Point2D(0, 0);
     public static final double DEFAULT_MAX_SPEED = 50;
     public static final double DEFAULT_WRAP_PERCENT = 50;
 
-    /** The game containing this object. */
-    protected final Game game;
-    /** The shape used to display this object. */
-    protected Shape shape;
-
-    /** Movement applied at every update. */
-    protected Point2D velocity;
-    /** Spin applied at every update. */
-    protected double spin;
-    /** Movement applied once, at the next update. */
-    protected Point2D movement;
-    /** Spin applied once, at the next update. */
-    protected double rotate;
-    /** The direction this object is facing, in degrees. */
-    protected double direction;
+    /** The world containing this object. */
+    protected final AsteroidsWorld world;
+    /** The store holding the changing state of this object. */
+    private final EntityStore store;
+    /** The index of this object in {@link #store}; updated by the store. */
+    int slot;
+    /** The polygon of this object in local coordinates: x0, y0, x1, y1, ... */
+    private final double[] vertices;
+    /** The polygon of this object in world coordinates, see {@link #transform()}. */
+    private final double[] worldVertices;
+    /** Bounds of the polygon in world coordinates, valid with the vertices. */
+    private double worldMinX;
+    private double worldMinY;
+    private double worldMaxX;
+    private double worldMaxY;
+    /** Convex pieces of the polygon, as vertex indices, see {@link Geometry}. */
+    private final int[][] pieces;
+    /** Bounds of each piece in world coordinates, valid with the vertices. */
+    private final double[] pieceBounds;
+    /** Radius of the circle around the pivot that contains the polygon. */
+    private final double radius;
+    /** Bookkeeping of {@link SweepAndPrune}: the last pass and the list index. */
+    int sweepPass;
+    int sweepIndex;
+    /** Bounds of the polygon in local coordinates. */
+    private final double minX;
+    private final double minY;
+    private final double maxX;
+    private final double maxY;
+
+    /** Unit vector of the direction, see {@link #getDirection()}. */
+    private Point2D directionVector;
     /** The maximum magnitude of the velocity. */
     private double maxSpeed;
     /**
@@ -53,18 +78,61 @@ public abstract class AnimatedObject {
     private double wrapAt;
 
     /**
-     * Creates a new AnimatedObject with the specified {@link #Game}.
+     * Creates a new AnimatedObject with the specified {@link AsteroidsWorld} and
+     * polygon.
      * 
-     * @param game the game containing this object
-     * @throws NullPointerException if {@code game} is null
+     * @param world    the world containing this object
+     * @param vertices the x and y coordinates of the vertices of the polygon
+     * @throws NullPointerException     if {@code world} or {@code vertices} is null
+     * @throws IllegalArgumentException if there are less than 3 vertices
+     */
+    public AnimatedObject(AsteroidsWorld world, double[] vertices) {
+        Objects.requireNonNull(world);
+        if (vertices.length < 6 || vertices.length % 2 != 0) {
+            throw new IllegalArgumentException("invalid polygon");
+        }
+        this.world = world;
+        this.vertices = vertices.clone();
+        this.worldVertices = new double[vertices.length];
+        double x0 = Double.POSITIVE_INFINITY;
+        double y0 = Double.POSITIVE_INFINITY;
+        double x1 = Double.NEGATIVE_INFINITY;
+        double y1 = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < vertices.length; i += 2) {
+            x0 = Math.min(x0, vertices[i]);
+            x1 = Math.max(x1, vertices[i]);
+            y0 = Math.min(y0, vertices[i + 1]);
+            y1 = Math.max(y1, vertices[i + 1]);
+        }
+        minX = x0;
+        minY = y0;
+        maxX = x1;
+        maxY = y1;
+        double r = 0;
+        for (int i = 0; i < vertices.length; i += 2) {
+            // distance from the pivot
+            r = Math.max(r, Math.hypot(vertices[i] - (x0 + x1) / 2,
+                    vertices[i + 1] - (y0 + y1) / 2));
+        }
+        radius = r;
+        pieces = Geometry.decompose(vertices);
+        pieceBounds = new double[pieces.length * 4];
+        store = world.entities();
+        reattach();
+    }
+
+    /**
+     * Adds this object to the {@link EntityStore} of its world, in the state of a
+     * new object: at the origin, facing right and not moving, with a new motion
+     * id, the default max speed and the default wrapping. This is how objects
+     * that were removed from their world are reused, see {@link ObjectPool};
+     * subclasses reset their own state.
      */
-    public AnimatedObject(Game game) {
-        Objects.requireNonNull(game);
-        this.game = game;
-        velocity = ZERO_MOVEMENT;
-        movement = ZERO_MOVEMENT;
+    void reattach() {
         maxSpeed = DEFAULT_MAX_SPEED;
-        wrapAt = DEFAULT_WRAP_PERCENT;
+        slot = store.add(this, (minX + maxX) / 2, (minY + maxY) / 2, radius);
+        sweepPass = 0;
+        setWrapAtPercent(DEFAULT_WRAP_PERCENT);
     }
 
     /**
@@ -76,13 +144,23 @@ public abstract class AnimatedObject {
      * @throws NullPointerException if {@code velocity} is null
      */
     public void setVelocity(Point2D velocity) {
-        Objects.requireNonNull(velocity);
-        double speed = velocity.magnitude();
+        setVelocity(velocity.getX(), velocity.getY());
+    }
+
+    /**
+     * Sets the velocity of this object, like {@link #setVelocity(Point2D)}.
+     * 
+     * @param vx the x component of the new velocity
+     * @param vy the y component of the new velocity
+     */
+    public void setVelocity(double vx, double vy) {
+        double speed = Math.sqrt(vx * vx + vy * vy);
         double mult = 1;
         if (Math.abs(speed) > maxSpeed) {
             mult = maxSpeed / Math.abs(speed);
         }
-        this.velocity = velocity.multiply(mult);
+        store.vx[slot] = vx * mult;
+        store.vy[slot] = vy * mult;
     }
 
     /**
@@ -91,7 +169,25 @@ public abstract class AnimatedObject {
      * @return the velocity
      */
     public Point2D getVelocity() {
-        return velocity;
+        return new Point2D(store.vx[slot], store.vy[slot]);
+    }
+
+    /**
+     * Returns the x component of the velocity of this object.
+     * 
+     * @return the x velocity
+     */
+    public double getVelocityX() {
+        return store.vx[slot];
+    }
+
+    /**
+     * Returns the y component of the velocity of this object.
+     * 
+     * @return the y velocity
+     */
+    public double getVelocityY() {
+        return store.vy[slot];
     }
 
     /**
@@ -103,14 +199,17 @@ public abstract class AnimatedObject {
      * @throws NullPointerException if {@code delta} is null
      */
     public void changeVelocity(Point2D delta) {
-        Objects.requireNonNull(velocity);
-        Point2D newVelocity = velocity.add(delta);
-        double speed = newVelocity.magnitude();
-        double mult = 1;
-        if (Math.abs(speed) > maxSpeed) {
-            mult = maxSpeed / Math.abs(speed);
-        }
-        velocity = newVelocity.multiply(mult);
+        changeVelocity(delta.getX(), delta.getY());
+    }
+
+    /**
+     * Changes the velocity of this object, like {@link #changeVelocity(Point2D)}.
+     * 
+     * @param dx the change of the x velocity
+     * @param dy the change of the y velocity
+     */
+    public void changeVelocity(double dx, double dy) {
+        setVelocity(store.vx[slot] + dx, store.vy[slot] + dy);
     }
 
     /**
@@ -119,7 +218,7 @@ public abstract class AnimatedObject {
      * @return the spin
      */
     public double getSpin() {
-        return spin;
+        return store.spin[slot];
     }
 
     /**
@@ -128,7 +227,7 @@ public abstract class AnimatedObject {
      * @param spinInDegrees the new spin
      */
     public void setSpin(double spinInDegrees) {
-        this.spin = spinInDegrees;
+        store.spin[slot] = spinInDegrees;
     }
 
     /**
@@ -137,7 +236,7 @@ public abstract class AnimatedObject {
      * @param deltaInDegrees the delta
      */
     public void changeSpin(double deltaInDegrees) {
-        spin += deltaInDegrees;
+        store.spin[slot] += deltaInDegrees;
     }
 
     /**
@@ -167,15 +266,65 @@ public abstract class AnimatedObject {
      */
     public void setWrapAtPercent(double wrapAtPercent) {
         this.wrapAt = wrapAtPercent;
+        store.wrapX[slot] = (maxX - minX) * (wrapAt / 100);
+        store.wrapY[slot] = (maxY - minY) * (wrapAt / 100);
+    }
+
+    /**
+     * Returns the vertices of the polygon of this object in local coordinates.
+     * 
+     * @return a copy of the x and y coordinates of the vertices
+     */
+    public double[] getVertices() {
+        return vertices.clone();
+    }
+
+    /**
+     * Returns the vertices of this object, like {@link #getVertices()}, but
+     * without copying them. The array must not be modified.
+     * 
+     * @return the x and y coordinates of the vertices
+     */
+    double[] vertices() {
+        return vertices;
+    }
+
+    /**
+     * Returns the x coordinate of the position (translation) of this object.
+     * 
+     * @return the x coordinate
+     */
+    public double getX() {
+        return store.x[slot];
+    }
+
+    /**
+     * Returns the y coordinate of the position (translation) of this object.
+     * 
+     * @return the y coordinate
+     */
+    public double getY() {
+        return store.y[slot];
     }
 
     /**
-     * Returns the Shape used to display this object.
+     * Returns the x coordinate of the center of this object. The center is the
+     * point this object is rotated around.
      * 
-     * @return the Shape object
+     * @return the x coordinate of the center
      */
-    public Shape getShape() {
-        return shape;
+    public double getCenterX() {
+        return store.x[slot] + store.pivotX[slot];
+    }
+
+    /**
+     * Returns the y coordinate of the center of this object. The center is the
+     * point this object is rotated around.
+     * 
+     * @return the y coordinate of the center
+     */
+    public double getCenterY() {
+        return store.y[slot] + store.pivotY[slot];
     }
 
     /**
@@ -184,19 +333,43 @@ public abstract class AnimatedObject {
      * @return the direction
      */
     public double getDirectionInDegrees() {
-        return direction;
+        return store.direction[slot];
     }
 
     /**
      * Returns a vector with the length of 1.0 and direction the same as this
-     * object's direction.
+     * object's direction. The vector is created once per change of direction.
      * 
      * @return the direction
      */
     public Point2D getDirection() {
-        double x = Math.cos(Math.toRadians(direction));
-        double y = Math.sin(Math.toRadians(direction));
-        return new Point2D(x, y);
+        double cos = store.cos[slot];
+        double sin = store.sin[slot];
+        if (directionVector == null || directionVector.getX() != cos
+                || directionVector.getY() != sin) {
+            directionVector = new Point2D(cos, sin);
+        }
+        return directionVector;
+    }
+
+    /**
+     * Returns the x component of {@link #getDirection()}, the cosine of the
+     * direction.
+     * 
+     * @return the x component of the direction
+     */
+    public double getDirectionX() {
+        return store.cos[slot];
+    }
+
+    /**
+     * Returns the y component of {@link #getDirection()}, the sine of the
+     * direction.
+     * 
+     * @return the y component of the direction
+     */
+    public double getDirectionY() {
+        return store.sin[slot];
     }
 
     /**
@@ -207,7 +380,7 @@ public abstract class AnimatedObject {
      * @param angleInDegrees the angle in degrees
      */
     public void rotate(double angleInDegrees) {
-        rotate += angleInDegrees;
+        store.rotate[slot] += angleInDegrees;
     }
 
     /**
@@ -218,12 +391,23 @@ public abstract class AnimatedObject {
      * @param maxDelta the maximum absolute value of change
      */
     public void rotateToPoint(Point2D point, double maxDelta) {
+        rotateToPoint(point.getX(), point.getY(), maxDelta);
+    }
+
+    /**
+     * Rotates this object towards the specified point, like
+     * {@link #rotateToPoint(Point2D, double)}.
+     * 
+     * @param x        the x coordinate of the point
+     * @param y        the y coordinate of the point
+     * @param maxDelta the maximum absolute value of change
+     */
+    public void rotateToPoint(double x, double y, double maxDelta) {
         // get the central coordinates
-        Bounds objectBounds = shape.getBoundsInParent();
-        double cx = objectBounds.getCenterX();
-        double cy = objectBounds.getCenterY();
+        double cx = getCenterX();
+        double cy = getCenterY();
         // direction of the point in degrees
-        double targetDir = getAngle(new Point2D(cx, cy), point);
+        double targetDir = Math.toDegrees(Math.atan2(y - cy, x - cx));
         double oldDir = getDirectionInDegrees();
         // the signed angle needed to reach the target direction
         double angle = targetDir - oldDir;
@@ -234,25 +418,12 @@ public abstract class AnimatedObject {
         }
         // set rotation 
         if (angle >= 0) {
-            rotate += Math.min(angle, maxDelta);
+            store.rotate[slot] += Math.min(angle, maxDelta);
         } else {
-            rotate -= Math.min(-angle, maxDelta);
+            store.rotate[slot] -= Math.min(-angle, maxDelta);
         }
     }
 
-    /**
-     * Get the angle between two points in degrees.
-     * 
-     * @param p1 the first point
-     * @param p2 the second point
-     * @return the angle
-     */
-    private static double getAngle(Point2D p1, Point2D p2) {
-        double theta = Math.atan2(p2.getY() - p1.getY(), p2.getX() - p1.getX());
-        double angle = Math.toDegrees(theta);
-        return angle;
-    }
-
     /**
      * Instantly moves this object by the specified delta. The effects of this
      * method call does not become visible until the next time the {@link #update}
@@ -261,88 +432,352 @@ public abstract class AnimatedObject {
      * @param delta the delta
      */
     public void move(Point2D delta) {
-        movement = movement.add(delta);
+        move(delta.getX(), delta.getY());
+    }
+
+    /**
+     * Instantly moves this object by the specified delta, like
+     * {@link #move(Point2D)}.
+     * 
+     * @param dx the x delta
+     * @param dy the y delta
+     */
+    public void move(double dx, double dy) {
+        store.mx[slot] += dx;
+        store.my[slot] += dy;
+        store.jumped[slot] = true;
     }
 
     /**
-     * Returns {@code true} if this object collides with the specified object.
+     * Returns {@code true} if this object collides with the specified object, i.e.,
+     * if their polygons overlap.
+     * <p>
+     * Pairs whose bounding circles or bounding boxes are apart are rejected
+     * right away. Otherwise, the convex pieces of the two polygons, computed once
+     * per object, are tested with the separating axis theorem, so concave
+     * polygons are handled exactly. The world coordinates of the vertices are
+     * cached until the object moves or turns.
      * 
      * @param other the other object
      * @return {@code true} if the two objects collide, {@code false} otherwise
      * @throws NullPointerException if other is null
      */
     public boolean collidesWith(AnimatedObject other) {
-        Shape otherShape = other.getShape();
-        Shape intersection = Shape.intersect(shape, otherShape);
-        return !intersection.getBoundsInLocal().isEmpty();
+        double dx = getCenterX() - other.getCenterX();
+        double dy = getCenterY() - other.getCenterY();
+        double r = radius + other.radius;
+        if (dx * dx + dy * dy >= r * r) {
+            return false;
+        }
+        double[] a = transform();
+        double[] b = other.transform();
+        if (worldMaxX <= other.worldMinX || other.worldMaxX <= worldMinX
+                || worldMaxY <= other.worldMinY || other.worldMaxY <= worldMinY) {
+            return false;
+        }
+        for (int i = 0; i < pieces.length; i++) {
+            for (int j = 0; j < other.pieces.length; j++) {
+                // pieces whose bounds are apart are not tested
+                if (boundsOverlap(pieceBounds, i, other.pieceBounds, j)
+                        && Geometry.overlaps(a, pieces[i], b, other.pieces[j])) {
+                    return true;
+                }
+            }
+        }
+        return false;
     }
 
     /**
-     * Wraps this object around if it would leave the game area otherwise.
+     * Returns {@code true} if two bounding boxes, stored as min x, min y, max x
+     * and max y, overlap.
+     * 
+     * @param a the first array of boxes
+     * @param i the index of the box in the first array
+     * @param b the second array of boxes
+     * @param j the index of the box in the second array
+     * @return {@code true} if the boxes overlap
      */
-    protected void wrap() {
-        Bounds gameBounds = game.getGameBounds();
-        Bounds objectBounds = shape.getBoundsInParent();
-        Bounds localBounds = shape.getBoundsInLocal();
-        // central coodinates relative to the game area
-        double cx = objectBounds.getCenterX();
-        double cy = objectBounds.getCenterY();
-        // size of the Bounds box around the shape
-        double w = localBounds.getWidth();
-        double h = localBounds.getHeight();
-        // wrapAt is the percent of the object that should remain visible before
-        // wrapping it around
-        double wBeforeWrap = w * (wrapAt / 100);
-        double hBeforeWrap = h * (wrapAt / 100);
-        // objects are wrapped around when they are out of the game area by more than
-        // the above specified amount
-        // objects appear on the other side, also slightly out of the game area
-        // in order to make the transition more visually pleasing
-        // horizontal wrapping
-        if (cx - wBeforeWrap > gameBounds.getMaxX()) {
-            shape.setTranslateX(-wBeforeWrap);
-        } else if (cx + wBeforeWrap < gameBounds.getMinX()) {
-            shape.setTranslateX(gameBounds.getMaxX() - wBeforeWrap);
+    private static boolean boundsOverlap(double[] a, int i, double[] b, int j) {
+        return a[i * 4] < b[j * 4 + 2] && b[j * 4] < a[i * 4 + 2]
+                && a[i * 4 + 1] < b[j * 4 + 3] && b[j * 4 + 1] < a[i * 4 + 3];
+    }
+
+    /**
+     * Returns the earliest point of a line segment that lies inside this
+     * object's polygon, as a fraction of the segment.
+     * 
+     * @param x0 the x coordinate of the start of the segment
+     * @param y0 the y coordinate of the start of the segment
+     * @param x1 the x coordinate of the end of the segment
+     * @param y1 the y coordinate of the end of the segment
+     * @return the fraction between 0 and 1, or {@code NaN} if the segment misses
+     *         the polygon
+     */
+    double sweep(double x0, double y0, double x1, double y1) {
+        double[] v = transform();
+        if (Math.max(x0, x1) <= worldMinX || worldMaxX <= Math.min(x0, x1)
+                || Math.max(y0, y1) <= worldMinY || worldMaxY <= Math.min(y0, y1)) {
+            return Double.NaN;
         }
-        // vertical wrapping
-        if (cy - hBeforeWrap > gameBounds.getMaxY()) {
-            shape.setTranslateY(-hBeforeWrap);
-        } else if (cy + hBeforeWrap < gameBounds.getMinY()) {
-            shape.setTranslateY(gameBounds.getMaxY() - hBeforeWrap);
+        double t = Double.NaN;
+        for (int[] p : pieces) {
+            double u = Geometry.sweep(v, p, x0, y0, x1, y1);
+            if (u < t || Double.isNaN(t)) {
+                t = u;
+            }
         }
+        return t;
     }
 
     /**
-     * Updates the direction this object is facing.
+     * Returns an id of the current motion of this object. The id changes
+     * whenever this object jumps instead of moving by its velocity: when it is
+     * moved instantly, wrapped around or restored. Ids are unique within a
+     * world, so between two objects whose ids did not change, the distance
+     * changes by at most the sum of their max speeds per update.
+     * 
+     * @return the id
      */
-    protected void updateDirection() {
-        direction = direction + rotate + spin;
-        // keep direction in the [-180, 180] range
-        if (direction > 180) {
-            direction = -(360 - direction);
+    int getMotionId() {
+        return store.motionId[slot];
+    }
+
+    /**
+     * Gives this object a new {@link #getMotionId() motion id}, for changes of its
+     * motion that break the speed bound.
+     */
+    void startNewMotion() {
+        store.motionId[slot] = store.nextMotionId();
+    }
+
+    /**
+     * Returns the x distance this object moved by its velocity in the last
+     * update. Instant movement and wrapping around are not included.
+     * 
+     * @return the distance
+     */
+    double getLastMoveX() {
+        return store.x[slot] - store.prevX[slot];
+    }
+
+    /**
+     * Returns the y distance this object moved by its velocity in the last
+     * update. Instant movement and wrapping around are not included.
+     * 
+     * @return the distance
+     */
+    double getLastMoveY() {
+        return store.y[slot] - store.prevY[slot];
+    }
+
+    /**
+     * Returns the radius of a circle around the center of this object that
+     * contains its polygon at any rotation.
+     * 
+     * @return the radius
+     */
+    public double getRadius() {
+        return radius;
+    }
+
+    /**
+     * Returns the vertices of this object's polygon in world coordinates,
+     * computing them if this object moved or turned since the last call.
+     * 
+     * @return the x and y coordinates of the transformed vertices; the array
+     *         must not be modified
+     */
+    double[] transform() {
+        if (store.verticesValid[slot]) {
+            return worldVertices;
+        }
+        double x = store.x[slot];
+        double y = store.y[slot];
+        double px = store.pivotX[slot];
+        double py = store.pivotY[slot];
+        double cos = store.cos[slot];
+        double sin = store.sin[slot];
+        double x0 = Double.POSITIVE_INFINITY;
+        double y0 = Double.POSITIVE_INFINITY;
+        double x1 = Double.NEGATIVE_INFINITY;
+        double y1 = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < vertices.length; i += 2) {
+            // rotate around the pivot, then translate
+            double vx = vertices[i] - px;
+            double vy = vertices[i + 1] - py;
+            double wx = x + px + vx * cos - vy * sin;
+            double wy = y + py + vx * sin + vy * cos;
+            worldVertices[i] = wx;
+            worldVertices[i + 1] = wy;
+            x0 = Math.min(x0, wx);
+            y0 = Math.min(y0, wy);
+            x1 = Math.max(x1, wx);
+            y1 = Math.max(y1, wy);
         }
-        if (direction < -180) {
-            direction = 360 + direction;
+        worldMinX = x0;
+        worldMinY = y0;
+        worldMaxX = x1;
+        worldMaxY = y1;
+        for (int i = 0; i < pieces.length; i++) {
+            double bx0 = Double.POSITIVE_INFINITY;
+            double by0 = Double.POSITIVE_INFINITY;
+            double bx1 = Double.NEGATIVE_INFINITY;
+            double by1 = Double.NEGATIVE_INFINITY;
+            for (int k : pieces[i]) {
+                bx0 = Math.min(bx0, worldVertices[k * 2]);
+                bx1 = Math.max(bx1, worldVertices[k * 2]);
+                by0 = Math.min(by0, worldVertices[k * 2 + 1]);
+                by1 = Math.max(by1, worldVertices[k * 2 + 1]);
+            }
+            pieceBounds[i * 4] = bx0;
+            pieceBounds[i * 4 + 1] = by0;
+            pieceBounds[i * 4 + 2] = bx1;
+            pieceBounds[i * 4 + 3] = by1;
         }
-        // clear instant rotation
-        rotate = 0;
-        shape.setRotate(direction);
+        store.verticesValid[slot] = true;
+        return worldVertices;
     }
 
     /**
-     * Updates the position of this object, wrapping if neccessary.
+     * Wraps this object around if it would leave the game area otherwise.
+     */
+    protected void wrap() {
+        store.wrap(slot);
+    }
+
+    /**
+     * Updates the direction this object is facing.
+     */
+    protected void updateDirection() {
+        store.turn(slot);
+    }
+
+    /**
+     * Updates the position of this object, wrapping if neccessary. Instant
+     * movement is applied to the previous position as well, so it is never
+     * interpolated.
      */
     protected void updatePosition() {
-        Point2D delta = movement.add(velocity);
-        // clear instant movement
-        movement = ZERO_MOVEMENT;
-        // set new position
-        double x = shape.getTranslateX() + delta.getX();
-        double y = shape.getTranslateY() + delta.getY();
-        shape.setTranslateX(x);
-        shape.setTranslateY(y);
-        // wrap if needed
-        wrap();
+        store.move(slot);
+    }
+
+    /**
+     * Updates the direction and then the position of this object. The world may
+     * do this for many objects at once, see {@link MotionKernel}.
+     */
+    protected void integrate() {
+        store.integrate(slot);
+    }
+
+    /**
+     * Returns the number of bytes {@link #save} writes.
+     * 
+     * @return the size of the state of this object
+     */
+    int getStateSize() {
+        return 14 * Double.BYTES;
+    }
+
+    /**
+     * Writes the state of this object that changes after construction to the
+     * specified buffer.
+     * 
+     * @param buffer the buffer
+     */
+    void save(ByteBuffer buffer) {
+        EntityStore s = store;
+        int i = slot;
+        buffer.putDouble(s.vx[i]).putDouble(s.vy[i]).putDouble(s.spin[i]);
+        buffer.putDouble(s.mx[i]).putDouble(s.my[i]).putDouble(s.rotate[i]);
+        buffer.putDouble(s.direction[i]).putDouble(s.prevDirection[i]);
+        buffer.putDouble(s.x[i]).putDouble(s.y[i]).putDouble(s.prevX[i]).putDouble(s.prevY[i]);
+        buffer.putDouble(maxSpeed).putDouble(wrapAt);
+    }
+
+    /**
+     * Reads the state of this object, as written by {@link #save}, from the
+     * specified buffer.
+     * 
+     * @param buffer the buffer
+     */
+    void restore(ByteBuffer buffer) {
+        EntityStore s = store;
+        int i = slot;
+        s.vx[i] = buffer.getDouble();
+        s.vy[i] = buffer.getDouble();
+        s.spin[i] = buffer.getDouble();
+        s.mx[i] = buffer.getDouble();
+        s.my[i] = buffer.getDouble();
+        // a restored movement is still a jump
+        s.jumped[i] = true;
+        s.rotate[i] = buffer.getDouble();
+        s.setDirection(i, buffer.getDouble());
+        s.prevDirection[i] = buffer.getDouble();
+        s.x[i] = buffer.getDouble();
+        s.y[i] = buffer.getDouble();
+        s.prevX[i] = buffer.getDouble();
+        s.prevY[i] = buffer.getDouble();
+        maxSpeed = buffer.getDouble();
+        setWrapAtPercent(buffer.getDouble());
+        s.motionId[i] = s.nextMotionId();
+    }
+
+    /**
+     * Adds the current and previous state of this object to the specified
+     * snapshot.
+     * 
+     * @param snapshot the snapshot
+     * @param visible  whether this object should be visible
+     */
+    void addTo(WorldSnapshot snapshot, boolean visible) {
+        EntityStore s = store;
+        int i = slot;
+        snapshot.add(this, s.prevX[i], s.prevY[i], s.x[i], s.y[i], s.prevDirection[i],
+                s.direction[i], visible, getViewState());
+    }
+
+    /**
+     * Creates a new node that displays this object. The node is moved and
+     * rotated by the game; implementations only need to provide its geometry and
+     * appearance. This method is called on the JavaFX Application Thread and may
+     * only read state that does not change after construction.
+     * 
+     * @return the new node
+     */
+    public abstract Shape createView();
+
+    /**
+     * Makes a node created by {@link #createView()} for another object of the
+     * same class display this object, so nodes can be reused instead of being
+     * created and added to the scene graph. This method is called on the JavaFX
+     * Application Thread and may only read state that does not change after
+     * construction. The default implementation does nothing, which is right for
+     * objects that all look the same.
+     * 
+     * @param view the node
+     */
+    protected void reuseView(Shape view) {
+    }
+
+    /**
+     * Returns object specific state that affects the appearance of this object,
+     * to be passed to {@link #updateView}. The default implementation returns 0.
+     * 
+     * @return the view state
+     */
+    protected int getViewState() {
+        return 0;
+    }
+
+    /**
+     * Updates the appearance of a node created by {@link #createView()} to match
+     * the specified view state. This method is called on the JavaFX Application
+     * Thread whenever the state changes. The default implementation does nothing.
+     * 
+     * @param view  the node displaying this object
+     * @param state the value of {@link #getViewState()}
+     */
+    protected void updateView(Shape view, int state) {
     }
 
     /** Updates the position and direction of this object. */
@@ -1,15 +1,12 @@
 package cs1302.game;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
 
-import javafx.geometry.Point2D;
-import javafx.scene.image.Image;
-import javafx.scene.image.PixelReader;
-import javafx.scene.image.WritableImage;
-import javafx.scene.paint.ImagePattern;
+import javafx.collections.ObservableList;
 import javafx.scene.shape.Polygon;
+import javafx.scene.shape.Shape;
 
 /**
  * An animated object representing an asteroid.
@@ -23,57 +20,104 @@ public class Asteroid extends AnimatedObject {
         SMALL, MEDIUM, LARGE
     }
 
-    private static final Image IMAGE = new Image(
-            "file:resources/game/Generic_Celestia_asteroid_texture.jpg");
-    private static final PixelReader READER = IMAGE.getPixelReader();
-
     /** The type of this asteroid. */
     private final AsteroidType type;
+    /** Position of the texture within the source image, see {@link AsteroidTextures}. */
+    private final int textureX;
+    private final int textureY;
+    /** Points for {@link #reuseView}, which only the renderer calls. */
+    private static Double[] reusedPoints = new Double[0];
 
     /**
-     * Creates a new Asteroid with the specified Game.
+     * Creates a new Asteroid with the specified world.
      * 
-     * @param game he game containing this asteroid
-     * @throws NullPointerException if the game is null
+     * @param world the world containing this asteroid
+     * @throws NullPointerException if the world is null
      */
-    public Asteroid(Game game) {
-        this(game, AsteroidType.LARGE);
+    public Asteroid(AsteroidsWorld world) {
+        this(world, AsteroidType.LARGE);
     }
 
     /**
-     * Creates a new Asteroid with the specified Game and AsteroidType.
+     * Creates a new Asteroid with the specified world and AsteroidType.
      * 
-     * @param game the game containing this asteroid
-     * @param type the type of this asteroid
-     * @throws NullPointerException if the game is null
+     * @param world the world containing this asteroid
+     * @param type  the type of this asteroid
+     * @throws NullPointerException if the world is null
      * @throws NullPointerException if the type is null
      */
-    public Asteroid(Game game, AsteroidType type) {
-        super(game);
+    public Asteroid(AsteroidsWorld world, AsteroidType type) {
+        // generate random shape
+        super(world, getRandomPolygon(getSize(type), 15, world.getRandom()));
         this.type = type;
+        int size = getSize(type);
 
-        int size = 0;
+        // asteroid objects are using a randomly generated subimage of same image as the
+        // source of background texture
+        GameRandom rnd = world.getTextureRandom();
+        textureX = rnd.nextInt(AsteroidTextures.IMAGE_WIDTH - size - AsteroidTextures.MARGIN);
+        textureY = rnd.nextInt(AsteroidTextures.IMAGE_HEIGHT - size - AsteroidTextures.MARGIN);
+    }
+
+    /**
+     * Creates an asteroid with the specified shape, as read by {@link #load}.
+     * 
+     * @param world    the world containing this asteroid
+     * @param type     the type of this asteroid
+     * @param vertices the polygon of this asteroid
+     * @param textureX x coordinate of the texture within the source image
+     * @param textureY y coordinate of the texture within the source image
+     */
+    private Asteroid(AsteroidsWorld world, AsteroidType type, double[] vertices,
+            int textureX, int textureY) {
+        super(world, vertices);
+        this.type = type;
+        this.textureX = textureX;
+        this.textureY = textureY;
+    }
+
+    /**
+     * Returns the size of asteroids of the specified type.
+     * 
+     * @param type the type
+     * @return the radius of a circle containing such asteroids
+     */
+    static int getSize(AsteroidType type) {
         switch (type) {
         case SMALL:
-            size = 15;
-            break;
+            return 15;
         case MEDIUM:
-            size = 30;
-            break;
+            return 30;
         case LARGE:
-            size = 50;
+            return 50;
+        default:
+            throw new IllegalStateException("unhandled enum type");
         }
-        // generate random shape
-        shape = getRandomPolygon(size, 15);
+    }
 
-        // asteroid objects are using a randomly generated subimage of same image as the
-        // source of background texture
-        Random rnd = new Random();
-        int safety = 30;
-        int x = rnd.nextInt((int) IMAGE.getWidth() - size - safety);
-        int y = rnd.nextInt((int) IMAGE.getHeight() - size - safety);
-        WritableImage image = new WritableImage(READER, x, y, size, size);
-        shape.setFill(new ImagePattern(image));
+    /**
+     * Returns the mass of this asteroid for collisions between asteroids. It
+     * grows with the area of the type.
+     * 
+     * @return the mass
+     */
+    double getMass() {
+        int size = getSize(type);
+        return size * size;
+    }
+
+    /**
+     * Changes the velocity of this asteroid as the result of a collision. The max
+     * speed follows the velocity, and a new motion starts, since the old max
+     * speed no longer bounds the speed of this asteroid.
+     * 
+     * @param vx the new x velocity
+     * @param vy the new y velocity
+     */
+    void bounce(double vx, double vy) {
+        setMaxSpeed(Math.sqrt(vx * vx + vy * vy));
+        setVelocity(vx, vy);
+        startNewMotion();
     }
 
     /**
@@ -89,24 +133,28 @@ public class Asteroid extends AnimatedObject {
      * Randomizes the constant movement(velocity and spin) of this asteroid.
      */
     public void randomizeMovement() {
-        Random rnd = new Random();
+        GameRandom rnd = world.getRandom();
         // base values
-        Point2D baseVelocity = new Point2D(rnd.nextDouble(2) - 1, rnd.nextDouble(2) - 1);
+        double baseX = rnd.nextDouble(2) - 1;
+        double baseY = rnd.nextDouble(2) - 1;
         double baseSpin = rnd.nextDouble(2.0) - 1.0;
         // modify base values
+        double factor = 1;
         switch (type) {
         case SMALL:
-            spin = baseSpin * 3;
-            velocity = baseVelocity.multiply(3.0);
+            factor = 3.0;
             break;
         case MEDIUM:
-            spin = baseSpin;
-            velocity = baseVelocity;
             break;
         case LARGE:
-            spin = baseSpin * 0.4;
-            velocity = baseVelocity.multiply(0.4);
+            factor = 0.4;
         }
+        setSpin(baseSpin * factor);
+        double vx = baseX * factor;
+        double vy = baseY * factor;
+        // asteroids keep their velocity, so it is also their max speed
+        setMaxSpeed(Math.sqrt(vx * vx + vy * vy));
+        setVelocity(vx, vy);
     }
 
     /**
@@ -124,16 +172,16 @@ public class Asteroid extends AnimatedObject {
         case MEDIUM:
             // split into 3 small ones
             for (int i = 0; i < 3; i++) {
-                result.add(new Asteroid(game, AsteroidType.SMALL));
+                result.add(new Asteroid(world, AsteroidType.SMALL));
             }
             break;
         case LARGE:
             // split into 3 medium and 1 small ones
             for (int i = 0; i < 3; i++) {
-                result.add(new Asteroid(game, AsteroidType.MEDIUM));
+                result.add(new Asteroid(world, AsteroidType.MEDIUM));
             }
             for (int i = 0; i < 1; i++) {
-                result.add(new Asteroid(game, AsteroidType.SMALL));
+                result.add(new Asteroid(world, AsteroidType.SMALL));
             }
             break;
         default:
@@ -143,25 +191,95 @@ public class Asteroid extends AnimatedObject {
         return result;
     }
 
+    /**
+     * Reads an asteroid, as written by {@link #save}, from the specified buffer.
+     * 
+     * @param world  the world containing the asteroid
+     * @param buffer the buffer
+     * @return the asteroid
+     */
+    static Asteroid load(AsteroidsWorld world, ByteBuffer buffer) {
+        AsteroidType type = AsteroidType.values()[buffer.get()];
+        int textureX = buffer.getInt();
+        int textureY = buffer.getInt();
+        double[] vertices = new double[buffer.getInt()];
+        for (int i = 0; i < vertices.length; i++) {
+            vertices[i] = buffer.getDouble();
+        }
+        Asteroid asteroid = new Asteroid(world, type, vertices, textureX, textureY);
+        asteroid.restore(buffer);
+        return asteroid;
+    }
+
+    @Override
+    int getStateSize() {
+        return super.getStateSize() + 1 + 3 * Integer.BYTES
+                + vertices().length * Double.BYTES;
+    }
+
+    /**
+     * {@inheritDoc} The state of an asteroid includes its shape, so it is read
+     * back with {@link #load} rather than {@link #restore}.
+     */
+    @Override
+    void save(ByteBuffer buffer) {
+        buffer.put((byte) type.ordinal());
+        buffer.putInt(textureX).putInt(textureY);
+        double[] vertices = vertices();
+        buffer.putInt(vertices.length);
+        for (double v : vertices) {
+            buffer.putDouble(v);
+        }
+        super.save(buffer);
+    }
+
     @Override
     public void update() {
         updateDirection();
         updatePosition();
     }
 
+    @Override
+    public Shape createView() {
+        Polygon view = new Polygon(getVertices());
+        view.setFill(AsteroidTextures.get(type, textureX, textureY));
+        return view;
+    }
+
+    @Override
+    protected void reuseView(Shape view) {
+        double[] vertices = vertices();
+        ObservableList<Double> points = ((Polygon) view).getPoints();
+        boolean same = points.size() == vertices.length;
+        for (int i = 0; same && i < vertices.length; i++) {
+            same = points.get(i) == vertices[i];
+        } // for
+        if (!same) {
+            // one bulk replacement, so the polygon is notified and rebuilt once
+            if (reusedPoints.length != vertices.length) {
+                reusedPoints = new Double[vertices.length];
+            } // if
+            for (int i = 0; i < vertices.length; i++) {
+                reusedPoints[i] = vertices[i];
+            } // for
+            points.setAll(reusedPoints);
+        } // if
+        view.setFill(AsteroidTextures.get(type, textureX, textureY));
+    }
+
     /**
-     * Creates and returns a new, randomly generated polygon with the specified size
-     * and number of verticles.
+     * Creates and returns the vertices of a new, randomly generated polygon with
+     * the specified size and number of verticles.
      * 
      * @param size          radius of a circle containing this asteroid
      * @param verticleCount the number of verticles of the the polygon
-     * @return the new Polygon
+     * @param rnd           the random number generator to use
+     * @return the x and y coordinates of the vertices
      */
-    private Polygon getRandomPolygon(int size, int verticleCount) {
+    private static double[] getRandomPolygon(int size, int verticleCount, GameRandom rnd) {
 
         double[] verticles = new double[verticleCount * 2];
 
-        Random rnd = new Random();
         double angleDelta = 360.0 / verticleCount;
         // angle of the current verticle
         double angle = 0;
@@ -181,12 +299,12 @@ public class Asteroid extends AnimatedObject {
             }
             // construct the next verticle
             angle += angleDelta;
-            verticles[index * 2] = length * Math.cos(Math.toRadians(angle));
-            verticles[index * 2 + 1] = length * Math.sin(Math.toRadians(angle));
+            verticles[index * 2] = length * Trig.cos(angle);
+            verticles[index * 2 + 1] = length * Trig.sin(angle);
 
             prevLength = length;
         }
 
-        return new Polygon(verticles);
+        return verticles;
     }
 }
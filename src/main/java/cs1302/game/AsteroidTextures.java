@@ -0,0 +1,240 @@
+package cs1302.game;
+
+import cs1302.game.Asteroid.AsteroidType;
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelReader;
+import javafx.scene.paint.ImagePattern;
+
+/**
+ * The textures of asteroids, which are square crops of one source image. A
+ * fixed set of crops per {@link AsteroidType} is copied into one atlas image
+ * when the first asteroid is displayed, and every asteroid is filled with a
+ * shared {@link ImagePattern} that shows one crop of the atlas. So displaying
+ * an asteroid, e.g., when a large one is split, neither copies pixels nor
+ * creates a texture. The source image is no longer referenced once the atlas
+ * is made.
+ * <p>
+ * An asteroid picks a random position of its crop within the source image,
+ * leaving out a {@value #MARGIN} pixel margin at the right and bottom; it is
+ * shown with the crop of the atlas from the same cell of a grid of
+ * {@value #COLUMNS} by {@value #ROWS} cells over these positions. The atlas
+ * holds the crops of each type in the same grid, and those of all types one
+ * below the other.
+ * <p>
+ * The atlas is not a {@code WritableImage}: a shape filled with a pattern of
+ * one listens to it for changes of its pixels, so the shared atlas would keep
+ * every asteroid node ever displayed, and its game, from being collected. The
+ * crops are written to an uncompressed BMP file in memory instead, which is
+ * read as an ordinary image.
+ */
+final class AsteroidTextures {
+
+    /** Size of the source image, in pixels. */
+    static final int IMAGE_WIDTH = 1024;
+    static final int IMAGE_HEIGHT = 512;
+    /** Pixels at the right and bottom of the source image that are not used. */
+    static final int MARGIN = 30;
+    /** The grid of crop positions per type. */
+    static final int COLUMNS = 8;
+    static final int ROWS = 4;
+
+    /** Size of the atlas, in pixels. */
+    private static final int ATLAS_WIDTH;
+    private static final int ATLAS_HEIGHT;
+    /** Bytes per row of the BMP file of the atlas, which are padded to 4 bytes. */
+    private static final int BMP_ROW_SIZE;
+    /** Size of the headers of the BMP file. */
+    private static final int BMP_HEADER_SIZE = 54;
+    /** Position of the grid of each type within the atlas. */
+    private static final int[] ATLAS_Y = new int[AsteroidType.values().length];
+
+    static {
+        int width = 0;
+        int height = 0;
+        for (AsteroidType type : AsteroidType.values()) {
+            int size = Asteroid.getSize(type);
+            ATLAS_Y[type.ordinal()] = height;
+            width = Math.max(width, COLUMNS * size);
+            height += ROWS * size;
+        } // for
+        ATLAS_WIDTH = width;
+        ATLAS_HEIGHT = height;
+        BMP_ROW_SIZE = (ATLAS_WIDTH * 3 + 3) & ~3;
+    } // static
+
+    /**
+     * The atlas and its patterns. They are only made when an asteroid is
+     * displayed, so asteroids can be simulated without the JavaFX toolkit.
+     */
+    private static final class Atlas {
+
+        static final ImagePattern[][] PATTERNS = new ImagePattern[AsteroidType.values().length][];
+
+        static {
+            PixelReader reader = new Image(
+                    "file:resources/game/Generic_Celestia_asteroid_texture.jpg").getPixelReader();
+            ByteBuffer bmp = createBmp();
+            for (AsteroidType type : AsteroidType.values()) {
+                int size = Asteroid.getSize(type);
+                for (int i = 0; i < COLUMNS * ROWS; i++) {
+                    int x = i % COLUMNS * size;
+                    int y = ATLAS_Y[type.ordinal()] + i / COLUMNS * size;
+                    copyCrop(reader, getSourceX(size, i % COLUMNS), getSourceY(size, i / COLUMNS),
+                            size, bmp, x, y);
+                } // for
+            } // for
+            Image atlas = new Image(new ByteArrayInputStream(bmp.array()));
+            for (AsteroidType type : AsteroidType.values()) {
+                int size = Asteroid.getSize(type);
+                ImagePattern[] patterns = new ImagePattern[COLUMNS * ROWS];
+                for (int i = 0; i < patterns.length; i++) {
+                    int x = i % COLUMNS * size;
+                    int y = ATLAS_Y[type.ordinal()] + i / COLUMNS * size;
+                    // scaled and moved so the crop covers the bounds of the asteroid
+                    patterns[i] = new ImagePattern(atlas, -(double) x / size,
+                            -(double) y / size, (double) ATLAS_WIDTH / size,
+                            (double) ATLAS_HEIGHT / size, true);
+                } // for
+                PATTERNS[type.ordinal()] = patterns;
+            } // for
+        } // static
+
+        /**
+         * Returns a BMP file of the size of the atlas, with 24 bits per pixel,
+         * whose pixels are all black.
+         *
+         * @return the file, in a buffer with the byte order of BMP files
+         */
+        private static ByteBuffer createBmp() {
+            int pixelsSize = BMP_ROW_SIZE * ATLAS_HEIGHT;
+            ByteBuffer bmp = ByteBuffer.allocate(BMP_HEADER_SIZE + pixelsSize)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            // file header
+            bmp.put((byte) 'B').put((byte) 'M').putInt(bmp.capacity()).putInt(0)
+                    .putInt(BMP_HEADER_SIZE);
+            // info header, with the rows from the bottom up
+            bmp.putInt(40).putInt(ATLAS_WIDTH).putInt(ATLAS_HEIGHT).putShort((short) 1)
+                    .putShort((short) 24).putInt(0).putInt(pixelsSize).putInt(2835)
+                    .putInt(2835).putInt(0).putInt(0);
+            return bmp;
+        } // createBmp
+
+        /**
+         * Copies a square crop of the source image into the BMP file of the atlas.
+         *
+         * @param reader  the pixels of the source image
+         * @param sourceX x coordinate of the crop within the source image
+         * @param sourceY y coordinate of the crop within the source image
+         * @param size    the size of the crop
+         * @param bmp     the BMP file of the atlas
+         * @param x       x coordinate of the crop within the atlas
+         * @param y       y coordinate of the crop within the atlas
+         */
+        private static void copyCrop(PixelReader reader, int sourceX, int sourceY, int size,
+                ByteBuffer bmp, int x, int y) {
+            for (int dy = 0; dy < size; dy++) {
+                int row = BMP_HEADER_SIZE + (ATLAS_HEIGHT - 1 - y - dy) * BMP_ROW_SIZE;
+                for (int dx = 0; dx < size; dx++) {
+                    int argb = reader.getArgb(sourceX + dx, sourceY + dy);
+                    int i = row + (x + dx) * 3;
+                    bmp.put(i, (byte) argb).put(i + 1, (byte) (argb >> 8))
+                            .put(i + 2, (byte) (argb >> 16));
+                } // for
+            } // for
+        } // copyCrop
+
+    } // Atlas
+
+    /**
+     * This class only has static members.
+     */
+    private AsteroidTextures() {
+    } // AsteroidTextures
+
+    /**
+     * Returns the shared texture of an asteroid.
+     *
+     * @param type     the type of the asteroid
+     * @param textureX x coordinate of the crop within the source image
+     * @param textureY y coordinate of the crop within the source image
+     * @return the texture
+     */
+    static ImagePattern get(AsteroidType type, int textureX, int textureY) {
+        int size = Asteroid.getSize(type);
+        int column = getCell(textureX, IMAGE_WIDTH - size - MARGIN, COLUMNS);
+        int row = getCell(textureY, IMAGE_HEIGHT - size - MARGIN, ROWS);
+        return Atlas.PATTERNS[type.ordinal()][row * COLUMNS + column];
+    } // get
+
+    /**
+     * Returns the number of bytes of pixels of the atlas, which is the only
+     * texture of asteroids.
+     *
+     * @return the number of bytes
+     */
+    static long getMemoryUsage() {
+        return (long) ATLAS_WIDTH * ATLAS_HEIGHT * Integer.BYTES;
+    } // getMemoryUsage
+
+    /**
+     * Returns a description of the atlas and its memory usage, for the
+     * diagnostics.
+     *
+     * @return the description
+     */
+    static String describe() {
+        return String.format("%d crops in a %dx%d atlas, %d KiB",
+                AsteroidType.values().length * COLUMNS * ROWS, ATLAS_WIDTH, ATLAS_HEIGHT,
+                getMemoryUsage() / 1024);
+    } // describe
+
+    /**
+     * Returns the cell of the grid containing a position of a crop.
+     *
+     * @param position  the position, from 0 to {@code positions - 1}
+     * @param positions the number of positions
+     * @param cells     the number of cells
+     * @return the cell, from 0 to {@code cells - 1}
+     */
+    private static int getCell(int position, int positions, int cells) {
+        return Math.min(cells - 1, Math.max(0, (int) ((long) position * cells / positions)));
+    } // getCell
+
+    /**
+     * Returns the x coordinate of a crop in the source image.
+     *
+     * @param size   the size of the crop
+     * @param column the column of the grid
+     * @return the x coordinate
+     */
+    private static int getSourceX(int size, int column) {
+        return getCellCenter(column, IMAGE_WIDTH - size - MARGIN, COLUMNS);
+    } // getSourceX
+
+    /**
+     * Returns the y coordinate of a crop in the source image.
+     *
+     * @param size the size of the crop
+     * @param row  the row of the grid
+     * @return the y coordinate
+     */
+    private static int getSourceY(int size, int row) {
+        return getCellCenter(row, IMAGE_HEIGHT - size - MARGIN, ROWS);
+    } // getSourceY
+
+    /**
+     * Returns the position in the middle of a cell of the grid.
+     *
+     * @param cell      the cell
+     * @param positions the number of positions
+     * @param cells     the number of cells
+     * @return the position
+     */
+    private static int getCellCenter(int cell, int positions, int cells) {
+        return (int) (((long) cell * 2 + 1) * positions / (cells * 2));
+    } // getCellCenter
+
+} // AsteroidTextures
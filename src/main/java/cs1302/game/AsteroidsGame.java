@@ -1,41 +1,84 @@
 package cs1302.game;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.List;
-import java.util.Random;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
 import java.util.logging.Level;
 
 import cs1302.game.Asteroid.AsteroidType;
 import cs1302.omega.GameScreen;
-import javafx.geometry.Bounds;
-import javafx.geometry.Point2D;
 import javafx.scene.input.KeyCode;
-import javafx.scene.input.MouseEvent;
+import javafx.util.Duration;
 
 /**
  * Implementation of the Asteroids game.
+ * <p>
+ * The game itself is an {@link AsteroidsWorld}, which is stepped in
+ * {@link #update()} without touching the scene graph. At the end of each step,
+ * its state is copied into a {@link WorldSnapshot} and published through a
+ * {@link TripleBuffer}; {@link #render(double)} picks up the latest snapshot
+ * and applies it to the nodes on the screen. This allows the simulation to run on its own thread, see
+ * {@link Game#setSimulationThreaded(boolean)}.
  * @see The Help menu for more information on gameplay
  */
 public class AsteroidsGame extends Game {
 
-    /** Player's ship. */
-    private Ship player;
-    /** Asteroids. */
-    private List<Asteroid> asteroids = new ArrayList<>();
-    /** Projectiles. */
-    private List<Projectile> projectiles = new ArrayList<>();
-    /** Random number generator. */
-    private Random rnd = new Random();
-    /** Game score. */
-    private int score = 0;
-    /** Lives. */
-    private int lives = 3;
-    /** Whether the game is paused, waiting for user interaction. */
-    private boolean waitingForInteraction;
-    /** Time left from invulnerability. */
-    private int shipInvulnerable;
+    /** Steps between two keyframes of a recording; ten seconds of game time. */
+    private static final int REPLAY_KEYFRAME_INTERVAL = 600;
+    /** Steps that can be rewound; ten seconds of game time. */
+    private static final int REWIND_STEPS = 600;
+    /** Bytes reserved per state for rewinding; enough for dozens of asteroids. */
+    private static final int REWIND_SLOT_SIZE = 16 * 1024;
+    /** Most hidden views kept for reuse per class of object. */
+    private static final int VIEW_POOL_SIZE = 256;
+    /** The longest the warm-up may take. */
+    private static final Duration MAX_WARM_UP = Duration.seconds(5);
+
+    /** The simulated game. */
+    private AsteroidsWorld world;
     /** GameScreen containing this game. */
     private GameScreen gameScreen;
+    /** File to record the game to, if any. */
+    private Path recordingFile;
+    /** Records the input of the world, only used by the simulation. */
+    private ReplayRecorder recorder;
+    /** The seed of the world, or {@code null} for a random one. */
+    private Long seed;
+    /** Whether to warm up the JIT compiler before the game starts. */
+    private boolean warmUpEnabled = false;
+    /** Whether asteroids bounce off each other. */
+    private boolean asteroidCollisions = false;
+    /** The number of objects at which steps run in parallel. */
+    private int parallelThreshold = AsteroidsWorld.DEFAULT_PARALLEL_THRESHOLD;
+    /** Replaces the input of the player, if set. */
+    private volatile InputSource inputSource;
+    /** The warm-up, if it was started. */
+    private volatile WarmUp warmUp;
+    /** Recent states of the world, only used by the simulation. */
+    private final RewindBuffer rewind = new RewindBuffer(REWIND_STEPS, REWIND_SLOT_SIZE);
+
+    /** Snapshots handed from the simulation to the renderer. */
+    private final TripleBuffer<WorldSnapshot> snapshots = new TripleBuffer<>(WorldSnapshot::new);
+    /** Nodes displaying the objects, only used by the renderer. */
+    private final IdentityHashMap<AnimatedObject, EntityView> views = new IdentityHashMap<>();
+    /** The same views in a list, swept by index, only used by the renderer. */
+    private final ArrayList<EntityView> shownViews = new ArrayList<>();
+    /** Hidden views kept for reuse, by class of object, only used by the renderer. */
+    private final Map<Class<?>, ObjectPool<EntityView>> viewPools = new HashMap<>();
+    /** Hits and misses of all view pools, for the diagnostics. */
+    private volatile long viewPoolHits;
+    private volatile long viewPoolMisses;
+    /** Number of the current sync, only used by the renderer. */
+    private int frame;
+    /** Values shown on the game screen, only used by the renderer. */
+    private int shownScore = -1;
+    private int shownLives = -1;
+    private String shownInfo;
+    private boolean gameOverShown;
 
     /**
      * Constructs a {@code AsteroidsGame} object with the specified {@code width},
@@ -49,307 +92,368 @@ public class AsteroidsGame extends Game {
         super(width, height, 60); // call parent constructor
         this.gameScreen = gameScreen;
         setLogLevel(Level.INFO); // enable logging
+        bindKey(KeyCode.W, TickInput.THRUST);
+        bindKey(KeyCode.A, TickInput.ROTATE_LEFT);
+        bindKey(KeyCode.D, TickInput.ROTATE_RIGHT);
+        bindKey(KeyCode.SPACE, TickInput.FIRE);
+        bindKey(KeyCode.ENTER, TickInput.CONFIRM);
+        bindKey(KeyCode.R, TickInput.REWIND);
+        bindKey(KeyCode.F, TickInput.LAUNCH);
+        bindMouse(TickInput.AIM_ASSIST);
     } 
 
     /** {@inheritDoc} */
     @Override
     protected void init() {
-        this.player = new Ship(this);
-        // ship should be rendered last
-        this.player.getShape().setViewOrder(-1);
-        player.setMaxSpeed(5);
-        player.setWeaponCooldown(30);
-        getChildren().addAll(player.getShape());
-        // move to the center, facing up
-        player.move(new Point2D(getWidth() / 2 - 15, getHeight() / 2 - 15));
-        player.rotate(-90.0);
-        // spawn asteroids
-        spawnInitialAsteroids();
-        // call updates to put everything in place
-        player.update();
-        updateAsteroids();
-        gameScreen.displayLives(lives);
-        // pause the game
-        waitingForInteraction = true;
-    } // init
-
-    /** {@inheritDoc} */
-    @Override
-    protected void update() {
-        // handle unpause after the player died
-        if (waitingForInteraction) {
-            if (lives == 0) {
-                // no more lives left, end the game
-                if (isKeyPressed(KeyCode.ENTER)) {
-                    stop();
-                    gameScreen.afterGame(score);
-                }
-            } else {
-                // continue
-                if (isKeyPressed(KeyCode.ENTER)) {
-                    waitingForInteraction = false;
-                    gameScreen.displayInfo("");
-                }
+        double width = getGameBounds().getWidth();
+        double height = getGameBounds().getHeight();
+        world = seed != null ? new AsteroidsWorld(width, height, getTimeStep(), seed)
+                : new AsteroidsWorld(width, height, getTimeStep());
+        world.setAsteroidCollisions(asteroidCollisions);
+        world.setParallelThreshold(parallelThreshold);
+        if (recordingFile != null) {
+            try {
+                recorder = new ReplayRecorder(world, Files.newOutputStream(recordingFile),
+                        REPLAY_KEYFRAME_INTERVAL);
+                logger.info(() -> "recording game with seed " + world.getSeed() + " to "
+                        + recordingFile);
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "cannot record game to " + recordingFile, e);
             }
-            return;
-        }
-        // end round if there are no asteroids left
-        if (asteroids.isEmpty()) {
-            handleRoundEnd();
-            return;
         }
-        // handle controls
-        handleShipControls();
-        // update objects
-        player.update();
-        updateAsteroids();
-        updateProjectiles();
-        shipInvulnerable = Math.max(0, shipInvulnerable - 1);
-        // flash the ship and the lives during invulnerability
-        if (shipInvulnerable > 0) {
-            if ((shipInvulnerable / 20) % 2 == 0) {
-                player.getShape().setVisible(true);
-                gameScreen.displayLives(lives);
-            } else {
-                player.getShape().setVisible(false);
-                gameScreen.displayLives(0);
-            }
+        if (warmUpEnabled) {
+            startWarmUp();
         }
-        // update game screen
-        gameScreen.displayScore(score);
-    } // update
+        publishSnapshot(false);
+    } // init
 
     /**
-     * Updates the asteroids.
+     * Starts warming up the JIT compiler on a background thread, while the
+     * player looks at the start screen. The warm-up is cancelled when the game
+     * starts.
      */
-    private void updateAsteroids() {
-        List<Asteroid> asteroidsToRemove = new ArrayList<>();
-        List<Asteroid> asteroidsToAdd = new ArrayList<>();
+    private void startWarmUp() {
+        WarmUp w = new WarmUp(getGameBounds().getWidth(), getGameBounds().getHeight(),
+                getTimeStep(), MAX_WARM_UP);
+        warmUp = w;
+        Thread thread = new Thread(() -> {
+            w.run();
+            logger.info(w::toString);
+        }, "game-warm-up");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+    } // startWarmUp
 
-        for (Asteroid asteroid : asteroids) {
-            asteroid.update();
-            // collision with player
-            if (asteroid.collidesWith(player)) {
-                handlePlayerCollision();
-            }
-            // collision with projectile
-            for (Projectile p : projectiles) {
-                if (asteroid.collidesWith(p)) {
-                    // split asteroid
-                    List<Asteroid> newAsteroids = asteroid.split();
-                    // get the central coordinates of the asteroid
-                    Bounds objectBounds = asteroid.getShape().getBoundsInParent();
-                    double cx = objectBounds.getCenterX();
-                    double cy = objectBounds.getCenterY();
-                    for (Asteroid newAsteroid : newAsteroids) {
-                        // move it to the position of the destroyed asteroid
-                        newAsteroid.move(new Point2D(cx, cy));
-                        // move it a bit to a random direction
-                        newAsteroid.move(new Point2D(rnd.nextDouble(10) - 5,
-                                rnd.nextDouble(10) - 5));
-                        newAsteroid.randomizeMovement();
-                    }
-                    // projectile will disappear in the next update
-                    p.setTimeLeft(0);
-                    // remove destroyed asteroid
-                    asteroidsToRemove.add(asteroid);
-                    // add new asteroids
-                    asteroidsToAdd.addAll(newAsteroids);
-                    // asteroid is already destroyed, break out from the loop
-                    break;
-                }
-            }
-        }
-        // handle destroyed asteroids
-        asteroids.removeAll(asteroidsToRemove);
-        for (Asteroid asteroid : asteroidsToRemove) {
-            getChildren().remove(asteroid.getShape());
-            increaseScore(asteroid);
-        }
-        // manage the new asteroids
-        asteroids.addAll(asteroidsToAdd);
-        for (Asteroid a : asteroidsToAdd) {
-            getChildren().add(a.getShape());
-        }
-    }
+    /**
+     * Sets the seed of the world, so a game can be played again the same way.
+     * This must be set before the game is started.
+     * 
+     * @param seed the seed, or {@code null} for a random one
+     */
+    public void setSeed(Long seed) {
+        this.seed = seed;
+    } // setSeed
 
     /**
-     * Updates the projectiles.
+     * Sets whether to run a warm-up behind the start screen, so the first round
+     * does not stutter while the JIT compiler catches up. This must be set before
+     * the game is started.
+     * 
+     * @param enabled {@code true} to warm up
      */
-    private void updateProjectiles() {
-        List<Projectile> projectilesToRemove = new ArrayList<>();
-        for (Projectile p : projectiles) {
-            // remove projectiles with no display time left
-            if (p.getTimeLeft() == 0) {
-                projectilesToRemove.add(p);
-                getChildren().remove(p.getShape());
-            }
-            p.update();
+    public void setWarmUpEnabled(boolean enabled) {
+        warmUpEnabled = enabled;
+    } // setWarmUpEnabled
+
+    /**
+     * Sets whether asteroids bounce off each other, see
+     * {@link AsteroidsWorld#setAsteroidCollisions}. This must be set before the
+     * game is started.
+     * 
+     * @param enabled {@code true} to let asteroids collide
+     */
+    public void setAsteroidCollisions(boolean enabled) {
+        asteroidCollisions = enabled;
+    } // setAsteroidCollisions
+
+    /**
+     * Sets the number of asteroids and projectiles at which steps run in
+     * parallel, see {@link AsteroidsWorld#setParallelThreshold}. This must be set
+     * before the game is started.
+     * 
+     * @param threshold the number of objects
+     * @throws IllegalArgumentException if {@code threshold} is negative
+     */
+    public void setParallelThreshold(int threshold) {
+        if (threshold < 0) {
+            throw new IllegalArgumentException("negative threshold: " + threshold);
         }
+        parallelThreshold = threshold;
+    } // setParallelThreshold
+
+    /**
+     * Returns the warm-up, e.g., to find out how long it took.
+     * 
+     * @return the warm-up, or {@code null} if it was not started
+     */
+    public WarmUp getWarmUp() {
+        return warmUp;
+    } // getWarmUp
 
-        projectiles.removeAll(projectilesToRemove);
-    }
+    /**
+     * Records the game to the specified file, see {@link Replay}. This must be set
+     * before the game is started.
+     * 
+     * @param file the file, or {@code null} to not record the game
+     */
+    public void setRecordingFile(Path file) {
+        recordingFile = file;
+    } // setRecordingFile
 
     /**
-     * Handles ship control events.
+     * Sets the source that drives this game instead of the player, e.g., a bot,
+     * or {@code null} to give control back to the player. While a source is set,
+     * the game polls it every step and ignores the {@link #getInput() input} of
+     * the player. This method should be called on the JavaFX application thread.
+     *
+     * @param source the input source, or {@code null}
      */
-    private void handleShipControls() {
-        // fire weapon if the ship is not invulnerable
-        if (shipInvulnerable == 0 && isKeyPressed(KeyCode.SPACE)) {
-            if (player.fire()) {
-                spawnProjectile();
-            }
+    public void setInputSource(InputSource source) {
+        inputSource = source;
+        // a bot does not press keys, so it cannot wake an idle loop
+        wake();
+    } // setInputSource
+
+    /**
+     * Returns the source that drives this game instead of the player.
+     *
+     * @return the input source, or {@code null} if the player is in control
+     */
+    public InputSource getInputSource() {
+        return inputSource;
+    } // getInputSource
+
+    /** {@inheritDoc} */
+    @Override
+    protected void update() {
+        TickInput input = getInput();
+        InputSource source = inputSource;
+        if (source != null) {
+            source.poll(world, input);
         }
-        // don't rotate twice from keyboard and mouse
-        boolean rotationHandled = false;
-        // rotate from keys
-        if (isKeyPressed(KeyCode.D, () -> player.rotate(4.0))) {
-            rotationHandled = true;
-        } else if (isKeyPressed(KeyCode.A, () -> player.rotate(-4.0))) {
-            rotationHandled = true;
+        // a replay only works if time goes forward, so there is no rewind while recording
+        if (input.isActive(TickInput.REWIND) && recorder == null) {
+            rewind(1);
+            publishSnapshot(true);
+            return;
         }
-        // rotate from moouse event
-        if (!rotationHandled && isMouseButtonPressed()) {
-            rotateShipToCursor(getLastMousePressedEvent());
+        boolean paused = world.isWaitingForInteraction();
+        if (recorder != null) {
+            record(input);
         }
-        // apply thrust
-        if (!isKeyPressed(KeyCode.W)) {
-            player.setEnginesOn(false);
-        } else {
-            player.setEnginesOn(true);
+        world.step(input);
+        if (recorder != null && world.isGameOver()) {
+            stopRecording();
+        }
+        // nothing changes while paused, so those steps are not worth keeping
+        if (!paused) {
+            rewind.push(world);
+            // the game is on and needs the processor
+            WarmUp w = warmUp;
+            if (w != null && !w.isDone()) {
+                w.cancel();
+            }
+        }
+        publishSnapshot(false);
+        if (source == null && world.isWaitingForInteraction()) {
+            // sleep until the next key press instead of polling
+            idle();
         }
-    }
+    } // update
+
+    /** {@inheritDoc} */
+    @Override
+    protected void addDiagnostics(Map<String, Object> diagnostics) {
+        int[] types = new int[AsteroidType.values().length];
+        for (Asteroid asteroid : world.getAsteroids()) {
+            types[asteroid.getType().ordinal()]++;
+        }
+        diagnostics.put("seed", world.getSeed());
+        diagnostics.put("tick", world.getTick());
+        diagnostics.put("asteroids", String.format("%d (large %d, medium %d, small %d)",
+                world.getAsteroids().size(), types[AsteroidType.LARGE.ordinal()],
+                types[AsteroidType.MEDIUM.ordinal()], types[AsteroidType.SMALL.ordinal()]));
+        diagnostics.put("projectiles", world.getProjectiles().size());
+        diagnostics.put("score", world.getScore());
+        diagnostics.put("lives", world.getLives());
+        diagnostics.put("waiting", world.isWaitingForInteraction());
+        diagnostics.put("state size", world.getStateSize() + " bytes");
+        diagnostics.put("motion kernel", world.getMotionKernel());
+        diagnostics.put("projectile pool", world.getProjectilePool());
+        diagnostics.put("missile pool", world.getMissilePool());
+        diagnostics.put("asteroid textures", AsteroidTextures.describe());
+        diagnostics.put("view pools", String.format("%d hits, %d misses", viewPoolHits,
+                viewPoolMisses));
+        diagnostics.put("parallel steps", String.format("%d (threshold %d objects)",
+                world.getParallelSteps(), world.getParallelThreshold()));
+        long checks = world.getPairChecks();
+        diagnostics.put("pair cache", String.format("%d of %d pairs culled (%.1f%%)",
+                world.getPairsCulled(), checks,
+                100.0 * world.getPairsCulled() / Math.max(1, checks)));
+        diagnostics.put("rewind states", rewind.size());
+        diagnostics.put("input source", inputSource);
+        diagnostics.put("recording", recorder != null ? recordingFile : "no");
+    } // addDiagnostics
 
     /**
-     * Handles player collision.
+     * Goes back the specified number of steps, as far as they are kept. The
+     * nodes of the asteroids and projectiles are replaced at the next render.
+     * Must only be called by the simulation.
+     * 
+     * @param steps the number of steps
+     * @return {@code true} if the game went back; {@code false} if it could not
+     *         go back that far, in which case it goes back as far as possible
      */
-    private void handlePlayerCollision() {
-        if (shipInvulnerable == 0) {
-            lives--;
-            if (lives > 0) {
-                // 5s invulnerability after death
-                shipInvulnerable = 300;
-                // pause and wait for player interaction
-                waitingForInteraction = true;
-                gameScreen.displayInfo("PRESS ENTER\nTO CONTINUE");
-            } else {
-                // pause and wait for player interaction
-                waitingForInteraction = true;
-                gameScreen.displayInfo("PRESS ENTER\nTO EXIT GAME");
-            }
+    private boolean rewind(int steps) {
+        if (rewind.rewind(world, steps)) {
+            return true;
         }
-    }
+        rewind.rewind(world, rewind.size() - 1);
+        return false;
+    } // rewind
 
     /**
-     * Increases the score based on the specified destroyed asteroid.
+     * Records the input of the next step. Recording stops if it fails.
      * 
-     * @param asteroid the destroyed asteroid
+     * @param input the input of the step
      */
-    private void increaseScore(Asteroid asteroid) {
-        // overall score should be 30000 per round
-        switch (asteroid.getType()) {
-        case LARGE:
-            score += 145;
-            break;
-        case MEDIUM:
-            score += 285;
-            break;
-        case SMALL:
-            score += 500;
-            break;
-        default:
-            throw new IllegalStateException("unhandled enum type");
+    private void record(TickInput input) {
+        try {
+            recorder.record(input);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "recording failed", e);
+            stopRecording();
         }
-    }
+    } // record
 
     /**
-     * Handle the end of a round.
+     * Finishes the recording.
      */
-    private void handleRoundEnd() {
-        // add 20000 score for finishing the round
-        score += 20000;
-        // add one life or 20000 score
-        if (lives == 5) {
-            score += 20000;
-        } else {
-            lives++;
+    private void stopRecording() {
+        try {
+            recorder.close();
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "cannot finish recording", e);
         }
-        // remove everything from the game area
-        projectiles.clear();
-        getChildren().clear();
-        // add initial asteroids
-        spawnInitialAsteroids();
-        update();
-        // re-add player
-        getChildren().add(player.getShape());
-        // new round starts with 5s invulnerability
-        shipInvulnerable = 300;
-        // pause
-        gameScreen.displayLives(lives);
-        gameScreen.displayInfo("PRESS ENTER\nTO CONTINUE");
-        waitingForInteraction = true;
-    }
+        recorder = null;
+    } // stopRecording
 
     /**
-     * Spawns a new projectile from the player's ship.
+     * Copies the current state of the world into a snapshot and hands it over to
+     * the renderer.
+     * 
+     * @param rewinding whether the game just went back in time
      */
-    private void spawnProjectile() {
-        // get the central coordinates of the ship
-        Bounds shipBounds = player.getShape().getBoundsInParent();
-        double scx = shipBounds.getCenterX();
-        double scy = shipBounds.getCenterY();
-        // create a projectile with ~2s display time
-        Projectile p = new Projectile(AsteroidsGame.this, 120);
-        // get the central coordinates of the projectile
-        Bounds pBounds = p.getShape().getBoundsInParent();
-        double pcx = pBounds.getCenterX();
-        double pcy = pBounds.getCenterY();
-        // move the projectile to the center of the ship
-        p.move(new Point2D(scx - pcx, scy - pcy));
-        // move the projectile closer to the front of the ship
-        p.move(player.getDirection().multiply(10));
-        // velocity vector should point to the direction the ship is facing
-        p.setVelocity(player.getDirection().multiply(7));
-        // also rotate the projectile itself
-        p.rotate(player.getDirectionInDegrees());
-        p.update();
-        // manage the projectile
-        getChildren().add(p.getShape());
-        projectiles.add(p);
-    }
+    private void publishSnapshot(boolean rewinding) {
+        WorldSnapshot s = snapshots.back();
+        world.snapshot(s);
+        s.rewinding = rewinding;
+        snapshots.publish();
+    } // publishSnapshot
+
+    /** {@inheritDoc} */
+    @Override
+    protected void render(double alpha) {
+        WorldSnapshot s = snapshots.acquire();
+        // show the last state as it is while paused or going back in time
+        if (s.waiting || s.rewinding) {
+            alpha = 1;
+        }
+        frame++;
+        for (int i = 0; i < s.count; i++) {
+            EntityView view = views.get(s.objects[i]);
+            if (view == null) {
+                view = takeView(s.objects[i]);
+                views.put(view.object, view);
+                shownViews.add(view);
+            }
+            view.frame = frame;
+            view.apply(s, i, alpha);
+        }
+        // hide or remove the nodes of objects that are gone
+        int kept = 0;
+        for (int i = 0; i < shownViews.size(); i++) {
+            EntityView view = shownViews.get(i);
+            if (view.frame == frame) {
+                shownViews.set(kept++, view);
+            } else {
+                views.remove(view.object);
+                retireView(view);
+            }
+        }
+        while (shownViews.size() > kept) {
+            shownViews.remove(shownViews.size() - 1);
+        }
+        // update game screen
+        if (s.score != shownScore) {
+            gameScreen.displayScore(s.score);
+            shownScore = s.score;
+        }
+        if (s.livesShown != shownLives) {
+            gameScreen.displayLives(s.livesShown);
+            shownLives = s.livesShown;
+        }
+        if (!s.info.equals(shownInfo)) {
+            gameScreen.displayInfo(s.info);
+            shownInfo = s.info;
+        }
+        if (s.gameOver && !gameOverShown) {
+            gameOverShown = true;
+            stop();
+            gameScreen.afterGame(s.score);
+        }
+    } // render
 
     /**
-     * Spawns the initial asteroids at the start of a round.
+     * Returns a view for an object that is displayed for the first time: a
+     * hidden view of an object of the same class that is gone, or else a new one,
+     * whose node is added to the scene graph.
+     * 
+     * @param object the object
+     * @return the view
      */
-    private void spawnInitialAsteroids() {
-        for (int i = 0; i < 5; i++) {
-            // create a new large asteroid
-            Asteroid asteroid = new Asteroid(this, AsteroidType.LARGE);
-            // get central coordinates of the game area
-            double centerX = getWidth() / 2;
-            double centerY = getHeight() / 2;
-            double x = centerX;
-            double y = centerY;
-            // try random spawn points until they are not in the central 200x200 box
-            while (Math.abs(x - centerX) < 100 || Math.abs(y - centerY) < 100) {
-                x = rnd.nextDouble(getWidth());
-                y = rnd.nextDouble(getHeight());
-            }
-            asteroid.move(new Point2D(x, y));
-            asteroid.randomizeMovement();
-            // manage the asteroid
-            getChildren().add(asteroid.getShape());
-            asteroids.add(asteroid);
+    private EntityView takeView(AnimatedObject object) {
+        ObjectPool<EntityView> pool = viewPools.get(object.getClass());
+        EntityView view = pool != null ? pool.take() : null;
+        if (view != null) {
+            view.bind(object);
+            viewPoolHits++;
+            return view;
+        }
+        view = new EntityView(object);
+        getChildren().add(view.node);
+        viewPoolMisses++;
+        if (pool == null) {
+            // made now rather than when the first view is retired, which creates nothing
+            viewPools.put(object.getClass(), new ObjectPool<>(VIEW_POOL_SIZE));
         }
-    }
+        return view;
+    } // takeView
 
     /**
-     * Rotates the ship towards the mouse cursor.
+     * Hides the view of an object that is gone and keeps it for reuse, or removes
+     * its node from the scene graph if enough views of its class are kept.
      * 
-     * @param event associated mouse event
+     * @param view the view
      */
-    private void rotateShipToCursor(MouseEvent event) {
-        Point2D click = new Point2D(event.getX(), event.getY());
-        player.rotateToPoint(click, 4.0);
-    }
-}
+    private void retireView(EntityView view) {
+        ObjectPool<EntityView> pool = viewPools.get(view.object.getClass());
+        if (pool.give(view)) {
+            view.retire();
+        } else {
+            getChildren().remove(view.node);
+        }
+    } // retireView
+
+} // AsteroidsGame
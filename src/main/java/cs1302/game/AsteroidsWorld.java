@@ -0,0 +1,1336 @@
+package cs1302.game;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
+
+import cs1302.game.Asteroid.AsteroidType;
+import javafx.geometry.BoundingBox;
+import javafx.geometry.Bounds;
+import javafx.util.Duration;
+
+/**
+ * The rules and state of an Asteroids game: the player's ship, the asteroids,
+ * the projectiles, the score and the lives.
+ * <p>
+ * A world is plain Java and does not need the JavaFX toolkit or a scene graph.
+ * It only advances when {@link #step(TickInput)} is called, so it can be
+ * simulated as fast as the machine allows, e.g., for load tests, bots or
+ * validating a game on a server. {@link AsteroidsGame} displays a world on the
+ * screen and steps it at the game's frame rate.
+ * <p>
+ * A world must only be used by one thread at a time. With many objects, a step
+ * uses the threads of the common {@link ForkJoinPool} as well, see
+ * {@link #setParallelThreshold}.
+ */
+public class AsteroidsWorld {
+
+    /** Time between two shots of the player's ship. */
+    private static final Duration WEAPON_COOLDOWN = Duration.millis(500);
+    /** Display time of projectiles. */
+    private static final Duration PROJECTILE_LIFETIME = Duration.seconds(2);
+    /** Speed of projectiles. */
+    private static final double PROJECTILE_SPEED = 7;
+    /** Time between two missiles of the player's ship. */
+    private static final Duration MISSILE_COOLDOWN = Duration.millis(150);
+    /** Display time of missiles. */
+    private static final Duration MISSILE_LIFETIME = Duration.seconds(4);
+    /** Speed of missiles; slower than projectiles, so they can turn. */
+    private static final double MISSILE_SPEED = 5;
+    /** Aiming with the pointer snaps to asteroids closer than this to it. */
+    private static final double AIM_ASSIST_RADIUS = 40;
+    /** Invulnerability after losing a life or starting a round. */
+    private static final Duration INVULNERABILITY = Duration.seconds(5);
+    /** Cell size of the collision grid, about the size of the largest asteroid. */
+    private static final double GRID_CELL_SIZE = 100;
+    /** Type bits of the objects in the collision grid. */
+    private static final int GRID_ASTEROID = 1;
+    private static final int GRID_SHIP = 2;
+    private static final int GRID_PROJECTILE = 4;
+    /** The ship and lives are shown or hidden for this long while flashing. */
+    private static final Duration FLASH_PERIOD = Duration.millis(1000.0 / 3);
+    /** The most projectiles and missiles, each, kept for reuse. */
+    private static final int PROJECTILE_POOL_SIZE = 64;
+    /** The default of {@link #setParallelThreshold}. */
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 2_000;
+    /** The fewest objects worth a chunk of their own in parallel steps. */
+    private static final int PARALLEL_GRAIN = 256;
+
+    /** The game area. */
+    private final Bounds bounds;
+    /** The game time simulated by one step. */
+    private final Duration timeStep;
+    /** Player's ship. */
+    private Ship player;
+    /** Asteroids. */
+    private final List<Asteroid> asteroids = new ArrayList<>();
+    private final List<Asteroid> asteroidsView = Collections.unmodifiableList(asteroids);
+    /** Projectiles. */
+    private final List<Projectile> projectiles = new ArrayList<>();
+    private final List<Projectile> projectilesView = Collections.unmodifiableList(projectiles);
+    /** Removed projectiles and missiles, kept for reuse. */
+    private final ObjectPool<Projectile> projectilePool = new ObjectPool<>(PROJECTILE_POOL_SIZE);
+    private final ObjectPool<Projectile> missilePool = new ObjectPool<>(PROJECTILE_POOL_SIZE);
+    /** The seed the world was created with. */
+    private final long seed;
+    /** Random number generator; all randomness of the world comes from it. */
+    private final GameRandom rnd;
+    /** Split from {@link #rnd}, only used for the looks of objects. */
+    private final GameRandom textureRnd;
+    /** Number of steps performed. */
+    private long tick = 0;
+    /** Game score. */
+    private int score = 0;
+    /** Lives. */
+    private int lives = 3;
+    /** Whether the game is paused, waiting for user interaction. */
+    private boolean waitingForInteraction;
+    /** Time left from invulnerability, in milliseconds. */
+    private double shipInvulnerable;
+    /** Whether the ship is currently shown. */
+    private boolean shipVisible = true;
+    /** Number of lives currently shown. */
+    private int livesShown;
+    /** Text currently shown in the info area. */
+    private String info = "PRESS ENTER\nTO START";
+    /** Whether the player chose to end the game. */
+    private boolean gameOver;
+    /** Broad phase of the collision detection, refilled every step. */
+    private final SpatialGrid grid;
+    /** Grid id of the ship; projectiles follow it. */
+    private int shipId;
+    /** Index of the projectile destroying each asteroid, or {@code MAX_VALUE}. */
+    private int[] firstHit = new int[16];
+    /** Projectile hits found in the current step. */
+    private int hitCount;
+    private int[] hitAsteroid = new int[16];
+    private int[] hitProjectile = new int[16];
+    private double[] hitTimes = new double[16];
+    /** Whether each projectile already destroyed an asteroid in the current step. */
+    private boolean[] projectileSpent = new boolean[16];
+    /** Whether each asteroid hits the ship. */
+    private boolean[] hitsPlayer = new boolean[16];
+    /** Asteroids split off in the current step. */
+    private final List<Asteroid> asteroidsToAdd = new ArrayList<>();
+    /** Pairs that cannot collide for a while, keyed by motion ids. */
+    private final PairCache pairCache = new PairCache(1024);
+    /** Number of collision passes; objects move once between two passes. */
+    private long collisionPass = 0;
+    /** Whether asteroids bounce off each other. */
+    private boolean asteroidCollisions;
+    /** Broad phase of the collisions between asteroids. */
+    private final SweepAndPrune sweepAndPrune = new SweepAndPrune();
+    /** Nearest-neighbor index of the asteroids, see {@link #asteroidIndex()}. */
+    private final KdTree asteroidIndex = new KdTree();
+    /** Whether {@link #asteroidIndex} matches the current asteroids. */
+    private boolean asteroidIndexValid;
+    /** The position, motion and direction of all objects. */
+    private final EntityStore entities;
+    /** The slots of the asteroids in {@link #entities}, in list order. */
+    private int[] asteroidSlots = new int[64];
+    /** Moves the asteroids and screens the pairs of asteroids that may bounce. */
+    private MotionKernel motionKernel = MotionKernel.getDefault();
+    /** The slots of the pairs found by {@link #sweepAndPrune}, and the pairs kept. */
+    private int[] pairFirst = new int[64];
+    private int[] pairSecond = new int[64];
+    private int[] pairsKept = new int[64];
+    /** Time spent in {@link #motionKernel} so far. */
+    private long motionKernelNanos;
+    /** The changes of the motions of the asteroids, see EntityStore#startMotions. */
+    private byte[] motionChanges = new byte[64];
+    /** The number of objects at which steps run in parallel. */
+    private int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+    /** Whether the current step runs in parallel. */
+    private boolean parallel;
+    /** The number of steps that ran in parallel so far. */
+    private long parallelSteps;
+    private final ParallelLoop parallelLoop =
+            new ParallelLoop(ForkJoinPool.commonPool(), PARALLEL_GRAIN);
+    private final ParallelLoop.Body integrateChunk = this::integrateAsteroids;
+    private final ParallelLoop.Body testChunk = this::testCandidates;
+    private final ParallelLoop.Body transformChunk = this::transformPrepared;
+
+    /**
+     * Pairs of an asteroid and the ship or a projectile found by the grid, as grid
+     * ids, and the result of testing them, see {@link #testCandidates}.
+     */
+    private int candidateCount;
+    private int[] candidateAsteroid = new int[64];
+    private int[] candidateOther = new int[64];
+    private double[] candidateTimes = new double[64];
+    /** The objects of the candidates, by grid id, before a parallel test. */
+    private boolean[] prepared = new boolean[64];
+    private AnimatedObject[] preparedObjects = new AnimatedObject[64];
+    private int preparedCount;
+    private final SpatialGrid.PairVisitor collisionCandidate = this::addCandidate;
+
+    /**
+     * Creates a new world with the specified size and a random seed, ready to
+     * start. The world is waiting for the player to confirm the start.
+     * 
+     * @param width    width of the game area
+     * @param height   height of the game area
+     * @param timeStep the game time simulated by one step
+     * @throws NullPointerException if {@code timeStep} is null
+     */
+    public AsteroidsWorld(double width, double height, Duration timeStep) {
+        this(width, height, timeStep, ThreadLocalRandom.current().nextLong());
+    }
+
+    /**
+     * Creates a new world with the specified size and seed, ready to start. The
+     * world is waiting for the player to confirm the start. Two worlds created
+     * with the same arguments and stepped with the same input are identical.
+     * 
+     * @param width    width of the game area
+     * @param height   height of the game area
+     * @param timeStep the game time simulated by one step
+     * @param seed     the seed of the random number generator
+     * @throws NullPointerException if {@code timeStep} is null
+     */
+    public AsteroidsWorld(double width, double height, Duration timeStep, long seed) {
+        Objects.requireNonNull(timeStep);
+        this.bounds = new BoundingBox(0, 0, width, height);
+        this.grid = new SpatialGrid(width, height, GRID_CELL_SIZE);
+        this.entities = new EntityStore(width, height);
+        this.timeStep = timeStep;
+        this.seed = seed;
+        this.rnd = new GameRandom(seed);
+        this.textureRnd = rnd.split();
+        this.player = new Ship(this);
+        player.setMaxSpeed(5);
+        player.setWeaponCooldown(WEAPON_COOLDOWN);
+        player.setMissileCooldown(MISSILE_COOLDOWN);
+        // move to the center, facing up
+        player.move(width / 2 - 15, height / 2 - 15);
+        player.rotate(-90.0);
+        // spawn asteroids
+        spawnInitialAsteroids();
+        // call updates to put everything in place
+        player.update();
+        updateAsteroids();
+        livesShown = lives;
+        // pause the game
+        waitingForInteraction = true;
+    }
+
+    /**
+     * Returns the game area.
+     * 
+     * @return the bounds of the game area
+     */
+    public Bounds getBounds() {
+        return bounds;
+    }
+
+    /**
+     * Returns the game time simulated by one step.
+     * 
+     * @return the duration of one step
+     */
+    public Duration getTimeStep() {
+        return timeStep;
+    }
+
+    /**
+     * Returns the seed this world was created with.
+     * 
+     * @return the seed
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Returns the random number generator of this world. Objects in this world
+     * must not use any other source of randomness.
+     * 
+     * @return the random number generator
+     */
+    GameRandom getRandom() {
+        return rnd;
+    }
+
+    /**
+     * Returns the random number generator for things that do not affect the game,
+     * such as textures. Using a separate generator lets the looks of objects
+     * change without changing the outcome of a recorded game.
+     * 
+     * @return the random number generator
+     */
+    GameRandom getTextureRandom() {
+        return textureRnd;
+    }
+
+    /**
+     * Returns the number of asteroid-ship and asteroid-projectile pairs the
+     * broad phase of the collision detection found so far.
+     * 
+     * @return the number of pairs
+     */
+    public long getPairChecks() {
+        return pairCache.getQueries();
+    }
+
+    /**
+     * Returns the number of pairs counted by {@link #getPairChecks()} that were
+     * skipped because they could not collide yet.
+     * 
+     * @return the number of skipped pairs
+     */
+    public long getPairsCulled() {
+        return pairCache.getHits();
+    }
+
+    /**
+     * Sets the kernel that moves the asteroids. All kernels give the same
+     * results; the default is {@link MotionKernel#getDefault()}.
+     * 
+     * @param motionKernel the kernel
+     * @throws NullPointerException if {@code motionKernel} is null
+     */
+    public void setMotionKernel(MotionKernel motionKernel) {
+        this.motionKernel = Objects.requireNonNull(motionKernel);
+    }
+
+    /**
+     * Returns the kernel that moves the asteroids.
+     * 
+     * @return the kernel
+     */
+    public MotionKernel getMotionKernel() {
+        return motionKernel;
+    }
+
+    /**
+     * Returns the time spent in the motion kernel so far.
+     * 
+     * @return the time in nanoseconds
+     */
+    public long getMotionKernelNanos() {
+        return motionKernelNanos;
+    }
+
+    /**
+     * Sets the number of asteroids and projectiles at which steps run in
+     * parallel. Moving the asteroids and testing the pairs found by the broad
+     * phase of the collision detection is then split into chunks for the threads
+     * of the common {@link ForkJoinPool}; everything that depends on the order of
+     * the objects, like hits, splits and removals, is still done by the thread
+     * calling {@link #step}, in the same order as otherwise, so the results do
+     * not depend on the threshold. Small worlds do not pay for the threads. The
+     * default is {@link #DEFAULT_PARALLEL_THRESHOLD}.
+     * 
+     * @param parallelThreshold the number of objects; 0 to always run in
+     *                          parallel, {@link Integer#MAX_VALUE} to never
+     * @throws IllegalArgumentException if {@code parallelThreshold} is negative
+     */
+    public void setParallelThreshold(int parallelThreshold) {
+        if (parallelThreshold < 0) {
+            throw new IllegalArgumentException("negative threshold: " + parallelThreshold);
+        }
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    /**
+     * Returns the number of asteroids and projectiles at which steps run in
+     * parallel.
+     * 
+     * @return the threshold
+     */
+    public int getParallelThreshold() {
+        return parallelThreshold;
+    }
+
+    /**
+     * Returns the number of steps that ran in parallel so far.
+     * 
+     * @return the number of steps
+     */
+    public long getParallelSteps() {
+        return parallelSteps;
+    }
+
+    /**
+     * Sets whether asteroids bounce off each other. This is a separate physics
+     * mode; by default, asteroids pass through each other.
+     * 
+     * @param asteroidCollisions whether asteroids collide
+     */
+    public void setAsteroidCollisions(boolean asteroidCollisions) {
+        this.asteroidCollisions = asteroidCollisions;
+    }
+
+    /**
+     * Returns whether asteroids bounce off each other.
+     * 
+     * @return {@code true} if asteroids collide
+     */
+    public boolean hasAsteroidCollisions() {
+        return asteroidCollisions;
+    }
+
+    /**
+     * Adds asteroids of the specified type at random positions outside the
+     * central 200x200 box, e.g., to test the game with many asteroids.
+     * 
+     * @param count the number of asteroids
+     * @param type  the type of the asteroids
+     */
+    public void spawnAsteroids(int count, AsteroidType type) {
+        for (int i = 0; i < count; i++) {
+            // create a new asteroid
+            Asteroid asteroid = new Asteroid(this, type);
+            // get central coordinates of the game area
+            double width = bounds.getWidth();
+            double height = bounds.getHeight();
+            double centerX = width / 2;
+            double centerY = height / 2;
+            double x = centerX;
+            double y = centerY;
+            // try random spawn points until they are not in the central 200x200 box
+            while (Math.abs(x - centerX) < 100 || Math.abs(y - centerY) < 100) {
+                x = rnd.nextDouble(width);
+                y = rnd.nextDouble(height);
+            }
+            asteroid.move(x, y);
+            asteroid.randomizeMovement();
+            // manage the asteroid
+            asteroids.add(asteroid);
+        }
+        asteroidIndexValid = false;
+        reserveBuffers();
+    }
+
+    /**
+     * Returns up to {@code k} asteroids closest to the specified point, nearest
+     * first. Distances are measured between centers.
+     * 
+     * @param x the x coordinate of the point
+     * @param y the y coordinate of the point
+     * @param k the maximum number of asteroids
+     * @return the asteroids
+     */
+    public List<Asteroid> findNearestAsteroids(double x, double y, int k) {
+        KdTree index = asteroidIndex();
+        int count = index.nearest(x, y, k);
+        List<Asteroid> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(asteroids.get(index.get(i)));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the asteroids whose centers are closer to the specified point than
+     * the specified radius, nearest first.
+     * 
+     * @param x      the x coordinate of the point
+     * @param y      the y coordinate of the point
+     * @param radius the radius
+     * @return the asteroids
+     */
+    public List<Asteroid> findAsteroidsWithin(double x, double y, double radius) {
+        KdTree index = asteroidIndex();
+        int count = index.within(x, y, radius);
+        List<Asteroid> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(asteroids.get(index.get(i)));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the asteroid closest to the specified point, without allocating.
+     * 
+     * @param x the x coordinate of the point
+     * @param y the y coordinate of the point
+     * @return the asteroid, or {@code null} if there are none
+     */
+    Asteroid findNearestAsteroid(double x, double y) {
+        KdTree index = asteroidIndex();
+        return index.nearest(x, y, 1) == 0 ? null : asteroids.get(index.get(0));
+    }
+
+    /**
+     * Returns the nearest-neighbor index of the asteroids, rebuilding it if the
+     * asteroids moved since it was built, i.e., at most once per step.
+     * 
+     * @return the index
+     */
+    private KdTree asteroidIndex() {
+        if (!asteroidIndexValid) {
+            asteroidIndex.build(asteroids);
+            asteroidIndexValid = true;
+        }
+        return asteroidIndex;
+    }
+
+    /**
+     * Returns the store holding the position, motion and direction of the objects
+     * in this world.
+     * 
+     * @return the store
+     */
+    EntityStore entities() {
+        return entities;
+    }
+
+    /**
+     * Removes an object of this world from {@link #entities}. The object must not
+     * be used afterwards.
+     * 
+     * @param object the object
+     */
+    private void release(AnimatedObject object) {
+        entities.remove(object.slot);
+        object.slot = -1;
+    }
+
+    /**
+     * Removes a projectile from {@link #entities} and keeps it for reuse by
+     * {@link #createProjectile}, if there is room in its pool.
+     * 
+     * @param p the projectile
+     */
+    private void releaseProjectile(Projectile p) {
+        release(p);
+        (p.getKind() == Missile.KIND ? missilePool : projectilePool).give(p);
+    }
+
+    /**
+     * Returns a new projectile of the specified kind, see
+     * {@link Projectile#getKind()}. A projectile removed earlier is reused if
+     * there is one, so firing all the time does not create garbage.
+     * 
+     * @param kind        the kind
+     * @param displayTime the display time
+     * @return the projectile
+     */
+    Projectile createProjectile(byte kind, Duration displayTime) {
+        boolean missile = kind == Missile.KIND;
+        Projectile p = (missile ? missilePool : projectilePool).take();
+        if (p == null) {
+            return missile ? new Missile(this, displayTime) : new Projectile(this, displayTime);
+        }
+        p.reset(displayTime);
+        return p;
+    }
+
+    /**
+     * Returns the pool of plain projectiles that were removed from this world, to
+     * be reused when the ship fires.
+     * 
+     * @return the pool
+     */
+    public ObjectPool<Projectile> getProjectilePool() {
+        return projectilePool;
+    }
+
+    /**
+     * Returns the pool of missiles that were removed from this world, to be
+     * reused when the ship launches a missile.
+     * 
+     * @return the pool
+     */
+    public ObjectPool<Projectile> getMissilePool() {
+        return missilePool;
+    }
+
+    /**
+     * Returns the number of steps performed so far.
+     * 
+     * @return the number of steps
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * Returns the player's ship.
+     * 
+     * @return the ship
+     */
+    public Ship getPlayer() {
+        return player;
+    }
+
+    /**
+     * Returns the asteroids.
+     * 
+     * @return an unmodifiable view of the asteroids
+     */
+    public List<Asteroid> getAsteroids() {
+        return asteroidsView;
+    }
+
+    /**
+     * Returns the projectiles.
+     * 
+     * @return an unmodifiable view of the projectiles
+     */
+    public List<Projectile> getProjectiles() {
+        return projectilesView;
+    }
+
+    /**
+     * Returns the score.
+     * 
+     * @return the score
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * Returns the number of lives left.
+     * 
+     * @return the lives
+     */
+    public int getLives() {
+        return lives;
+    }
+
+    /**
+     * Returns whether the game is paused until the player confirms.
+     * 
+     * @return {@code true} if waiting for the player, {@code false} otherwise
+     */
+    public boolean isWaitingForInteraction() {
+        return waitingForInteraction;
+    }
+
+    /**
+     * Returns whether the game has ended: the player confirmed after losing the
+     * last life.
+     * 
+     * @return {@code true} if the game is over, {@code false} otherwise
+     */
+    public boolean isGameOver() {
+        return gameOver;
+    }
+
+    /**
+     * Advances the game by one step.
+     * 
+     * @param input the input of the step
+     */
+    public void step(TickInput input) {
+        tick++;
+        // handle unpause after the player died
+        if (waitingForInteraction) {
+            if (lives == 0) {
+                // no more lives left, end the game
+                if (input.isActive(TickInput.CONFIRM)) {
+                    gameOver = true;
+                }
+            } else {
+                // continue
+                if (input.isActive(TickInput.CONFIRM)) {
+                    waitingForInteraction = false;
+                    info = "";
+                }
+            }
+            return;
+        }
+        // end round if there are no asteroids left
+        if (asteroids.isEmpty()) {
+            handleRoundEnd();
+            return;
+        }
+        // handle controls
+        handleShipControls(input);
+        // update objects
+        player.update();
+        updateAsteroids();
+        updateProjectiles();
+        shipInvulnerable = Math.max(0, shipInvulnerable - timeStep.toMillis());
+        // flash the ship and the lives during invulnerability
+        if (shipInvulnerable > 0) {
+            if ((int) (shipInvulnerable / FLASH_PERIOD.toMillis()) % 2 == 0) {
+                shipVisible = true;
+                livesShown = lives;
+            } else {
+                shipVisible = false;
+                livesShown = 0;
+            }
+        }
+    } // step
+
+    /**
+     * Returns the number of bytes {@link #save} currently writes.
+     * 
+     * @return the size of the state of this world
+     */
+    public int getStateSize() {
+        int size = 3 * Long.BYTES + 3 * Integer.BYTES + Double.BYTES + 3 + Short.BYTES
+                + info.length() * Character.BYTES + 2 * Integer.BYTES
+                + player.getStateSize();
+        // indexed loops, so saving every step does not even allocate iterators
+        for (int i = 0; i < asteroids.size(); i++) {
+            size += asteroids.get(i).getStateSize();
+        }
+        for (int i = 0; i < projectiles.size(); i++) {
+            size += projectiles.get(i).getStateSize();
+        }
+        return size;
+    }
+
+    /**
+     * Writes the complete state of this world to the specified buffer. The
+     * state does not include the size, time step and seed of the world, which
+     * never change. Restoring the state in a world with the same size and time
+     * step continues exactly the same game. This method does not allocate, so it
+     * can be called every step.
+     * 
+     * @param buffer the buffer; it must have at least {@link #getStateSize()}
+     *               bytes remaining
+     * @throws java.nio.BufferOverflowException if the buffer is too small
+     */
+    public void save(ByteBuffer buffer) {
+        buffer.putLong(rnd.getState()).putLong(textureRnd.getState()).putLong(tick);
+        buffer.putInt(score).putInt(lives).putInt(livesShown);
+        buffer.putDouble(shipInvulnerable);
+        buffer.put((byte) (waitingForInteraction ? 1 : 0));
+        buffer.put((byte) (shipVisible ? 1 : 0));
+        buffer.put((byte) (gameOver ? 1 : 0));
+        buffer.putShort((short) info.length());
+        for (int i = 0; i < info.length(); i++) {
+            buffer.putChar(info.charAt(i));
+        }
+        player.save(buffer);
+        buffer.putInt(asteroids.size());
+        for (int i = 0; i < asteroids.size(); i++) {
+            asteroids.get(i).save(buffer);
+        }
+        buffer.putInt(projectiles.size());
+        for (int i = 0; i < projectiles.size(); i++) {
+            projectiles.get(i).save(buffer);
+        }
+    }
+
+    /**
+     * Replaces the state of this world with the state written by {@link #save}.
+     * The player's ship stays the same object; all asteroids and projectiles are
+     * replaced by new objects.
+     * 
+     * @param buffer the buffer
+     * @throws java.nio.BufferUnderflowException if the buffer does not contain a
+     *                                          complete state
+     */
+    public void restore(ByteBuffer buffer) {
+        pairCache.clear();
+        asteroidIndexValid = false;
+        rnd.setState(buffer.getLong());
+        textureRnd.setState(buffer.getLong());
+        tick = buffer.getLong();
+        score = buffer.getInt();
+        lives = buffer.getInt();
+        livesShown = buffer.getInt();
+        shipInvulnerable = buffer.getDouble();
+        waitingForInteraction = buffer.get() != 0;
+        shipVisible = buffer.get() != 0;
+        gameOver = buffer.get() != 0;
+        char[] text = new char[buffer.getShort()];
+        for (int i = 0; i < text.length; i++) {
+            text[i] = buffer.getChar();
+        }
+        info = new String(text);
+        player.restore(buffer);
+        for (int i = 0; i < asteroids.size(); i++) {
+            release(asteroids.get(i));
+        }
+        asteroids.clear();
+        for (int i = buffer.getInt(); i > 0; i--) {
+            asteroids.add(Asteroid.load(this, buffer));
+        }
+        for (int i = 0; i < projectiles.size(); i++) {
+            releaseProjectile(projectiles.get(i));
+        }
+        projectiles.clear();
+        for (int i = buffer.getInt(); i > 0; i--) {
+            projectiles.add(Projectile.load(this, buffer));
+        }
+        reserveBuffers();
+    }
+
+    /**
+     * Copies the current state of this world into the specified snapshot.
+     * 
+     * @param s the snapshot
+     */
+    void snapshot(WorldSnapshot s) {
+        s.clear();
+        player.addTo(s, shipVisible);
+        // indexed loops, so publishing every step does not allocate iterators
+        for (int i = 0; i < asteroids.size(); i++) {
+            asteroids.get(i).addTo(s, true);
+        }
+        for (int i = 0; i < projectiles.size(); i++) {
+            projectiles.get(i).addTo(s, true);
+        }
+        s.score = score;
+        s.livesShown = livesShown;
+        s.info = info;
+        s.waiting = waitingForInteraction;
+        s.gameOver = gameOver;
+    }
+
+    /**
+     * Updates the asteroids.
+     */
+    private void updateAsteroids() {
+        int count = asteroids.size();
+        parallel = count + projectiles.size() >= parallelThreshold;
+        if (parallel) {
+            parallelSteps++;
+        }
+        grid.clear();
+        reserveBuffers();
+        // asteroids only turn and move, see Asteroid.update(), so they are moved
+        // all at once
+        for (int i = 0; i < count; i++) {
+            asteroidSlots[i] = asteroids.get(i).slot;
+        }
+        long start = System.nanoTime();
+        if (parallel) {
+            parallelLoop.run(count, integrateChunk);
+        } else {
+            integrateAsteroids(0, count);
+        }
+        motionKernelNanos += System.nanoTime() - start;
+        // motion ids depend on the order of the asteroids
+        for (int i = 0; i < count; i++) {
+            entities.startMotions(asteroidSlots[i], motionChanges[i]);
+        }
+        if (asteroidCollisions) {
+            bounceAsteroids();
+        }
+        for (int i = 0; i < count; i++) {
+            grid.add(asteroids.get(i), GRID_ASTEROID);
+        }
+        shipId = grid.add(player, GRID_SHIP);
+        for (int i = 0; i < projectiles.size(); i++) {
+            grid.add(projectiles.get(i), GRID_PROJECTILE);
+        }
+        Arrays.fill(firstHit, 0, count, Integer.MAX_VALUE);
+        Arrays.fill(hitsPlayer, 0, count, false);
+        hitCount = 0;
+        collisionPass++;
+        // asteroid pairs are never checked
+        candidateCount = 0;
+        grid.forEachPair(GRID_ASTEROID, GRID_SHIP | GRID_PROJECTILE, collisionCandidate);
+        if (parallel) {
+            prepareCandidates();
+            parallelLoop.run(candidateCount, testChunk);
+        } else {
+            testCandidates(0, candidateCount);
+        }
+        recordCollisions();
+        resolveHits();
+
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            Asteroid asteroid = asteroids.get(i);
+            // collision with player
+            if (hitsPlayer[i]) {
+                handlePlayerCollision();
+            }
+            // collision with a projectile
+            if (firstHit[i] == Integer.MAX_VALUE) {
+                asteroids.set(kept++, asteroid);
+                continue;
+            }
+            Projectile p = projectiles.get(firstHit[i]);
+            // split asteroid
+            List<Asteroid> newAsteroids = asteroid.split();
+            // get the central coordinates of the asteroid
+            double cx = asteroid.getCenterX();
+            double cy = asteroid.getCenterY();
+            for (Asteroid newAsteroid : newAsteroids) {
+                // move it to the position of the destroyed asteroid
+                newAsteroid.move(cx, cy);
+                // move it a bit to a random direction
+                newAsteroid.move(rnd.nextDouble(10) - 5, rnd.nextDouble(10) - 5);
+                newAsteroid.randomizeMovement();
+            }
+            // projectile will disappear in the next update
+            p.setTimeLeft(Duration.ZERO);
+            increaseScore(asteroid);
+            release(asteroid);
+            // new asteroids go after the remaining ones
+            asteroidsToAdd.addAll(newAsteroids);
+        }
+        // remove destroyed asteroids and add the new ones, without the views and
+        // copies of subList() and addAll()
+        truncate(asteroids, kept);
+        for (int i = 0; i < asteroidsToAdd.size(); i++) {
+            asteroids.add(asteroidsToAdd.get(i));
+        }
+        asteroidsToAdd.clear();
+        asteroidIndexValid = false;
+        // grow the buffers now, not in the next step
+        reserveBuffers();
+    }
+
+    /**
+     * Grows the buffers of a step to the current number of objects. It is called
+     * whenever objects are added, so a step that adds no objects does not allocate.
+     */
+    private void reserveBuffers() {
+        int count = asteroids.size();
+        if (asteroidSlots.length < count) {
+            asteroidSlots = new int[Math.max(count, asteroidSlots.length * 2)];
+            motionChanges = new byte[asteroidSlots.length];
+        }
+        if (firstHit.length < count) {
+            firstHit = new int[Math.max(count, firstHit.length * 2)];
+            hitsPlayer = new boolean[firstHit.length];
+        }
+        if (projectileSpent.length < projectiles.size()) {
+            projectileSpent = new boolean[Math.max(projectiles.size(),
+                    projectileSpent.length * 2)];
+        }
+        // and the ship
+        int objects = count + projectiles.size() + 1;
+        if (prepared.length < objects) {
+            prepared = new boolean[Math.max(objects, prepared.length * 2)];
+            preparedObjects = new AnimatedObject[prepared.length];
+        }
+        grid.reserve(objects);
+        asteroidIndex.reserve(count);
+    }
+
+    /**
+     * Moves the asteroids from {@code from} to {@code to - 1} with the motion
+     * kernel, leaving the motion ids to the caller.
+     *
+     * @param from the index of the first asteroid
+     * @param to   the index after the last one
+     */
+    private void integrateAsteroids(int from, int to) {
+        motionKernel.integrate(entities, asteroidSlots, from, to, motionChanges);
+    }
+
+    /**
+     * Adds a pair of an asteroid and the ship or a projectile found by the grid
+     * to the candidates, unless the pair cache tells it cannot collide yet.
+     *
+     * @param a the grid id of the asteroid, which is also its index
+     * @param b the grid id of the ship or projectile
+     */
+    private void addCandidate(int a, int b) {
+        if (pairCache.skip(grid.get(a).getMotionId(), grid.get(b).getMotionId(), collisionPass)) {
+            return;
+        }
+        if (candidateCount == candidateAsteroid.length) {
+            candidateAsteroid = Arrays.copyOf(candidateAsteroid, candidateCount * 2);
+            candidateOther = Arrays.copyOf(candidateOther, candidateCount * 2);
+            candidateTimes = Arrays.copyOf(candidateTimes, candidateCount * 2);
+        }
+        candidateAsteroid[candidateCount] = a;
+        candidateOther[candidateCount] = b;
+        candidateCount++;
+    }
+
+    /**
+     * Tests whether the candidates from {@code from} to {@code to - 1} actually
+     * collide. The time of a hit by a projectile, see {@link Projectile#hitTime},
+     * or 1 for a collision with the ship, is stored in {@link #candidateTimes};
+     * {@code NaN} if there is none. Only the results of the candidates in the
+     * range are written, and the world vertices of the objects must be up to
+     * date if several ranges are tested at the same time, see
+     * {@link #prepareCandidates}.
+     *
+     * @param from the first candidate
+     * @param to   the candidate after the last one
+     */
+    private void testCandidates(int from, int to) {
+        for (int k = from; k < to; k++) {
+            AnimatedObject asteroid = grid.get(candidateAsteroid[k]);
+            int b = candidateOther[k];
+            if (b == shipId) {
+                candidateTimes[k] = asteroid.collidesWith(player) ? 1 : Double.NaN;
+            } else {
+                // projectiles are added after the ship, in list order
+                candidateTimes[k] = projectiles.get(b - shipId - 1).hitTime(asteroid);
+            }
+        }
+    }
+
+    /**
+     * Computes the world vertices of all objects of the candidates, so testing
+     * them in parallel only reads the objects.
+     */
+    private void prepareCandidates() {
+        int size = grid.size();
+        Arrays.fill(prepared, 0, size, false);
+        preparedCount = 0;
+        for (int k = 0; k < candidateCount; k++) {
+            prepare(candidateAsteroid[k]);
+            prepare(candidateOther[k]);
+        }
+        parallelLoop.run(preparedCount, transformChunk);
+        Arrays.fill(preparedObjects, 0, preparedCount, null);
+    }
+
+    /**
+     * Adds an object to the objects whose world vertices are computed before a
+     * parallel test, unless it was added already.
+     *
+     * @param id the grid id of the object
+     */
+    private void prepare(int id) {
+        if (!prepared[id]) {
+            prepared[id] = true;
+            preparedObjects[preparedCount++] = grid.get(id);
+        }
+    }
+
+    /**
+     * Computes the world vertices of the prepared objects from {@code from} to
+     * {@code to - 1}.
+     *
+     * @param from the first object
+     * @param to   the object after the last one
+     */
+    private void transformPrepared(int from, int to) {
+        for (int i = from; i < to; i++) {
+            preparedObjects[i].transform();
+        }
+    }
+
+    /**
+     * Records the collisions of the tested candidates, in the order the grid
+     * found them, and remembers the pairs that did not collide.
+     */
+    private void recordCollisions() {
+        for (int k = 0; k < candidateCount; k++) {
+            int a = candidateAsteroid[k];
+            int b = candidateOther[k];
+            double t = candidateTimes[k];
+            if (Double.isNaN(t)) {
+                cachePair(grid.get(a), grid.get(b));
+            } else if (b == shipId) {
+                hitsPlayer[a] = true;
+            } else {
+                if (hitCount == hitTimes.length) {
+                    hitAsteroid = Arrays.copyOf(hitAsteroid, hitCount * 2);
+                    hitProjectile = Arrays.copyOf(hitProjectile, hitCount * 2);
+                    hitTimes = Arrays.copyOf(hitTimes, hitCount * 2);
+                }
+                hitAsteroid[hitCount] = a;
+                hitProjectile[hitCount] = b - shipId - 1;
+                hitTimes[hitCount] = t;
+                hitCount++;
+            }
+        }
+    }
+
+    /**
+     * Lets colliding asteroids bounce off each other. The collisions are elastic,
+     * along the line between the centers, and only change the velocities of
+     * asteroids moving towards each other. Pairs are handled in order of their
+     * list indices.
+     */
+    private void bounceAsteroids() {
+        int pairs = sweepAndPrune.update(asteroids);
+        if (pairFirst.length < pairs) {
+            pairFirst = new int[Math.max(pairs, pairFirst.length * 2)];
+            pairSecond = new int[pairFirst.length];
+            pairsKept = new int[pairFirst.length];
+        }
+        for (int k = 0; k < pairs; k++) {
+            pairFirst[k] = asteroidSlots[sweepAndPrune.getFirst(k)];
+            pairSecond[k] = asteroidSlots[sweepAndPrune.getSecond(k)];
+        }
+        // only pairs whose bounding circles may overlap are looked at
+        long start = System.nanoTime();
+        int kept = motionKernel.screen(entities, pairFirst, pairSecond, pairs, pairsKept);
+        motionKernelNanos += System.nanoTime() - start;
+        for (int n = 0; n < kept; n++) {
+            int k = pairsKept[n];
+            Asteroid a = asteroids.get(sweepAndPrune.getFirst(k));
+            Asteroid b = asteroids.get(sweepAndPrune.getSecond(k));
+            double nx = b.getCenterX() - a.getCenterX();
+            double ny = b.getCenterY() - a.getCenterY();
+            double distance = Math.hypot(nx, ny);
+            if (distance == 0 || distance >= a.getRadius() + b.getRadius()) {
+                continue;
+            }
+            nx /= distance;
+            ny /= distance;
+            double vax = a.getVelocityX();
+            double vay = a.getVelocityY();
+            double vbx = b.getVelocityX();
+            double vby = b.getVelocityY();
+            // speed at which a and b approach each other along the normal
+            double closing = (vax - vbx) * nx + (vay - vby) * ny;
+            // the polygons are only tested for pairs that would bounce
+            if (closing <= 0 || !a.collidesWith(b)) {
+                continue;
+            }
+            double ma = a.getMass();
+            double mb = b.getMass();
+            double impulse = 2 * closing / (1 / ma + 1 / mb);
+            a.bounce(vax - impulse / ma * nx, vay - impulse / ma * ny);
+            b.bounce(vbx + impulse / mb * nx, vby + impulse / mb * ny);
+        }
+    }
+
+    /**
+     * Remembers how many collision passes two objects that did not collide can
+     * skip, given how far apart their bounding circles are and how fast they
+     * can close the gap.
+     *
+     * @param a the first object
+     * @param b the second object
+     */
+    private void cachePair(AnimatedObject a, AnimatedObject b) {
+        double gap = Math.hypot(a.getCenterX() - b.getCenterX(), a.getCenterY() - b.getCenterY())
+                - a.getRadius() - b.getRadius();
+        // one pass less, for rounding
+        double passes = Math.floor(gap / (a.getMaxSpeed() + b.getMaxSpeed())) - 1;
+        if (passes >= 1) {
+            pairCache.put(a.getMotionId(), b.getMotionId(), collisionPass,
+                    collisionPass + (long) Math.min(passes, Integer.MAX_VALUE));
+        }
+    }
+
+    /**
+     * Decides which projectile destroys which asteroid. Hits are taken in the
+     * order they happened during the step; each projectile destroys only the
+     * first asteroid it hits, and each asteroid is destroyed by the first
+     * projectile that hits it. Hits at the same time are taken in projectile,
+     * then asteroid order.
+     */
+    private void resolveHits() {
+        int count = projectiles.size();
+        Arrays.fill(projectileSpent, 0, count, false);
+        // insertion sort, there are only a few hits in a step
+        for (int i = 1; i < hitCount; i++) {
+            int a = hitAsteroid[i];
+            int p = hitProjectile[i];
+            double t = hitTimes[i];
+            int j = i - 1;
+            while (j >= 0 && (hitTimes[j] > t || hitTimes[j] == t
+                    && (hitProjectile[j] > p || hitProjectile[j] == p && hitAsteroid[j] > a))) {
+                hitAsteroid[j + 1] = hitAsteroid[j];
+                hitProjectile[j + 1] = hitProjectile[j];
+                hitTimes[j + 1] = hitTimes[j];
+                j--;
+            }
+            hitAsteroid[j + 1] = a;
+            hitProjectile[j + 1] = p;
+            hitTimes[j + 1] = t;
+        }
+        for (int i = 0; i < hitCount; i++) {
+            int a = hitAsteroid[i];
+            int p = hitProjectile[i];
+            if (firstHit[a] == Integer.MAX_VALUE && !projectileSpent[p]) {
+                firstHit[a] = p;
+                projectileSpent[p] = true;
+            }
+        }
+    }
+
+    /**
+     * Updates the projectiles.
+     */
+    private void updateProjectiles() {
+        int count = projectiles.size();
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            Projectile p = projectiles.get(i);
+            // remove projectiles with no display time left
+            boolean expired = p.isExpired();
+            p.update();
+            if (expired) {
+                releaseProjectile(p);
+            } else {
+                // the order of the projectiles decides hits at the same time
+                projectiles.set(kept++, p);
+            }
+        }
+        truncate(projectiles, kept);
+    }
+
+    /**
+     * Removes the elements of a list from the specified index on, from the last
+     * one, so nothing is moved or allocated.
+     * 
+     * @param list the list
+     * @param size the new size of the list
+     */
+    private static void truncate(List<?> list, int size) {
+        for (int i = list.size() - 1; i >= size; i--) {
+            list.remove(i);
+        }
+    }
+
+    /**
+     * Handles ship control actions.
+     * 
+     * @param input the input of the current step
+     */
+    private void handleShipControls(TickInput input) {
+        // fire weapon if the ship is not invulnerable
+        if (shipInvulnerable == 0 && input.isActive(TickInput.FIRE)) {
+            if (player.fire()) {
+                launch(createProjectile(Projectile.KIND, PROJECTILE_LIFETIME), PROJECTILE_SPEED);
+            }
+        }
+        if (shipInvulnerable == 0 && input.isActive(TickInput.LAUNCH)) {
+            if (player.launchMissile()) {
+                launch(createProjectile(Missile.KIND, MISSILE_LIFETIME), MISSILE_SPEED);
+            }
+        }
+        // rotate from keys, or else towards the mouse cursor
+        if (input.isActive(TickInput.ROTATE_RIGHT)) {
+            player.rotate(4.0);
+        } else if (input.isActive(TickInput.ROTATE_LEFT)) {
+            player.rotate(-4.0);
+        } else if (input.isActive(TickInput.AIM)) {
+            rotateShipToCursor(input.getPointerX(), input.getPointerY(),
+                    input.isActive(TickInput.AIM_ASSIST));
+        }
+        // apply thrust
+        player.setEnginesOn(input.isActive(TickInput.THRUST));
+    }
+
+    /**
+     * Handles player collision.
+     */
+    private void handlePlayerCollision() {
+        // several asteroids may hit the ship in the same step
+        if (shipInvulnerable == 0 && lives > 0) {
+            lives--;
+            if (lives > 0) {
+                // 5s invulnerability after death
+                shipInvulnerable = INVULNERABILITY.toMillis();
+                // pause and wait for player interaction
+                waitingForInteraction = true;
+                info = "PRESS ENTER\nTO CONTINUE";
+            } else {
+                // pause and wait for player interaction
+                waitingForInteraction = true;
+                info = "PRESS ENTER\nTO EXIT GAME";
+            }
+        }
+    }
+
+    /**
+     * Increases the score based on the specified destroyed asteroid.
+     * 
+     * @param asteroid the destroyed asteroid
+     */
+    private void increaseScore(Asteroid asteroid) {
+        // overall score should be 30000 per round
+        switch (asteroid.getType()) {
+        case LARGE:
+            score += 145;
+            break;
+        case MEDIUM:
+            score += 285;
+            break;
+        case SMALL:
+            score += 500;
+            break;
+        default:
+            throw new IllegalStateException("unhandled enum type");
+        }
+    }
+
+    /**
+     * Handle the end of a round.
+     */
+    private void handleRoundEnd() {
+        // add 20000 score for finishing the round
+        score += 20000;
+        // add one life or 20000 score
+        if (lives == 5) {
+            score += 20000;
+        } else {
+            lives++;
+        }
+        // remove everything from the game area
+        for (int i = 0; i < projectiles.size(); i++) {
+            releaseProjectile(projectiles.get(i));
+        }
+        projectiles.clear();
+        // add initial asteroids
+        spawnInitialAsteroids();
+        // call updates to put everything in place
+        player.update();
+        updateAsteroids();
+        // new round starts with 5s invulnerability
+        shipInvulnerable = INVULNERABILITY.toMillis();
+        // pause
+        livesShown = lives;
+        info = "PRESS ENTER\nTO CONTINUE";
+        waitingForInteraction = true;
+    }
+
+    /**
+     * Launches a new projectile from the player's ship.
+     * 
+     * @param p     the projectile
+     * @param speed the speed of the projectile
+     */
+    private void launch(Projectile p, double speed) {
+        // get the central coordinates of the ship
+        double scx = player.getCenterX();
+        double scy = player.getCenterY();
+        // get the central coordinates of the projectile
+        double pcx = p.getCenterX();
+        double pcy = p.getCenterY();
+        // move the projectile to the center of the ship
+        p.move(scx - pcx, scy - pcy);
+        // move the projectile closer to the front of the ship
+        p.move(player.getDirectionX() * 10, player.getDirectionY() * 10);
+        // velocity vector should point to the direction the ship is facing
+        p.setVelocity(player.getDirectionX() * speed, player.getDirectionY() * speed);
+        // projectiles keep their speed, so it is also their max speed
+        double vx = p.getVelocityX();
+        double vy = p.getVelocityY();
+        p.setMaxSpeed(Math.sqrt(vx * vx + vy * vy));
+        // also rotate the projectile itself
+        p.rotate(player.getDirectionInDegrees());
+        p.update();
+        // manage the projectile
+        projectiles.add(p);
+    }
+
+    /**
+     * Spawns the initial asteroids at the start of a round.
+     */
+    private void spawnInitialAsteroids() {
+        spawnAsteroids(5, AsteroidType.LARGE);
+    }
+
+    /**
+     * Rotates the ship towards the mouse cursor. With aim assist, it instead
+     * rotates towards where an asteroid near the cursor will be when a
+     * projectile reaches it.
+     * 
+     * @param x      the x coordinate of the cursor
+     * @param y      the y coordinate of the cursor
+     * @param assist whether to snap to an asteroid near the cursor
+     */
+    private void rotateShipToCursor(double x, double y, boolean assist) {
+        Asteroid target = assist ? findNearestAsteroid(x, y) : null;
+        if (target != null && Math.hypot(target.getCenterX() - x,
+                target.getCenterY() - y) < AIM_ASSIST_RADIUS) {
+            double time = Math.hypot(target.getCenterX() - player.getCenterX(),
+                    target.getCenterY() - player.getCenterY()) / PROJECTILE_SPEED;
+            x = target.getCenterX() + target.getVelocityX() * time;
+            y = target.getCenterY() + target.getVelocityY() * time;
+        }
+        player.rotateToPoint(x, y, 4.0);
+    }
+}
@@ -0,0 +1,121 @@
+package cs1302.game;
+
+import java.util.List;
+
+import javafx.geometry.Bounds;
+
+/**
+ * An input source that plays Asteroids reasonably well.
+ * <p>
+ * Every step, the autopilot picks the asteroid closest to the ship, taking the
+ * wrapping of the game area into account. If the asteroid is dangerously close,
+ * the ship turns away from it and thrusts; otherwise, it turns towards where the
+ * asteroid will be when a projectile reaches it, using {@link TickInput#AIM}
+ * and therefore {@link AnimatedObject#rotateToPoint}, and fires once it is
+ * lined up and {@link Ship#isWeaponReady() the weapon is ready}. Pauses are
+ * confirmed right away.
+ */
+public class Autopilot implements InputSource {
+
+    /** Speed of a projectile, per step. */
+    private static final double PROJECTILE_SPEED = 7;
+    /** Distance between the edges of the ship and an asteroid that calls for evasion. */
+    private static final double DANGER_DISTANCE = 40;
+    /** Maximum angle between the ship and its target, in degrees, to fire. */
+    private static final double FIRE_ANGLE = 5;
+    /** Maximum angle between the ship and its escape route, in degrees, to thrust. */
+    private static final double THRUST_ANGLE = 30;
+
+    @Override
+    public void poll(AsteroidsWorld world, TickInput input) {
+        if (world.isWaitingForInteraction()) {
+            input.set(TickInput.CONFIRM, 0, 0);
+            return;
+        } // if
+        Ship ship = world.getPlayer();
+        Bounds bounds = world.getBounds();
+        double sx = ship.getCenterX();
+        double sy = ship.getCenterY();
+
+        // closest asteroid, as an offset from the ship through the shortest way
+        Asteroid target = null;
+        double tx = 0;
+        double ty = 0;
+        double gap = Double.POSITIVE_INFINITY;
+        List<Asteroid> asteroids = world.getAsteroids();
+        // an indexed loop, so polling every step does not allocate an iterator
+        for (int i = 0; i < asteroids.size(); i++) {
+            Asteroid asteroid = asteroids.get(i);
+            double dx = wrap(asteroid.getCenterX() - sx, bounds.getWidth());
+            double dy = wrap(asteroid.getCenterY() - sy, bounds.getHeight());
+            double d = Math.hypot(dx, dy) - Asteroid.getSize(asteroid.getType());
+            if (d < gap) {
+                target = asteroid;
+                tx = dx;
+                ty = dy;
+                gap = d;
+            } // if
+        } // for
+        if (target == null) {
+            input.set(0, 0, 0);
+            return;
+        } // if
+
+        int actions = TickInput.AIM;
+        if (gap < DANGER_DISTANCE) {
+            // run: face away from the asteroid and thrust once roughly aligned
+            tx = -tx;
+            ty = -ty;
+            if (angleTo(ship, tx, ty) < THRUST_ANGLE) {
+                actions |= TickInput.THRUST;
+            } // if
+        } else {
+            // lead the target by the flight time of a projectile
+            double time = Math.hypot(tx, ty) / PROJECTILE_SPEED;
+            tx += target.getVelocityX() * time;
+            ty += target.getVelocityY() * time;
+            if (ship.isWeaponReady() && angleTo(ship, tx, ty) < FIRE_ANGLE) {
+                actions |= TickInput.FIRE;
+            } // if
+        } // if
+        input.set(actions, sx + tx, sy + ty);
+    } // poll
+
+    /**
+     * Returns the absolute angle between the direction of the ship and the
+     * specified offset, in degrees.
+     *
+     * @param ship the ship
+     * @param dx   x component of the offset
+     * @param dy   y component of the offset
+     * @return the angle, between 0 and 180
+     */
+    private static double angleTo(Ship ship, double dx, double dy) {
+        double angle = Math.toDegrees(Math.atan2(dy, dx)) - ship.getDirectionInDegrees();
+        angle = angle % 360;
+        if (angle > 180) {
+            angle -= 360;
+        } else if (angle < -180) {
+            angle += 360;
+        } // if
+        return Math.abs(angle);
+    } // angleTo
+
+    /**
+     * Returns the shortest offset equivalent to the specified one on an axis that
+     * wraps around.
+     *
+     * @param d    the offset
+     * @param size the length of the axis
+     * @return the offset, between {@code -size / 2} and {@code size / 2}
+     */
+    private static double wrap(double d, double size) {
+        if (d > size / 2) {
+            return d - size;
+        } else if (d < -size / 2) {
+            return d + size;
+        } // if
+        return d;
+    } // wrap
+
+} // Autopilot
@@ -0,0 +1,291 @@
+package cs1302.game;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.LongFunction;
+import java.util.stream.IntStream;
+import javafx.util.Duration;
+
+/**
+ * Simulates many independent, seeded Asteroids sessions in parallel, without a
+ * display, e.g., to tune the difficulty of the game.
+ * <p>
+ * Session {@code i} of a batch uses the seed {@code baseSeed + i} for its world
+ * and for its input source, so a batch is reproducible regardless of the number
+ * of threads it runs on. A session ends when the game is over or when it reaches
+ * the step limit.
+ */
+public class BatchRunner {
+
+    private final double width;
+    private final double height;
+    private final Duration timeStep;
+    private final long maxTicks;
+    private final LongFunction<InputSource> policy;
+
+    /**
+     * Creates a new batch runner.
+     *
+     * @param width    width of the game area
+     * @param height   height of the game area
+     * @param timeStep the game time simulated by one step
+     * @param maxTicks the maximum number of steps of one session
+     * @param policy   creates the input source of a session from its seed
+     * @throws NullPointerException     if {@code timeStep} or {@code policy} is
+     *                                  null
+     * @throws IllegalArgumentException if {@code maxTicks} is not positive
+     */
+    public BatchRunner(double width, double height, Duration timeStep, long maxTicks,
+            LongFunction<InputSource> policy) {
+        Objects.requireNonNull(timeStep);
+        Objects.requireNonNull(policy);
+        if (maxTicks <= 0) {
+            throw new IllegalArgumentException("maxTicks must be positive: " + maxTicks);
+        } // if
+        this.width = width;
+        this.height = height;
+        this.timeStep = timeStep;
+        this.maxTicks = maxTicks;
+        this.policy = policy;
+    } // BatchRunner
+
+    /**
+     * Runs a batch of sessions on a new pool with the specified number of threads
+     * and waits for all of them to finish.
+     *
+     * @param sessions the number of sessions
+     * @param baseSeed the seed of the first session
+     * @param threads  the number of threads
+     * @return the report of the batch
+     * @throws IllegalArgumentException if {@code sessions} or {@code threads} is
+     *                                  not positive
+     */
+    public Report run(int sessions, long baseSeed, int threads) {
+        if (sessions <= 0) {
+            throw new IllegalArgumentException("sessions must be positive: " + sessions);
+        } // if
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        long start = System.nanoTime();
+        try {
+            // a parallel stream started inside a pool runs on that pool
+            Session[] results = pool.submit(() -> IntStream.range(0, sessions)
+                    .parallel()
+                    .mapToObj(i -> runSession(baseSeed + i))
+                    .toArray(Session[]::new)).get();
+            return new Report(results, threads, System.nanoTime() - start);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("batch interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("session failed", e.getCause());
+        } finally {
+            pool.shutdown();
+        } // try
+    } // run
+
+    /**
+     * Simulates a single session.
+     *
+     * @param seed the seed of the session
+     * @return the result of the session
+     */
+    public Session runSession(long seed) {
+        AsteroidsWorld world = new AsteroidsWorld(width, height, timeStep, seed);
+        InputSource source = policy.apply(seed);
+        TickInput input = new TickInput();
+        while (!world.isGameOver() && world.getTick() < maxTicks) {
+            source.poll(world, input);
+            world.step(input);
+        } // while
+        return new Session(seed, world.getScore(), world.getTick(), world.isGameOver());
+    } // runSession
+
+    /**
+     * The result of a single session.
+     */
+    public static final class Session {
+
+        private final long seed;
+        private final int score;
+        private final long ticks;
+        private final boolean gameOver;
+
+        private Session(long seed, int score, long ticks, boolean gameOver) {
+            this.seed = seed;
+            this.score = score;
+            this.ticks = ticks;
+            this.gameOver = gameOver;
+        } // Session
+
+        /**
+         * Returns the seed of this session.
+         *
+         * @return the seed
+         */
+        public long getSeed() {
+            return seed;
+        } // getSeed
+
+        /**
+         * Returns the final score of this session.
+         *
+         * @return the score
+         */
+        public int getScore() {
+            return score;
+        } // getScore
+
+        /**
+         * Returns the number of steps simulated in this session.
+         *
+         * @return the number of steps
+         */
+        public long getTicks() {
+            return ticks;
+        } // getTicks
+
+        /**
+         * Returns whether the game was over, rather than cut off at the step
+         * limit.
+         *
+         * @return {@code true} if the game was over; otherwise {@code false}
+         */
+        public boolean isGameOver() {
+            return gameOver;
+        } // isGameOver
+
+    } // Session
+
+    /**
+     * The results and throughput of a batch.
+     */
+    public static final class Report {
+
+        private final Session[] sessions;
+        private final int[] scores;
+        private final int threads;
+        private final long elapsedNanos;
+        private final long totalTicks;
+
+        private Report(Session[] sessions, int threads, long elapsedNanos) {
+            this.sessions = sessions;
+            this.threads = threads;
+            this.elapsedNanos = elapsedNanos;
+            this.scores = Arrays.stream(sessions).mapToInt(Session::getScore).sorted().toArray();
+            this.totalTicks = Arrays.stream(sessions).mapToLong(Session::getTicks).sum();
+        } // Report
+
+        /**
+         * Returns the result of the session with the specified index.
+         *
+         * @param index the index of the session in the batch
+         * @return the result of the session
+         */
+        public Session getSession(int index) {
+            return sessions[index];
+        } // getSession
+
+        /**
+         * Returns the number of sessions.
+         *
+         * @return the number of sessions
+         */
+        public int getSessionCount() {
+            return sessions.length;
+        } // getSessionCount
+
+        /**
+         * Returns the number of threads the batch ran on.
+         *
+         * @return the number of threads
+         */
+        public int getThreads() {
+            return threads;
+        } // getThreads
+
+        /**
+         * Returns the wall-clock time of the batch in seconds.
+         *
+         * @return the elapsed time
+         */
+        public double getSeconds() {
+            return elapsedNanos / 1e9;
+        } // getSeconds
+
+        /**
+         * Returns the number of steps simulated in all sessions.
+         *
+         * @return the number of steps
+         */
+        public long getTotalTicks() {
+            return totalTicks;
+        } // getTotalTicks
+
+        /**
+         * Returns the number of sessions simulated per second.
+         *
+         * @return the sessions per second
+         */
+        public double getGamesPerSecond() {
+            return sessions.length / getSeconds();
+        } // getGamesPerSecond
+
+        /**
+         * Returns the number of steps simulated per second.
+         *
+         * @return the steps per second
+         */
+        public double getTicksPerSecond() {
+            return totalTicks / getSeconds();
+        } // getTicksPerSecond
+
+        /**
+         * Returns the mean score.
+         *
+         * @return the mean score
+         */
+        public double getMeanScore() {
+            return Arrays.stream(scores).average().orElse(0);
+        } // getMeanScore
+
+        /**
+         * Returns the standard deviation of the scores.
+         *
+         * @return the standard deviation
+         */
+        public double getScoreStdDev() {
+            double mean = getMeanScore();
+            double sum = 0;
+            for (int score : scores) {
+                sum += (score - mean) * (score - mean);
+            } // for
+            return Math.sqrt(sum / scores.length);
+        } // getScoreStdDev
+
+        /**
+         * Returns the specified percentile of the scores, using the nearest-rank
+         * method.
+         *
+         * @param percent the percentile, between 0 and 100
+         * @return the score at the percentile
+         */
+        public int getScorePercentile(double percent) {
+            int rank = (int) Math.ceil(percent / 100 * scores.length);
+            return scores[Math.max(0, Math.min(scores.length - 1, rank - 1))];
+        } // getScorePercentile
+
+        @Override
+        public String toString() {
+            return String.format("%2d threads: %d games in %.3f s, %.1f games/s, %.0f ticks/s%n"
+                    + "    score mean %.0f, sd %.0f, min %d, p10 %d, p50 %d, p90 %d, max %d",
+                    threads, sessions.length, getSeconds(), getGamesPerSecond(),
+                    getTicksPerSecond(), getMeanScore(), getScoreStdDev(), scores[0],
+                    getScorePercentile(10), getScorePercentile(50), getScorePercentile(90),
+                    scores[scores.length - 1]);
+        } // toString
+
+    } // Report
+
+} // BatchRunner
@@ -0,0 +1,386 @@
+package cs1302.game;
+
+import java.util.Arrays;
+
+/**
+ * The changing state of all {@link AnimatedObject animated objects} of an
+ * {@link AsteroidsWorld}, as parallel arrays of primitives indexed by slot.
+ * <p>
+ * Each object takes a slot when it is created and is a view of that slot until
+ * the world removes it. Slots are kept dense: removing an object moves the
+ * last one into its slot. Moving objects is done here, in plain loops over the
+ * arrays, so it does not allocate; many objects are moved at once by a
+ * {@link MotionKernel}.
+ * <p>
+ * Directions are in degrees; their cosine and sine are kept along with them.
+ * Positions are the translation of the objects, and the pivot is the offset of
+ * the center of an object from its position.
+ */
+final class EntityStore {
+
+    /** The object was moved instantly, see {@link #startMotions}. */
+    static final int JUMPED = 1;
+    /** The object wrapped around, see {@link #startMotions}. */
+    static final int WRAPPED = 2;
+
+    /** The width and height of the game area. */
+    final double width;
+    final double height;
+    /** The next {@link AnimatedObject#getMotionId() motion id}. */
+    private int motionIds = 0;
+
+    /** Number of slots in use. */
+    int size;
+    /** The object viewing each slot. */
+    AnimatedObject[] owners = new AnimatedObject[64];
+    double[] x = new double[64];
+    double[] y = new double[64];
+    /** The position before the last move. */
+    double[] prevX = new double[64];
+    double[] prevY = new double[64];
+    /** The velocity, applied at every move. */
+    double[] vx = new double[64];
+    double[] vy = new double[64];
+    /** Movement applied once, at the next move. */
+    double[] mx = new double[64];
+    double[] my = new double[64];
+    /** Whether {@link #mx} and {@link #my} were set since the last move. */
+    boolean[] jumped = new boolean[64];
+    double[] direction = new double[64];
+    double[] prevDirection = new double[64];
+    double[] cos = new double[64];
+    double[] sin = new double[64];
+    /** Rotation applied at every turn. */
+    double[] spin = new double[64];
+    /** Rotation applied once, at the next turn. */
+    double[] rotate = new double[64];
+    double[] pivotX = new double[64];
+    double[] pivotY = new double[64];
+    /** The radius of a circle around the center that contains the object. */
+    double[] radius = new double[64];
+    /** How far the center may leave the game area before wrapping around. */
+    double[] wrapX = new double[64];
+    double[] wrapY = new double[64];
+    int[] motionId = new int[64];
+    /** Whether the cached world vertices of the object match the slot. */
+    boolean[] verticesValid = new boolean[64];
+
+    /**
+     * Creates an empty store for a game area of the specified size.
+     *
+     * @param width  the width of the game area
+     * @param height the height of the game area
+     */
+    EntityStore(double width, double height) {
+        this.width = width;
+        this.height = height;
+    } // EntityStore
+
+    /**
+     * Returns a new motion id.
+     *
+     * @return the id
+     */
+    int nextMotionId() {
+        return motionIds++;
+    } // nextMotionId
+
+    /**
+     * Adds an object at the origin, facing right and not moving.
+     *
+     * @param owner  the object
+     * @param pivotX the x offset of the center of the object
+     * @param pivotY the y offset of the center of the object
+     * @param radius the radius of the object around its center
+     * @return the slot of the object
+     */
+    int add(AnimatedObject owner, double pivotX, double pivotY, double radius) {
+        if (size == owners.length) {
+            grow();
+        } // if
+        int i = size++;
+        owners[i] = owner;
+        x[i] = 0;
+        y[i] = 0;
+        prevX[i] = 0;
+        prevY[i] = 0;
+        vx[i] = 0;
+        vy[i] = 0;
+        mx[i] = 0;
+        my[i] = 0;
+        jumped[i] = false;
+        direction[i] = 0;
+        prevDirection[i] = 0;
+        cos[i] = 1;
+        sin[i] = 0;
+        spin[i] = 0;
+        rotate[i] = 0;
+        this.pivotX[i] = pivotX;
+        this.pivotY[i] = pivotY;
+        this.radius[i] = radius;
+        wrapX[i] = 0;
+        wrapY[i] = 0;
+        motionId[i] = nextMotionId();
+        verticesValid[i] = false;
+        return i;
+    } // add
+
+    /**
+     * Removes the object in the specified slot. The last object takes its slot.
+     *
+     * @param slot the slot
+     */
+    void remove(int slot) {
+        int last = --size;
+        if (slot != last) {
+            owners[slot] = owners[last];
+            owners[slot].slot = slot;
+            x[slot] = x[last];
+            y[slot] = y[last];
+            prevX[slot] = prevX[last];
+            prevY[slot] = prevY[last];
+            vx[slot] = vx[last];
+            vy[slot] = vy[last];
+            mx[slot] = mx[last];
+            my[slot] = my[last];
+            jumped[slot] = jumped[last];
+            direction[slot] = direction[last];
+            prevDirection[slot] = prevDirection[last];
+            cos[slot] = cos[last];
+            sin[slot] = sin[last];
+            spin[slot] = spin[last];
+            rotate[slot] = rotate[last];
+            pivotX[slot] = pivotX[last];
+            pivotY[slot] = pivotY[last];
+            radius[slot] = radius[last];
+            wrapX[slot] = wrapX[last];
+            wrapY[slot] = wrapY[last];
+            motionId[slot] = motionId[last];
+            verticesValid[slot] = verticesValid[last];
+        } // if
+        // do not keep removed objects reachable
+        owners[last] = null;
+    } // remove
+
+    /**
+     * Sets the direction of the object in a slot, along with its cosine and sine.
+     *
+     * @param slot    the slot
+     * @param degrees the direction
+     */
+    void setDirection(int slot, double degrees) {
+        direction[slot] = degrees;
+        double rad = Math.toRadians(degrees);
+        cos[slot] = Math.cos(rad);
+        sin[slot] = Math.sin(rad);
+        verticesValid[slot] = false;
+    } // setDirection
+
+    /**
+     * Turns and then moves the object in a slot.
+     *
+     * @param slot the slot
+     */
+    void integrate(int slot) {
+        turn(slot);
+        move(slot);
+    } // integrate
+
+    /**
+     * Turns and then moves the object in a slot, like {@link #integrate(int)},
+     * but returns the changes of its motion instead of handing out motion ids,
+     * see {@link #startMotions}. Only the slot itself is written, so different
+     * slots may be advanced by different threads.
+     *
+     * @param slot the slot
+     * @return the changes, a combination of {@link #JUMPED} and {@link #WRAPPED}
+     */
+    int advance(int slot) {
+        turn(slot);
+        return moveLater(slot);
+    } // advance
+
+    /**
+     * Applies the spin and the instant rotation of the object in a slot, keeping
+     * its direction in the [-180, 180] range.
+     *
+     * @param i the slot
+     */
+    void turn(int i) {
+        prevDirection[i] = direction[i];
+        if (rotate[i] == 0 && spin[i] == 0) {
+            return;
+        } // if
+        double d = direction[i] + rotate[i] + spin[i];
+        if (d > 180) {
+            d = -(360 - d);
+        } // if
+        if (d < -180) {
+            d = 360 + d;
+        } // if
+        rotate[i] = 0;
+        setDirection(i, d);
+    } // turn
+
+    /**
+     * Applies the velocity and the instant movement of the object in a slot,
+     * wrapping it around if necessary. Instant movement is applied to the
+     * previous position as well, so it is never interpolated, and starts a new
+     * motion.
+     *
+     * @param i the slot
+     */
+    void move(int i) {
+        startMotions(i, moveLater(i));
+    } // move
+
+    /**
+     * Does {@link #move(int)} except for handing out motion ids.
+     *
+     * @param i the slot
+     * @return the changes of the motion
+     */
+    private int moveLater(int i) {
+        double oldX = x[i];
+        double oldY = y[i];
+        prevX[i] = oldX + mx[i];
+        prevY[i] = oldY + my[i];
+        int changes = 0;
+        if (jumped[i]) {
+            changes = JUMPED;
+            jumped[i] = false;
+        } // if
+        mx[i] = 0;
+        my[i] = 0;
+        x[i] = prevX[i] + vx[i];
+        y[i] = prevY[i] + vy[i];
+        if (x[i] != oldX || y[i] != oldY) {
+            verticesValid[i] = false;
+        } // if
+        return changes | wrapLater(i);
+    } // moveLater
+
+    /**
+     * Wraps the object in a slot around if its center left the game area by more
+     * than allowed. It appears on the other side, also slightly out of the game
+     * area, and its previous position is moved along, so the jump is not
+     * interpolated.
+     *
+     * @param i the slot
+     */
+    void wrap(int i) {
+        startMotions(i, wrapLater(i));
+    } // wrap
+
+    /**
+     * Does {@link #wrap(int)} except for handing out a motion id.
+     *
+     * @param i the slot
+     * @return {@link #WRAPPED} if the object wrapped around, otherwise 0
+     */
+    private int wrapLater(int i) {
+        double cx = x[i] + pivotX[i];
+        double cy = y[i] + pivotY[i];
+        double w = wrapX[i];
+        double h = wrapY[i];
+        double oldX = x[i];
+        double oldY = y[i];
+        if (cx - w > width) {
+            prevX[i] += -w - x[i];
+            x[i] = -w;
+        } else if (cx + w < 0) {
+            prevX[i] += width - w - x[i];
+            x[i] = width - w;
+        } // if
+        if (cy - h > height) {
+            prevY[i] += -h - y[i];
+            y[i] = -h;
+        } else if (cy + h < 0) {
+            prevY[i] += height - h - y[i];
+            y[i] = height - h;
+        } // if
+        if (x[i] != oldX || y[i] != oldY) {
+            verticesValid[i] = false;
+            return WRAPPED;
+        } // if
+        return 0;
+    } // wrapLater
+
+    /**
+     * Completes {@link #advance(int)} for the object in a slot whose arithmetic
+     * was done elsewhere, e.g., by a {@link MotionKernel}: updates the cosine and
+     * sine and invalidates the cached world vertices.
+     *
+     * @param i       the slot
+     * @param turned  whether the direction changed
+     * @param moved   whether the velocity or instant movement changed the position
+     * @param wrapped whether the object wrapped around
+     * @return the changes of the motion, see {@link #startMotions}
+     */
+    int finishAdvance(int i, boolean turned, boolean moved, boolean wrapped) {
+        if (turned) {
+            setDirection(i, direction[i]);
+        } // if
+        int changes = 0;
+        if (jumped[i]) {
+            changes = JUMPED;
+            jumped[i] = false;
+        } // if
+        if (moved) {
+            verticesValid[i] = false;
+        } // if
+        if (wrapped) {
+            changes |= WRAPPED;
+            verticesValid[i] = false;
+        } // if
+        return changes;
+    } // finishAdvance
+
+    /**
+     * Hands out the motion ids for the changes returned by {@link #advance}: one
+     * for an instant movement, then one for wrapping around. Ids depend on the
+     * order of the calls, so this is done one object at a time, in order.
+     *
+     * @param i       the slot
+     * @param changes the changes
+     */
+    void startMotions(int i, int changes) {
+        if ((changes & JUMPED) != 0) {
+            motionId[i] = nextMotionId();
+        } // if
+        if ((changes & WRAPPED) != 0) {
+            motionId[i] = nextMotionId();
+        } // if
+    } // startMotions
+
+    /**
+     * Doubles the capacity of this store.
+     */
+    private void grow() {
+        int capacity = owners.length * 2;
+        owners = Arrays.copyOf(owners, capacity);
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        prevX = Arrays.copyOf(prevX, capacity);
+        prevY = Arrays.copyOf(prevY, capacity);
+        vx = Arrays.copyOf(vx, capacity);
+        vy = Arrays.copyOf(vy, capacity);
+        mx = Arrays.copyOf(mx, capacity);
+        my = Arrays.copyOf(my, capacity);
+        jumped = Arrays.copyOf(jumped, capacity);
+        direction = Arrays.copyOf(direction, capacity);
+        prevDirection = Arrays.copyOf(prevDirection, capacity);
+        cos = Arrays.copyOf(cos, capacity);
+        sin = Arrays.copyOf(sin, capacity);
+        spin = Arrays.copyOf(spin, capacity);
+        rotate = Arrays.copyOf(rotate, capacity);
+        pivotX = Arrays.copyOf(pivotX, capacity);
+        pivotY = Arrays.copyOf(pivotY, capacity);
+        radius = Arrays.copyOf(radius, capacity);
+        wrapX = Arrays.copyOf(wrapX, capacity);
+        wrapY = Arrays.copyOf(wrapY, capacity);
+        motionId = Arrays.copyOf(motionId, capacity);
+        verticesValid = Arrays.copyOf(verticesValid, capacity);
+    } // grow
+
+} // EntityStore
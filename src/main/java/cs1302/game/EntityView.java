@@ -0,0 +1,104 @@
+package cs1302.game;
+
+import javafx.scene.shape.Shape;
+
+/**
+ * The node displaying an {@link AnimatedObject} on the game screen. A view only
+ * touches its node when a displayed value actually changes. Views of objects
+ * that are gone are hidden and may display another object of the same class
+ * later, see {@link #bind}.
+ */
+final class EntityView {
+
+    /** The object this view displays. */
+    AnimatedObject object;
+    /** The node in the scene graph. */
+    final Shape node;
+    /** Number of the last sync this view was part of. */
+    int frame;
+
+    private double translateX = Double.NaN;
+    private double translateY = Double.NaN;
+    private double rotate = Double.NaN;
+    private boolean visible = true;
+    private int viewState = -1;
+
+    /**
+     * Creates a new view for the specified object.
+     *
+     * @param object the object to display
+     */
+    EntityView(AnimatedObject object) {
+        this.object = object;
+        this.node = object.createView();
+        // JavaFX creates the property on first use, which should not be when hiding the node
+        node.setVisible(true);
+    } // EntityView
+
+    /**
+     * Lets this view, which was {@link #retire() retired}, display another object
+     * of the same class as before.
+     *
+     * @param object the object to display
+     */
+    void bind(AnimatedObject object) {
+        this.object = object;
+        object.reuseView(node);
+        // everything is set again by the next apply()
+        translateX = Double.NaN;
+        translateY = Double.NaN;
+        rotate = Double.NaN;
+        viewState = -1;
+    } // bind
+
+    /**
+     * Hides the node of this view, whose object is gone, so it can be reused.
+     */
+    void retire() {
+        object = null;
+        node.setVisible(false);
+        visible = false;
+    } // retire
+
+    /**
+     * Moves the node to entry {@code i} of the snapshot, interpolated between
+     * the previous and current state as specified by {@code alpha}.
+     *
+     * @param s     the snapshot
+     * @param i     the index of the object in the snapshot
+     * @param alpha 0 for the previous state, 1 for the current state
+     */
+    void apply(WorldSnapshot s, int i, double alpha) {
+        double tx = s.prevX[i] + (s.x[i] - s.prevX[i]) * alpha;
+        double ty = s.prevY[i] + (s.y[i] - s.prevY[i]) * alpha;
+        // turn the short way around
+        double turn = s.direction[i] - s.prevDirection[i];
+        if (turn > 180) {
+            turn -= 360;
+        } else if (turn < -180) {
+            turn += 360;
+        } // if
+        double r = s.prevDirection[i] + turn * alpha;
+        if (tx != translateX) {
+            node.setTranslateX(tx);
+            translateX = tx;
+        } // if
+        if (ty != translateY) {
+            node.setTranslateY(ty);
+            translateY = ty;
+        } // if
+        if (r != rotate) {
+            node.setRotate(r);
+            rotate = r;
+        } // if
+        if (s.visible[i] != visible) {
+            node.setVisible(s.visible[i]);
+            visible = s.visible[i];
+        } // if
+        if (s.viewState[i] != viewState) {
+            object.updateView(node, s.viewState[i]);
+            viewState = s.viewState[i];
+        } // if
+    } // apply
+
+} // EntityView
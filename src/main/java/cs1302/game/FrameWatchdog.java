@@ -0,0 +1,371 @@
+package cs1302.game;
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javafx.scene.input.KeyCode;
+
+/**
+ * Watches the steps of a {@link Game} and writes a diagnostic report when one
+ * takes much longer than its time budget.
+ * <p>
+ * While a step runs, a sampler thread takes samples of the stack of the
+ * stepping thread once the step is over the threshold, so the report shows
+ * what the step was doing while it was slow. The sampler also keeps a short
+ * history of garbage collections. The stepping thread keeps the last input
+ * commands. When a slow step finishes, the game adds its own details, such as
+ * entity counts, and the report is written to a file on a separate thread. At
+ * most one report is written per second.
+ * <p>
+ * Apart from the sampler, which only wakes up a few times per step, watching a
+ * step costs two reads of the clock.
+ */
+final class FrameWatchdog {
+
+    /** Maximum number of stack samples per report. */
+    private static final int MAX_SAMPLES = 64;
+    /** Number of input commands kept. */
+    private static final int INPUT_HISTORY = 16;
+    /** Number of garbage collection records kept. */
+    private static final int GC_HISTORY = 32;
+    /** How often garbage collections are checked, in nanoseconds. */
+    private static final long GC_POLL_NANOS = 100_000_000L;
+    /** Garbage collections at most this long before a report are included. */
+    private static final long GC_WINDOW_NANOS = 5_000_000_000L;
+    /** Minimum time between two reports, in nanoseconds. */
+    private static final long REPORT_INTERVAL_NANOS = 1_000_000_000L;
+    /** Names of input command types, by type. */
+    private static final String[] INPUT_TYPES = { "?", "KEY_DOWN", "KEY_UP", "POINTER_DOWN",
+        "POINTER_UP", "ACTION_DOWN", "ACTION_UP", "RELEASE_ALL" };
+    private static final DateTimeFormatter FILE_TIME =
+            DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+
+    private final Logger logger;
+    private final long budgetNanos;
+    private final long thresholdNanos;
+    private final Path directory;
+    private final List<GarbageCollectorMXBean> collectors =
+            ManagementFactory.getGarbageCollectorMXBeans();
+
+    private volatile Thread sampler;
+    private volatile Thread stepThread; // thread running the current step
+    private volatile long stepStart; // start of the current step, or 0
+
+    // guarded by this; written by the sampler
+    private final List<long[]> sampleTimes = new ArrayList<>(); // step start, sample time
+    private final List<StackTraceElement[]> samples = new ArrayList<>();
+    private final long[] gcTimes = new long[GC_HISTORY];
+    private final String[] gcNames = new String[GC_HISTORY];
+    private final long[] gcCounts = new long[GC_HISTORY];
+    private final long[] gcMillis = new long[GC_HISTORY];
+    private int gcRecords = 0;
+
+    // only used by the stepping thread
+    private final long[] inputTimes = new long[INPUT_HISTORY];
+    private final int[] inputTypes = new int[INPUT_HISTORY];
+    private final int[] inputCodes = new int[INPUT_HISTORY];
+    private final double[] inputX = new double[INPUT_HISTORY];
+    private final double[] inputY = new double[INPUT_HISTORY];
+    private int inputCount = 0;
+    private long lastReport = Long.MIN_VALUE / 2;
+    private int suppressed = 0;
+
+    /**
+     * Creates a new watchdog. It does not sample until {@link #start()} is
+     * called.
+     *
+     * @param logger         the logger for reports
+     * @param budgetNanos    the time budget of a step, in nanoseconds
+     * @param budgetMultiple how many budgets a step may take before it is
+     *                       reported
+     * @param directory      the directory to write reports to
+     */
+    FrameWatchdog(Logger logger, long budgetNanos, double budgetMultiple, Path directory) {
+        this.logger = logger;
+        this.budgetNanos = budgetNanos;
+        this.thresholdNanos = (long) (budgetNanos * budgetMultiple);
+        this.directory = directory;
+    } // FrameWatchdog
+
+    /**
+     * Starts the sampler thread, unless it is running.
+     */
+    synchronized void start() {
+        if (sampler == null) {
+            Thread thread = new Thread(this::sample, "game-watchdog");
+            thread.setDaemon(true);
+            sampler = thread;
+            thread.start();
+        } // if
+    } // start
+
+    /**
+     * Stops the sampler thread.
+     */
+    synchronized void stop() {
+        Thread thread = sampler;
+        sampler = null;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        } // if
+    } // stop
+
+    /**
+     * Called by the stepping thread right before a step.
+     */
+    void stepStarted() {
+        stepThread = Thread.currentThread();
+        stepStart = System.nanoTime();
+    } // stepStarted
+
+    /**
+     * Called by the stepping thread right after a step. If the step was too
+     * slow, the report is completed and written in the background.
+     *
+     * @param details adds details about the state of the game to a report; it is
+     *                only called for slow steps
+     */
+    void stepFinished(Consumer<Map<String, Object>> details) {
+        long start = stepStart;
+        long end = System.nanoTime();
+        stepStart = 0;
+        if (end - start > thresholdNanos) {
+            report(start, end, details);
+        } // if
+    } // stepFinished
+
+    /**
+     * Called by the stepping thread for every input command it applies.
+     *
+     * @param type the command type, see {@link InputQueue}
+     * @param code the key code or action bit
+     * @param x    the pointer x coordinate
+     * @param y    the pointer y coordinate
+     */
+    void inputApplied(int type, int code, double x, double y) {
+        int i = inputCount++ % INPUT_HISTORY;
+        inputTimes[i] = System.nanoTime();
+        inputTypes[i] = type;
+        inputCodes[i] = code;
+        inputX[i] = x;
+        inputY[i] = y;
+    } // inputApplied
+
+    /**
+     * The body of the sampler thread.
+     */
+    private void sample() {
+        Thread self = Thread.currentThread();
+        long period = Math.max(1_000_000L, budgetNanos / 2);
+        long nextGcPoll = 0;
+        long[] lastCounts = new long[collectors.size()];
+        long[] lastMillis = new long[collectors.size()];
+        for (int i = 0; i < lastCounts.length; i++) {
+            lastCounts[i] = collectors.get(i).getCollectionCount();
+            lastMillis[i] = collectors.get(i).getCollectionTime();
+        } // for
+        while (sampler == self) {
+            LockSupport.parkNanos(this, period);
+            long now = System.nanoTime();
+            long start = stepStart;
+            Thread thread = stepThread;
+            if (start != 0 && thread != null && now - start > thresholdNanos) {
+                StackTraceElement[] trace = thread.getStackTrace();
+                synchronized (this) {
+                    if (samples.size() < MAX_SAMPLES) {
+                        sampleTimes.add(new long[] { start, now });
+                        samples.add(trace);
+                    } // if
+                } // synchronized
+            } // if
+            if (now >= nextGcPoll) {
+                nextGcPoll = now + GC_POLL_NANOS;
+                for (int i = 0; i < lastCounts.length; i++) {
+                    GarbageCollectorMXBean gc = collectors.get(i);
+                    long count = gc.getCollectionCount();
+                    long millis = gc.getCollectionTime();
+                    if (count > lastCounts[i]) {
+                        synchronized (this) {
+                            int r = gcRecords++ % GC_HISTORY;
+                            gcTimes[r] = now;
+                            gcNames[r] = gc.getName();
+                            gcCounts[r] = count - lastCounts[i];
+                            gcMillis[r] = millis - lastMillis[i];
+                        } // synchronized
+                    } // if
+                    lastCounts[i] = count;
+                    lastMillis[i] = millis;
+                } // for
+            } // if
+        } // while
+    } // sample
+
+    /**
+     * Completes the report of a slow step and writes it in the background.
+     *
+     * @param start   the start of the step
+     * @param end     the end of the step
+     * @param details adds details about the state of the game
+     */
+    private void report(long start, long end, Consumer<Map<String, Object>> details) {
+        List<StackTraceElement[]> stacks = new ArrayList<>();
+        List<Long> stackTimes = new ArrayList<>();
+        StringBuilder gc = new StringBuilder();
+        synchronized (this) {
+            for (int i = 0; i < samples.size(); i++) {
+                long[] times = sampleTimes.get(i);
+                // drop samples of earlier steps that were taken as they ended
+                if (times[0] == start) {
+                    stacks.add(samples.get(i));
+                    stackTimes.add(times[1] - start);
+                } // if
+            } // for
+            samples.clear();
+            sampleTimes.clear();
+            for (int k = Math.max(0, gcRecords - GC_HISTORY); k < gcRecords; k++) {
+                int r = k % GC_HISTORY;
+                if (end - gcTimes[r] <= GC_WINDOW_NANOS) {
+                    gc.append(String.format("  %+8.1f ms  %s: %d collections, %d ms%n",
+                            (gcTimes[r] - start) / 1e6, gcNames[r], gcCounts[r], gcMillis[r]));
+                } // if
+            } // for
+        } // synchronized
+        if (end - lastReport < REPORT_INTERVAL_NANOS) {
+            suppressed++;
+            return;
+        } // if
+        lastReport = end;
+
+        StringBuilder text = new StringBuilder();
+        text.append(String.format("Slow step at %s%n", LocalDateTime.now()));
+        text.append(String.format("step took %.1f ms; budget %.1f ms, threshold %.1f ms%n",
+                (end - start) / 1e6, budgetNanos / 1e6, thresholdNanos / 1e6));
+        text.append(String.format("thread: %s%n", Thread.currentThread().getName()));
+        if (suppressed > 0) {
+            text.append(String.format("slow steps not reported since the last report: %d%n",
+                    suppressed));
+            suppressed = 0;
+        } // if
+        Map<String, Object> game = new LinkedHashMap<>();
+        try {
+            details.accept(game);
+        } catch (RuntimeException e) {
+            game.put("error", e);
+        } // try
+        text.append(String.format("%n== game ==%n"));
+        game.forEach((k, v) -> text.append(String.format("  %s: %s%n", k, v)));
+        text.append(String.format("%n== garbage collections in the last %d s ==%n",
+                GC_WINDOW_NANOS / 1_000_000_000L));
+        text.append(gc.length() == 0 ? String.format("  none%n") : gc);
+        appendInput(text, start);
+        appendStacks(text, stacks, stackTimes);
+
+        Path file = directory.resolve("slow-step-" + LocalDateTime.now().format(FILE_TIME)
+                + ".txt");
+        String message = String.format("step took %.1f ms, %.1fx its budget",
+                (end - start) / 1e6, (double) (end - start) / budgetNanos);
+        Thread writer = new Thread(() -> write(file, text.toString(), message),
+                "game-watchdog-writer");
+        writer.setDaemon(true);
+        writer.start();
+    } // report
+
+    /**
+     * Appends the last input commands, oldest first, to a report.
+     *
+     * @param text  the report
+     * @param start the start of the step
+     */
+    private void appendInput(StringBuilder text, long start) {
+        text.append(String.format("%n== last input ==%n"));
+        if (inputCount == 0) {
+            text.append(String.format("  none%n"));
+        } // if
+        for (int k = Math.max(0, inputCount - INPUT_HISTORY); k < inputCount; k++) {
+            int i = k % INPUT_HISTORY;
+            int type = inputTypes[i];
+            String what;
+            if (type == InputQueue.KEY_DOWN || type == InputQueue.KEY_UP) {
+                what = keyName(inputCodes[i]);
+            } else if (type == InputQueue.POINTER_DOWN || type == InputQueue.POINTER_UP) {
+                what = String.format("(%.1f, %.1f)", inputX[i], inputY[i]);
+            } else {
+                what = "0x" + Integer.toHexString(inputCodes[i]);
+            } // if
+            text.append(String.format("  %+10.1f ms  %s %s%n", (inputTimes[i] - start) / 1e6,
+                    type < INPUT_TYPES.length ? INPUT_TYPES[type] : INPUT_TYPES[0], what));
+        } // for
+    } // appendInput
+
+    /**
+     * Appends stack samples to a report. Consecutive identical samples are
+     * listed once.
+     *
+     * @param text   the report
+     * @param stacks the samples
+     * @param times  the times of the samples, relative to the start of the step
+     */
+    private static void appendStacks(StringBuilder text, List<StackTraceElement[]> stacks,
+            List<Long> times) {
+        text.append(String.format("%n== stack samples: %d ==%n", stacks.size()));
+        for (int i = 0; i < stacks.size(); i++) {
+            int same = 1;
+            while (i + same < stacks.size()
+                    && Arrays.equals(stacks.get(i), stacks.get(i + same))) {
+                same++;
+            } // while
+            text.append(String.format("%n  at %+.1f ms%s:%n", times.get(i) / 1e6,
+                    same > 1 ? String.format(" (and %d more samples)", same - 1) : ""));
+            for (StackTraceElement element : stacks.get(i)) {
+                text.append("    at ").append(element).append(System.lineSeparator());
+            } // for
+            i += same - 1;
+        } // for
+    } // appendStacks
+
+    /**
+     * Returns the name of a key code.
+     *
+     * @param code the key code
+     * @return the name of the key
+     */
+    private static String keyName(int code) {
+        for (KeyCode key : KeyCode.values()) {
+            if (key.getCode() == code) {
+                return key.getName();
+            } // if
+        } // for
+        return "key " + code;
+    } // keyName
+
+    /**
+     * Writes a report to a file. Runs on a writer thread.
+     *
+     * @param file    the file
+     * @param text    the report
+     * @param message the summary to log
+     */
+    private void write(Path file, String text, String message) {
+        try {
+            Files.createDirectories(directory);
+            Files.writeString(file, text);
+            logger.warning(message + "; diagnostics written to " + file);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, message + "; cannot write diagnostics to " + file, e);
+        } // try
+    } // write
+
+} // FrameWatchdog
@@ -1,17 +1,25 @@
 package cs1302.game;
 
+import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.BitSet;
+import java.util.Map;
+import java.util.concurrent.locks.LockSupport;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import javafx.animation.KeyFrame;
-import javafx.animation.Timeline;
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+import javafx.beans.value.ChangeListener;
 import javafx.geometry.Bounds;
 import javafx.geometry.BoundingBox;
+import javafx.scene.Scene;
 import javafx.scene.input.KeyEvent;
 import javafx.scene.input.KeyCode;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.Region;
+import javafx.stage.Stage;
+import javafx.stage.Window;
 import javafx.util.Duration;
 
 /**
@@ -23,20 +31,82 @@ import javafx.util.Duration;
  * <pre>
  * init();
  * while (playing) {
- *     update();
+ *     while (enough time has accumulated for a step) {
+ *         update();
+ *     } // while
+ *     render(fraction of a step left over);
  * } // while
  * </pre>
+ * <p>
+ * The game loop runs the simulation at a fixed rate: every call to
+ * {@link #update} advances the game by exactly {@link #getTimeStep}, no matter
+ * how often the screen is refreshed. Wall clock time is accumulated on each
+ * pulse and as many steps as fit into it are run, up to
+ * {@link #MAX_STEPS_PER_FRAME}; the remainder is passed to {@link #render} so
+ * that objects can be drawn between their last two simulated states.
+ * <p>
+ * A game that has nothing to do until the player presses a key may call
+ * {@link #idle} from {@link #update}; the loop then stops completely until the
+ * next key or mouse event, or the next command passed to {@link #submit}. The
+ * loop is also suspended while the window containing the game is not focused
+ * or is iconified.
+ * <p>
+ * By default, everything runs on the JavaFX Application Thread. If
+ * {@link #setSimulationThreaded} is enabled, {@link #update} is called on a
+ * dedicated simulation thread instead, while {@link #render} keeps being called
+ * once per frame on the JavaFX Application Thread. A game that enables it must
+ * not touch the scene graph in {@link #update}, and must hand its state over to
+ * {@link #render} in a thread-safe way.
+ * <p>
+ * Key and mouse events are not applied when they happen. They are turned into
+ * commands in an {@link InputQueue}, which other sources of input may feed as
+ * well through {@link #submit}, and the queue is drained once right before each
+ * call to {@link #update}. During a step, {@link #isKeyPressed(KeyCode)} and
+ * {@link #getInput()} therefore describe a consistent state.
  */
 public abstract class Game extends Region {
 
+    /** The capacity of the input queue. */
+    private static final int INPUT_CAPACITY = 1024;
+
+    /** The maximum number of steps run to catch up within a single frame. */
+    public static final int MAX_STEPS_PER_FRAME = 5;
+    /** Frame times longer than this (in nanoseconds) are clamped. */
+    private static final long MAX_FRAME_NANOS = 250_000_000L;
+
     protected final Logger logger = Logger.getLogger("cs1302.game.Game");
 
     private final Bounds bounds; // game bounds
     private final Duration fpsTarget; // target duration for game loop
-    private final Timeline loop = new Timeline(); // timeline for main game loop
+    private final long stepNanos; // fpsTarget in nanoseconds
+    private final AnimationTimer loop; // timer for main game loop
+    private long lastFrameTime = -1; // timestamp of the previous frame, -1 if none
+    private long accumulator = 0; // simulation time owed, in nanoseconds
+    private volatile long lastStepTime = 0; // timestamp of the end of the last step
+    private volatile boolean running = false; // is the loop started?
+    private volatile boolean idle = false; // waiting for input?
+    private volatile boolean windowActive = true; // is the window focused and not iconified?
+    private boolean looping = false; // is the timer started?
+    private boolean threaded = false; // run update() on a separate thread?
+    private volatile Thread simulationThread; // thread calling update(), if threaded
+    private FrameWatchdog watchdog; // reports slow steps, if enabled
+    private Window window; // window containing the game, if any
+    private final ChangeListener<Boolean> windowStateListener = (obs, o, n) -> updateWindowState();
+    private final ChangeListener<Window> windowListener = (obs, o, n) -> watchWindow(n);
+    private final Runnable wakeTask = this::wake; // wakes the loop on the FX thread
+    private final InputQueue inputQueue = new InputQueue(INPUT_CAPACITY); // pending input
+    // the fields below are only used by the thread that runs update()
     private final BitSet keysPressed = new BitSet(); // set of currently pressed keys
+    private final BitSet keysTapped = new BitSet(); // keys pressed since the last step
     private boolean mousePressed; // whether a mouse button is pressed
-    private MouseEvent lastMousePressedEvent; // last mouse event
+    private double pointerX; // position of the last mouse press
+    private double pointerY;
+    private int syntheticActions; // actions started through the input queue
+    private final TickInput input = new TickInput(); // input of the current step
+    private int[] boundKeys = new int[8]; // key codes with an action bound to them
+    private int[] boundActions = new int[8]; // the actions bound to boundKeys
+    private int bindingCount = 0; // number of key bindings
+    private int mouseActions = TickInput.AIM; // the actions bound to the mouse
 
     private boolean initialized = false; // play() has been called?
 
@@ -53,26 +123,226 @@ public abstract class Game extends Region {
         setMinHeight(height);
         this.bounds = new BoundingBox(0, 0, width, height);
         this.fpsTarget = Duration.millis(1000.0 / fps);
-        this.mousePressed = false;
-        this.lastMousePressedEvent = null;
+        this.stepNanos = 1_000_000_000L / fps;
         addEventFilter(KeyEvent.KEY_PRESSED, event -> handleKeyPressed(event));
         addEventFilter(KeyEvent.KEY_RELEASED, event -> handleKeyReleased(event));
         addEventFilter(MouseEvent.MOUSE_PRESSED, event -> handleMousePressed(event));
         addEventFilter(MouseEvent.MOUSE_RELEASED, event -> handleMouseReleased(event));
-        initGameLoop();
+        sceneProperty().addListener((obs, oldScene, newScene) -> watchScene(oldScene, newScene));
+        this.loop = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                runFrame(now);
+            } // handle
+        };
     } // Game
 
     /**
-     * Initialize the main game loop.
+     * Run one frame of the main game loop: perform as many fixed steps as the
+     * time elapsed since the previous frame allows, then render. If the
+     * simulation runs on its own thread, only render.
+     *
+     * @param now timestamp of the current frame in nanoseconds
+     */
+    private void runFrame(long now) {
+        requestFocus();
+        if (simulationThread != null) {
+            // read before rendering, so the state that made the game idle is shown
+            boolean wasIdle = idle;
+            double alpha = (double) (now - lastStepTime) / stepNanos;
+            render(Math.max(0, Math.min(1, alpha)));
+            if (wasIdle) {
+                updateLoop();
+            } // if
+            return;
+        } // if
+        advance(now);
+        if (running) {
+            render((double) accumulator / stepNanos);
+        } // if
+    } // runFrame
+
+    /**
+     * Perform as many fixed steps as the time elapsed since the previous call
+     * allows. This method is only called by the thread that runs the simulation.
+     *
+     * @param now the current timestamp in nanoseconds
+     */
+    private void advance(long now) {
+        if (lastFrameTime < 0) {
+            lastFrameTime = now;
+        } // if
+        // a very long frame (e.g., a debugger pause) should not be replayed in full
+        accumulator += Math.min(now - lastFrameTime, MAX_FRAME_NANOS);
+        lastFrameTime = now;
+        int steps = 0;
+        while (running && !idle && accumulator >= stepNanos && steps < MAX_STEPS_PER_FRAME) {
+            drainInput();
+            if (watchdog != null) {
+                watchdog.stepStarted();
+                update();
+                watchdog.stepFinished(this::addDiagnostics);
+            } else {
+                update();
+            } // if
+            lastStepTime = System.nanoTime();
+            accumulator -= stepNanos;
+            steps++;
+        } // while
+        if (idle) {
+            // nothing is owed while waiting for input
+            accumulator = 0;
+        } else if (accumulator >= stepNanos) {
+            // too far behind to catch up; drop whole steps and keep the fraction
+            logger.fine(() -> "dropping " + accumulator / stepNanos + " steps");
+            accumulator %= stepNanos;
+        } // if
+    } // advance
+
+    /**
+     * The body of the simulation thread. Steps are performed in time with the
+     * clock; while the game is paused, idle or its window is inactive, the thread
+     * is parked until {@link #updateLoop} wakes it up.
+     */
+    private void runSimulation() {
+        Thread self = Thread.currentThread();
+        lastFrameTime = -1;
+        accumulator = 0;
+        while (simulationThread == self) {
+            if (!running || idle || !windowActive) {
+                lastFrameTime = -1;
+                LockSupport.park(this);
+                continue;
+            } // if
+            advance(System.nanoTime());
+            // sleep until the next step is due
+            LockSupport.parkNanos(this, stepNanos - accumulator);
+        } // while
+    } // runSimulation
+
+    /**
+     * Start or stop the timer of the main game loop depending on whether the
+     * game is playing, not idle and its window is active.
+     */
+    private void updateLoop() {
+        boolean shouldLoop = running && !idle && windowActive;
+        Thread thread = simulationThread;
+        if (shouldLoop && thread != null) {
+            // the thread may have parked itself without the timer being stopped yet
+            LockSupport.unpark(thread);
+        } // if
+        if (shouldLoop && !looping) {
+            if (thread == null) {
+                // time spent suspended is not simulated
+                lastFrameTime = -1;
+            } // if
+            loop.start();
+        } else if (!shouldLoop && looping) {
+            loop.stop();
+        } // if
+        looping = shouldLoop;
+    } // updateLoop
+
+    /**
+     * Follow the window of the specified scene.
+     *
+     * @param oldScene the scene the game was removed from, or {@code null}
+     * @param newScene the scene the game was added to, or {@code null}
+     */
+    private void watchScene(Scene oldScene, Scene newScene) {
+        if (oldScene != null) {
+            oldScene.windowProperty().removeListener(windowListener);
+        } // if
+        if (newScene != null) {
+            newScene.windowProperty().addListener(windowListener);
+        } // if
+        watchWindow(newScene == null ? null : newScene.getWindow());
+    } // watchScene
+
+    /**
+     * Follow the focused and iconified state of the specified window.
+     *
+     * @param newWindow the window containing the game, or {@code null}
+     */
+    private void watchWindow(Window newWindow) {
+        if (window != null) {
+            window.focusedProperty().removeListener(windowStateListener);
+            if (window instanceof Stage) {
+                ((Stage) window).iconifiedProperty().removeListener(windowStateListener);
+            } // if
+        } // if
+        window = newWindow;
+        if (window != null) {
+            window.focusedProperty().addListener(windowStateListener);
+            if (window instanceof Stage) {
+                ((Stage) window).iconifiedProperty().addListener(windowStateListener);
+            } // if
+        } // if
+        updateWindowState();
+    } // watchWindow
+
+    /**
+     * Suspend the main game loop while the window is unfocused or iconified, and
+     * resume it afterwards.
+     */
+    private void updateWindowState() {
+        boolean active = true;
+        if (window != null) {
+            active = window.isFocused();
+            if (window instanceof Stage && ((Stage) window).isIconified()) {
+                active = false;
+            } // if
+        } // if
+        if (!active && windowActive) {
+            logger.info("window inactive, suspending game loop");
+            // key and mouse releases will not be delivered to the game
+            inputQueue.offer(InputQueue.RELEASE_ALL, 0, 0, 0);
+        } // if
+        windowActive = active;
+        updateLoop();
+    } // updateWindowState
+
+    /**
+     * Suspend the main game loop until the next key or mouse event. This is meant
+     * to be called from {@link #update} while the game is waiting for the player,
+     * so that no frames are run just to poll the keyboard. The current frame is
+     * still rendered.
      */
-    private void initGameLoop() {
-        KeyFrame updateFrame = new KeyFrame(fpsTarget, event -> {
-            requestFocus();
-            update();
-        });
-        loop.setCycleCount(Timeline.INDEFINITE);
-        loop.getKeyFrames().add(updateFrame);
-    } // initGameLoop
+    protected final void idle() {
+        if (!idle) {
+            idle = true;
+            // a command submitted during this step saw the loop running and did not wake it
+            if (inputQueue.hasNext()) {
+                idle = false;
+                return;
+            } // if
+            if (simulationThread == null) {
+                updateLoop();
+            } // if
+            // otherwise, the next frame suspends the loop after rendering
+        } // if
+    } // idle
+
+    /**
+     * Resume the main game loop if it was suspended by {@link #idle}, e.g., when
+     * input that is not submitted to the queue becomes available. This method
+     * must be called on the JavaFX Application Thread.
+     */
+    protected final void wake() {
+        if (idle) {
+            idle = false;
+            updateLoop();
+        } // if
+    } // wake
+
+    /**
+     * Return whether or not the main game loop is suspended by {@link #idle}.
+     *
+     * @return {@code true} if the game is idle; otherwise {@code false}
+     */
+    protected final boolean isIdle() {
+        return idle;
+    } // isIdle
 
     /**
      * Initialize the game. A game may override this method to perform
@@ -85,63 +355,182 @@ public abstract class Game extends Region {
     }
 
     /**
-     * Perform one iteration of the main game loop.
+     * Perform one iteration of the main game loop, advancing the game by exactly
+     * {@link #getTimeStep}.
      */
     protected abstract void update();
 
     /**
-     * Add the key code for the pressed key to the set of pressed keys.
+     * Draw the current state of the game. This method is called once per frame
+     * after all steps of the frame have been performed. The {@code alpha} value
+     * tells how far the current time is between the last step and the next one,
+     * and can be used to interpolate the displayed state. The implementation of
+     * this method provided by the {@code Game} class does nothing.
+     *
+     * @param alpha fraction of a step elapsed since the last step, in {@code [0, 1)}
+     */
+    protected void render(double alpha) {
+    }
+
+    /**
+     * Queue the press of a key.
      * 
      * @param event associated key event
      */
     private void handleKeyPressed(KeyEvent event) {
         logger.info(event.toString());
-        keysPressed.set(event.getCode().getCode());
+        submit(InputQueue.KEY_DOWN, event.getCode().getCode(), 0, 0);
     } // handleKeyPressed
 
     /**
-     * Remove the key code for the released key from the set of pressed keys.
+     * Queue the release of a key.
      * 
      * @param event associated key event
      */
     private void handleKeyReleased(KeyEvent event) {
         logger.info(event.toString());
-        keysPressed.clear(event.getCode().getCode());
+        submit(InputQueue.KEY_UP, event.getCode().getCode(), 0, 0);
     } // handleKeyReleased
 
     /**
-     * Updates the last mouse event. {@link #isMouseButtonPressed()} returns
-     * {@code true} if called immediately after this method.
+     * Queue the press of a mouse button at the position of the event.
      * 
      * @param event associated mouse event
      */
     private void handleMousePressed(MouseEvent event) {
         logger.info(event.toString());
-        mousePressed = true;
-        lastMousePressedEvent = event;
+        submit(InputQueue.POINTER_DOWN, 0, event.getX(), event.getY());
     } // handleMousePressed
 
     /**
-     * Updates the last mouse event. {@link #isMouseButtonPressed()} returns
-     * {@code false} if called immediately after this method.
+     * Queue the release of a mouse button.
      * 
      * @param event associated key event
      */
     private void handleMouseReleased(MouseEvent event) {
         logger.info(event.toString());
-        mousePressed = false;
-        lastMousePressedEvent = null;
+        submit(InputQueue.POINTER_UP, 0, 0, 0);
     } // handleMouseReleased
 
     /**
-     * Returns the last mouse press event, or {@code null} if no mouse 
-     * button is being pressed.
-     * 
-     * @return the last mouse event
+     * Add a command to the input queue and resume the loop if it is idle. This
+     * method may be called from any thread, e.g., by a bot, a replay or a network
+     * peer; the command takes effect at the start of the next step.
+     *
+     * @param type one of the command types declared by {@link InputQueue}
+     * @param code the key code or action bit, if any
+     * @param x    the pointer x coordinate, if any
+     * @param y    the pointer y coordinate, if any
+     * @return {@code true} if the command was added, {@code false} if the queue is full
      */
-    protected MouseEvent getLastMousePressedEvent() {
-        return lastMousePressedEvent;
-    }
+    public final boolean submit(int type, int code, double x, double y) {
+        boolean added = inputQueue.offer(type, code, x, y);
+        if (!added) {
+            logger.warning("input queue full, dropping input");
+        } // if
+        // read after offering, see idle()
+        if (idle) {
+            if (Platform.isFxApplicationThread()) {
+                wake();
+            } else {
+                Platform.runLater(wakeTask);
+            } // if
+        } // if
+        return added;
+    } // submit
+
+    /**
+     * Apply all queued input commands and compute the input of the next step.
+     */
+    private void drainInput() {
+        keysTapped.clear();
+        while (inputQueue.hasNext()) {
+            int code = inputQueue.code();
+            if (watchdog != null) {
+                watchdog.inputApplied(inputQueue.type(), code, inputQueue.x(), inputQueue.y());
+            } // if
+            switch (inputQueue.type()) {
+            case InputQueue.KEY_DOWN:
+                keysPressed.set(code);
+                keysTapped.set(code);
+                break;
+            case InputQueue.KEY_UP:
+                keysPressed.clear(code);
+                break;
+            case InputQueue.POINTER_DOWN:
+                mousePressed = true;
+                pointerX = inputQueue.x();
+                pointerY = inputQueue.y();
+                break;
+            case InputQueue.POINTER_UP:
+                mousePressed = false;
+                break;
+            case InputQueue.ACTION_DOWN:
+                syntheticActions |= code;
+                break;
+            case InputQueue.ACTION_UP:
+                syntheticActions &= ~code;
+                break;
+            case InputQueue.RELEASE_ALL:
+                keysPressed.clear();
+                mousePressed = false;
+                syntheticActions = 0;
+                break;
+            default:
+                logger.warning("unknown input command: " + inputQueue.type());
+            } // switch
+            inputQueue.next();
+        } // while
+        int actions = syntheticActions;
+        for (int i = 0; i < bindingCount; i++) {
+            // a key released right after being pressed still counts for one step
+            if (keysPressed.get(boundKeys[i]) || keysTapped.get(boundKeys[i])) {
+                actions |= boundActions[i];
+            } // if
+        } // for
+        if (mousePressed) {
+            actions |= mouseActions;
+        } // if
+        input.set(actions, pointerX, pointerY);
+    } // drainInput
+
+    /**
+     * Bind an action to a key. While the key is pressed, the action is active in
+     * the {@link TickInput} of each step. A mouse press always activates
+     * {@link TickInput#AIM}.
+     *
+     * @param key    the key
+     * @param action one or more action bits
+     */
+    protected final void bindKey(KeyCode key, int action) {
+        if (bindingCount == boundKeys.length) {
+            boundKeys = Arrays.copyOf(boundKeys, bindingCount * 2);
+            boundActions = Arrays.copyOf(boundActions, bindingCount * 2);
+        } // if
+        boundKeys[bindingCount] = key.getCode();
+        boundActions[bindingCount] = action;
+        bindingCount++;
+    } // bindKey
+
+    /**
+     * Bind an additional action to the mouse. While a mouse button is pressed,
+     * the action is active along with {@link TickInput#AIM}.
+     *
+     * @param action one or more action bits
+     */
+    protected final void bindMouse(int action) {
+        mouseActions |= action;
+    } // bindMouse
+
+    /**
+     * Returns the input of the current step. It is updated right before each
+     * call to {@link #update}, and must only be used by the thread calling it.
+     *
+     * @return the input of the current step
+     */
+    protected final TickInput getInput() {
+        return input;
+    } // getInput
 
     /**
      * Return whether or not a key is currently pressed.
@@ -196,23 +585,110 @@ public abstract class Game extends Region {
             init();
             initialized = true;
         } // if
-        loop.play();
+        running = true;
+        if (watchdog != null) {
+            watchdog.start();
+        } // if
+        if (threaded && simulationThread == null) {
+            Thread thread = new Thread(this::runSimulation, "game-simulation");
+            thread.setDaemon(true);
+            simulationThread = thread;
+            thread.start();
+        } // if
+        updateLoop();
     } // start
 
     /**
-     * Stop the main game loop.
+     * Stop the main game loop. Any partially accumulated step is discarded, and
+     * the simulation thread, if any, terminates after its current step.
      */
     public final void stop() {
-        loop.stop();
+        running = false;
+        updateLoop();
+        if (watchdog != null) {
+            watchdog.stop();
+        } // if
+        Thread thread = simulationThread;
+        if (thread != null) {
+            simulationThread = null;
+            LockSupport.unpark(thread);
+        } else {
+            accumulator = 0;
+        } // if
     } // stop
 
     /**
-     * Pause the main game loop.
+     * Pause the main game loop. Time spent paused is not simulated after the
+     * loop is resumed with {@link #play}.
      */
     public final void pause() {
-        loop.pause();
+        running = false;
+        updateLoop();
     } // pause
 
+    /**
+     * Set whether {@link #update} is called on a dedicated simulation thread
+     * instead of the JavaFX Application Thread. This must be set before the game
+     * is started with {@link #play}.
+     *
+     * @param threaded {@code true} to use a simulation thread
+     * @throws IllegalStateException if the game has already been started
+     */
+    public final void setSimulationThreaded(boolean threaded) {
+        if (initialized) {
+            throw new IllegalStateException("game already started");
+        } // if
+        this.threaded = threaded;
+    } // setSimulationThreaded
+
+    /**
+     * Watch every call to {@link #update} and write a diagnostic report when one
+     * takes longer than the specified multiple of its time budget, the duration
+     * of one frame at the target frame rate. A report contains samples of the
+     * stack of the thread calling {@code update} while it was slow, the
+     * diagnostics added by {@link #addDiagnostics}, recent garbage collections
+     * and the last input commands. Reports are written asynchronously, at most
+     * one per second. This must be set before the game is started with
+     * {@link #play}.
+     *
+     * @param budgetMultiple how many frame budgets a step may take before it is
+     *                       reported, or 0 to not watch the steps
+     * @param directory      the directory to write reports to
+     * @throws IllegalStateException    if the game has already been started
+     * @throws IllegalArgumentException if {@code budgetMultiple} is negative
+     */
+    public final void setWatchdog(double budgetMultiple, Path directory) {
+        if (initialized) {
+            throw new IllegalStateException("game already started");
+        } // if
+        if (budgetMultiple < 0) {
+            throw new IllegalArgumentException("budgetMultiple must not be negative");
+        } // if
+        watchdog = budgetMultiple == 0 ? null
+                : new FrameWatchdog(logger, stepNanos, budgetMultiple, directory);
+    } // setWatchdog
+
+    /**
+     * Add details about the state of the game to the report of a slow step, see
+     * {@link #setWatchdog}. This method is called by the thread that calls
+     * {@link #update}, right after a slow step. The implementation of this method
+     * provided by the {@code Game} class does nothing.
+     *
+     * @param diagnostics the details of the report, by name
+     */
+    protected void addDiagnostics(Map<String, Object> diagnostics) {
+    } // addDiagnostics
+
+    /**
+     * Return whether or not {@link #update} is called on a dedicated simulation
+     * thread.
+     *
+     * @return {@code true} if a simulation thread is used; otherwise {@code false}
+     */
+    public final boolean isSimulationThreaded() {
+        return threaded;
+    } // isSimulationThreaded
+
     /**
      * Set the log level specifying which message levels will be logged by the
      * game's logger.
@@ -223,6 +699,15 @@ public abstract class Game extends Region {
         logger.setLevel(level);
     } // setLogLevel
 
+    /**
+     * Get the fixed amount of game time simulated by each call to {@link #update}.
+     *
+     * @return the duration of one step
+     */
+    public final Duration getTimeStep() {
+        return fpsTarget;
+    } // getTimeStep
+
     /**
      * Get the bounds for this game that were specified when it was constructed.
      * 
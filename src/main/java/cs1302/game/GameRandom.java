@@ -0,0 +1,83 @@
+package cs1302.game;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * A small, fast, seeded random number generator whose whole state is a single
+ * {@code long} that can be read and restored, e.g., to save a game and continue
+ * it later with exactly the same random numbers.
+ * <p>
+ * This is the SplitMix64 algorithm: the state advances by a constant and each
+ * value is a mix of the new state. {@link #split()} derives an independent
+ * generator, so one subsystem can draw numbers without changing the sequence
+ * seen by another one. All other methods of {@link RandomGenerator}, such as
+ * {@code nextInt(int)} and {@code nextDouble(double)}, are derived from
+ * {@link #nextLong()}.
+ * <p>
+ * Instances are not thread-safe.
+ */
+public final class GameRandom implements RandomGenerator {
+
+    /** The odd constant the state advances by; the golden ratio in fixed point. */
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private long state;
+
+    /**
+     * Creates a new generator with the specified seed. Generators created with
+     * the same seed return the same sequence of numbers.
+     *
+     * @param seed the seed
+     */
+    public GameRandom(long seed) {
+        this.state = seed;
+    } // GameRandom
+
+    @Override
+    public long nextLong() {
+        state += GOLDEN_GAMMA;
+        return mix(state);
+    } // nextLong
+
+    /**
+     * Returns a new generator seeded from this one. The sequences of the two
+     * generators are statistically independent.
+     *
+     * @return the new generator
+     */
+    public GameRandom split() {
+        // mixing once more keeps the new state away from this generator's sequence
+        return new GameRandom(mix(nextLong()));
+    } // split
+
+    /**
+     * Returns the state of this generator.
+     *
+     * @return the state
+     */
+    public long getState() {
+        return state;
+    } // getState
+
+    /**
+     * Sets the state of this generator, as returned by {@link #getState()}.
+     *
+     * @param state the state
+     */
+    public void setState(long state) {
+        this.state = state;
+    } // setState
+
+    /**
+     * Returns a well-mixed version of the specified value.
+     *
+     * @param z the value
+     * @return the mixed value
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    } // mix
+
+} // GameRandom
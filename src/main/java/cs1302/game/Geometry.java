@@ -0,0 +1,332 @@
+package cs1302.game;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Polygon geometry for collision detection: splitting a polygon into convex
+ * pieces once, testing convex pieces for overlap with the separating axis
+ * theorem, and clipping line segments against convex pieces.
+ * <p>
+ * Polygons are flat arrays of coordinates, {@code x0, y0, x1, y1, ...}; pieces
+ * are arrays of vertex indices into such an array, so the pieces of an object
+ * can be computed once from its local vertices and applied to its world
+ * vertices at any position and rotation.
+ */
+final class Geometry {
+
+    /** Cross products with a smaller magnitude count as collinear. */
+    private static final double EPSILON = 1e-9;
+
+    private Geometry() {
+    } // Geometry
+
+    /**
+     * Splits a simple polygon, convex or concave, into convex pieces. Repeated
+     * and collinear vertices are skipped. The polygon is first split into
+     * triangles by ear clipping, then neighboring pieces are merged as long as
+     * the result stays convex (Hertel-Mehlhorn), so a convex polygon is a single
+     * piece.
+     *
+     * @param vertices the coordinates of the polygon
+     * @return the pieces, as arrays of vertex indices in counter-clockwise order
+     *         (for a y axis pointing up)
+     */
+    static int[][] decompose(double[] vertices) {
+        List<Integer> ring = cleanRing(vertices);
+        List<int[]> triangles = new ArrayList<>();
+        if (ring.size() < 3) {
+            return new int[0][];
+        } // if
+        // ear clipping
+        while (ring.size() > 3) {
+            int n = ring.size();
+            boolean clipped = false;
+            for (int i = 0; i < n && !clipped; i++) {
+                int a = ring.get((i + n - 1) % n);
+                int b = ring.get(i);
+                int c = ring.get((i + 1) % n);
+                if (isEar(vertices, ring, a, b, c)) {
+                    triangles.add(new int[] { a, b, c });
+                    ring.remove(i);
+                    clipped = true;
+                } // if
+            } // for
+            if (!clipped) {
+                // only for numerically degenerate input: fan out what is left
+                for (int i = 1; i + 1 < ring.size(); i++) {
+                    triangles.add(new int[] { ring.get(0), ring.get(i), ring.get(i + 1) });
+                } // for
+                ring.clear();
+            } // if
+        } // while
+        if (ring.size() == 3) {
+            triangles.add(new int[] { ring.get(0), ring.get(1), ring.get(2) });
+        } // if
+        return merge(vertices, triangles);
+    } // decompose
+
+    /**
+     * Returns {@code true} if the two convex pieces overlap. Pieces that only
+     * touch do not overlap.
+     *
+     * @param a      the coordinates of the first polygon
+     * @param pieceA the vertex indices of a convex piece of the first polygon
+     * @param b      the coordinates of the second polygon
+     * @param pieceB the vertex indices of a convex piece of the second polygon
+     * @return {@code true} if the pieces overlap
+     */
+    static boolean overlaps(double[] a, int[] pieceA, double[] b, int[] pieceB) {
+        return !hasSeparatingEdge(a, pieceA, b, pieceB) && !hasSeparatingEdge(b, pieceB, a, pieceA);
+    } // overlaps
+
+    /**
+     * Returns the earliest point of a line segment that lies inside a convex
+     * piece, as a fraction of the segment, by clipping the segment against the
+     * edges of the piece (Cyrus-Beck).
+     *
+     * @param v     the coordinates of the polygon
+     * @param piece the vertex indices of a convex piece of the polygon
+     * @param x0    the x coordinate of the start of the segment
+     * @param y0    the y coordinate of the start of the segment
+     * @param x1    the x coordinate of the end of the segment
+     * @param y1    the y coordinate of the end of the segment
+     * @return the fraction between 0 and 1, or {@code NaN} if the segment misses
+     *         the piece
+     */
+    static double sweep(double[] v, int[] piece, double x0, double y0, double x1, double y1) {
+        double dx = x1 - x0;
+        double dy = y1 - y0;
+        double enter = 0;
+        double exit = 1;
+        for (int i = 0, j = piece.length - 1; i < piece.length; j = i, i++) {
+            double ax = v[piece[j] * 2];
+            double ay = v[piece[j] * 2 + 1];
+            double ex = v[piece[i] * 2] - ax;
+            double ey = v[piece[i] * 2 + 1] - ay;
+            // the point at t is inside the edge if num + t * den > 0
+            double num = ex * (y0 - ay) - ey * (x0 - ax);
+            double den = ex * dy - ey * dx;
+            if (den == 0) {
+                if (num <= 0) {
+                    return Double.NaN;
+                } // if
+            } else if (den > 0) {
+                enter = Math.max(enter, -num / den);
+            } else {
+                exit = Math.min(exit, -num / den);
+            } // if
+            if (enter >= exit) {
+                return Double.NaN;
+            } // if
+        } // for
+        return enter;
+    } // sweep
+
+    /**
+     * Returns {@code true} if the normal of an edge of the first piece separates
+     * the two pieces.
+     *
+     * @param a      the coordinates of the first polygon
+     * @param pieceA the vertex indices of a convex piece of the first polygon
+     * @param b      the coordinates of the second polygon
+     * @param pieceB the vertex indices of a convex piece of the second polygon
+     * @return {@code true} if the pieces are separated
+     */
+    private static boolean hasSeparatingEdge(double[] a, int[] pieceA, double[] b,
+            int[] pieceB) {
+        for (int i = 0, j = pieceA.length - 1; i < pieceA.length; j = i, i++) {
+            // the normal of the edge j-i
+            double nx = a[pieceA[j] * 2 + 1] - a[pieceA[i] * 2 + 1];
+            double ny = a[pieceA[i] * 2] - a[pieceA[j] * 2];
+            double minA = Double.POSITIVE_INFINITY;
+            double maxA = Double.NEGATIVE_INFINITY;
+            for (int k : pieceA) {
+                double p = a[k * 2] * nx + a[k * 2 + 1] * ny;
+                minA = Math.min(minA, p);
+                maxA = Math.max(maxA, p);
+            } // for
+            double minB = Double.POSITIVE_INFINITY;
+            double maxB = Double.NEGATIVE_INFINITY;
+            for (int k : pieceB) {
+                double p = b[k * 2] * nx + b[k * 2 + 1] * ny;
+                minB = Math.min(minB, p);
+                maxB = Math.max(maxB, p);
+            } // for
+            if (maxA <= minB || maxB <= minA) {
+                return true;
+            } // if
+        } // for
+        return false;
+    } // hasSeparatingEdge
+
+    /**
+     * Returns the cross product of (b - a) and (c - a), which is positive if c is
+     * to the left of the line from a to b (for a y axis pointing up).
+     *
+     * @param v the coordinates of the polygon
+     * @param a index of the first vertex
+     * @param b index of the second vertex
+     * @param c index of the third vertex
+     * @return the cross product
+     */
+    static double cross(double[] v, int a, int b, int c) {
+        return (v[b * 2] - v[a * 2]) * (v[c * 2 + 1] - v[a * 2 + 1])
+                - (v[b * 2 + 1] - v[a * 2 + 1]) * (v[c * 2] - v[a * 2]);
+    } // cross
+
+    /**
+     * Returns the vertex indices of a polygon in counter-clockwise order, without
+     * repeated or collinear vertices.
+     *
+     * @param v the coordinates of the polygon
+     * @return the indices
+     */
+    private static List<Integer> cleanRing(double[] v) {
+        List<Integer> ring = new ArrayList<>();
+        int n = v.length / 2;
+        for (int i = 0; i < n; i++) {
+            if (ring.isEmpty() || !samePoint(v, ring.get(ring.size() - 1), i)) {
+                ring.add(i);
+            } // if
+        } // for
+        if (ring.size() > 1 && samePoint(v, ring.get(0), ring.get(ring.size() - 1))) {
+            ring.remove(ring.size() - 1);
+        } // if
+        // drop collinear vertices until none are left
+        boolean removed = true;
+        while (removed && ring.size() > 3) {
+            removed = false;
+            for (int i = 0; i < ring.size() && ring.size() > 3; i++) {
+                int m = ring.size();
+                if (Math.abs(cross(v, ring.get((i + m - 1) % m), ring.get(i),
+                        ring.get((i + 1) % m))) < EPSILON) {
+                    ring.remove(i);
+                    removed = true;
+                } // if
+            } // for
+        } // while
+        // counter-clockwise: positive signed area
+        double area = 0;
+        for (int i = 0, j = ring.size() - 1; i < ring.size(); j = i, i++) {
+            area += v[ring.get(j) * 2] * v[ring.get(i) * 2 + 1]
+                    - v[ring.get(i) * 2] * v[ring.get(j) * 2 + 1];
+        } // for
+        if (area < 0) {
+            Collections.reverse(ring);
+        } // if
+        return ring;
+    } // cleanRing
+
+    /**
+     * Returns {@code true} if two vertices are at the same point.
+     *
+     * @param v the coordinates of the polygon
+     * @param i index of the first vertex
+     * @param j index of the second vertex
+     * @return {@code true} if the vertices are equal
+     */
+    private static boolean samePoint(double[] v, int i, int j) {
+        return v[i * 2] == v[j * 2] && v[i * 2 + 1] == v[j * 2 + 1];
+    } // samePoint
+
+    /**
+     * Returns {@code true} if the triangle a-b-c is an ear of the remaining
+     * polygon: it turns left at b and contains no other vertex.
+     *
+     * @param v    the coordinates of the polygon
+     * @param ring the remaining vertex indices
+     * @param a    index of the previous vertex
+     * @param b    index of the vertex
+     * @param c    index of the next vertex
+     * @return {@code true} if the triangle is an ear
+     */
+    private static boolean isEar(double[] v, List<Integer> ring, int a, int b, int c) {
+        if (cross(v, a, b, c) <= EPSILON) {
+            return false;
+        } // if
+        for (int p : ring) {
+            if (p != a && p != b && p != c && cross(v, a, b, p) >= 0
+                    && cross(v, b, c, p) >= 0 && cross(v, c, a, p) >= 0) {
+                return false;
+            } // if
+        } // for
+        return true;
+    } // isEar
+
+    /**
+     * Merges neighboring convex pieces as long as the result is convex.
+     *
+     * @param v      the coordinates of the polygon
+     * @param pieces the pieces, counter-clockwise
+     * @return the merged pieces
+     */
+    private static int[][] merge(double[] v, List<int[]> pieces) {
+        boolean merged = true;
+        while (merged) {
+            merged = false;
+            search:
+            for (int p = 0; p < pieces.size(); p++) {
+                for (int q = p + 1; q < pieces.size(); q++) {
+                    int[] joined = join(pieces.get(p), pieces.get(q));
+                    if (joined != null && isConvex(v, joined)) {
+                        pieces.set(p, joined);
+                        pieces.remove(q);
+                        merged = true;
+                        break search;
+                    } // if
+                } // for
+            } // for
+        } // while
+        return pieces.toArray(new int[0][]);
+    } // merge
+
+    /**
+     * Joins two counter-clockwise pieces along a shared edge.
+     *
+     * @param p the first piece
+     * @param q the second piece
+     * @return the joined piece, or {@code null} if the pieces share no edge
+     */
+    private static int[] join(int[] p, int[] q) {
+        for (int i = 0; i < p.length; i++) {
+            int u = p[i];
+            int w = p[(i + 1) % p.length];
+            for (int j = 0; j < q.length; j++) {
+                // a shared edge runs in opposite directions in the two pieces
+                if (q[j] == w && q[(j + 1) % q.length] == u) {
+                    int[] result = new int[p.length + q.length - 2];
+                    int k = 0;
+                    // p from w around to u, then q from u around to w, without the ends
+                    for (int s = 1; s <= p.length; s++) {
+                        result[k++] = p[(i + s) % p.length];
+                    } // for
+                    for (int s = 2; s < q.length; s++) {
+                        result[k++] = q[(j + s) % q.length];
+                    } // for
+                    return result;
+                } // if
+            } // for
+        } // for
+        return null;
+    } // join
+
+    /**
+     * Returns {@code true} if a counter-clockwise piece is convex.
+     *
+     * @param v     the coordinates of the polygon
+     * @param piece the vertex indices of the piece
+     * @return {@code true} if the piece is convex
+     */
+    private static boolean isConvex(double[] v, int[] piece) {
+        int n = piece.length;
+        for (int i = 0; i < n; i++) {
+            if (cross(v, piece[i], piece[(i + 1) % n], piece[(i + 2) % n]) < -EPSILON) {
+                return false;
+            } // if
+        } // for
+        return true;
+    } // isConvex
+
+} // Geometry
@@ -0,0 +1,212 @@
+package cs1302.game;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javafx.scene.input.KeyCode;
+
+/**
+ * A bounded, lock-free queue of input commands with any number of producers
+ * and a single consumer.
+ * <p>
+ * Commands are stored as primitives in preallocated slots, so neither offering
+ * nor consuming a command allocates. Any thread may offer commands, e.g., the
+ * JavaFX Application Thread for key and mouse events, a bot, a replay or a
+ * network peer. The game consumes them on its simulation thread at the start of
+ * each step, see {@link Game#getInput()}. The queue of a game is not published;
+ * commands are added to it with {@link Game#submit}, which also resumes an idle
+ * loop.
+ * <p>
+ * Each slot carries a sequence number that tells whether it is free for the
+ * producer that claimed its position, or holds a command ready for the
+ * consumer.
+ */
+public final class InputQueue {
+
+    /** A key was pressed; {@code code} is the key code. */
+    public static final int KEY_DOWN = 1;
+    /** A key was released; {@code code} is the key code. */
+    public static final int KEY_UP = 2;
+    /** The pointer was pressed at {@code x}, {@code y}. */
+    public static final int POINTER_DOWN = 3;
+    /** The pointer was released. */
+    public static final int POINTER_UP = 4;
+    /** A synthetic action started; {@code code} is the action bit. */
+    public static final int ACTION_DOWN = 5;
+    /** A synthetic action ended; {@code code} is the action bit. */
+    public static final int ACTION_UP = 6;
+    /** All keys, actions and the pointer were released. */
+    public static final int RELEASE_ALL = 7;
+
+    private final int mask;
+    private final AtomicLongArray sequence;
+    private final int[] types;
+    private final int[] codes;
+    private final double[] xs;
+    private final double[] ys;
+    /** Next position to be claimed by a producer. */
+    private final AtomicLong tail = new AtomicLong();
+    /** Next position to be consumed, only used by the consumer. */
+    private long head;
+
+    /**
+     * Creates a new queue that can hold at least the specified number of
+     * commands.
+     *
+     * @param capacity the minimum capacity
+     * @throws IllegalArgumentException if {@code capacity} is not positive
+     */
+    public InputQueue(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("invalid capacity: " + capacity);
+        } // if
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        } // if
+        mask = size - 1;
+        sequence = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequence.set(i, i);
+        } // for
+        types = new int[size];
+        codes = new int[size];
+        xs = new double[size];
+        ys = new double[size];
+    } // InputQueue
+
+    /**
+     * Adds a command to this queue. This method may be called from any thread.
+     *
+     * @param type one of the command types declared by this class
+     * @param code the key code or action bit, if any
+     * @param x    the pointer x coordinate, if any
+     * @param y    the pointer y coordinate, if any
+     * @return {@code true} if the command was added, {@code false} if the queue is full
+     */
+    public boolean offer(int type, int code, double x, double y) {
+        long pos = tail.get();
+        while (true) {
+            long diff = sequence.get((int) (pos & mask)) - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    break;
+                } // if
+                pos = tail.get();
+            } else if (diff < 0) {
+                // the consumer has not freed this slot yet
+                return false;
+            } else {
+                // another producer claimed this position
+                pos = tail.get();
+            } // if
+        } // while
+        int i = (int) (pos & mask);
+        types[i] = type;
+        codes[i] = code;
+        xs[i] = x;
+        ys[i] = y;
+        // publish the slot to the consumer
+        sequence.set(i, pos + 1);
+        return true;
+    } // offer
+
+    /**
+     * Adds a key press or release to this queue.
+     *
+     * @param key  the key
+     * @param down {@code true} if the key was pressed, {@code false} if released
+     * @return {@code true} if the command was added, {@code false} if the queue is full
+     */
+    public boolean offerKey(KeyCode key, boolean down) {
+        return offer(down ? KEY_DOWN : KEY_UP, key.getCode(), 0, 0);
+    } // offerKey
+
+    /**
+     * Adds the start or end of a synthetic action to this queue. Actions are
+     * applied directly to the per-step action mask, see {@link TickInput}.
+     *
+     * @param action the action bit
+     * @param down   {@code true} if the action starts, {@code false} if it ends
+     * @return {@code true} if the command was added, {@code false} if the queue is full
+     */
+    public boolean offerAction(int action, boolean down) {
+        return offer(down ? ACTION_DOWN : ACTION_UP, action, 0, 0);
+    } // offerAction
+
+    /**
+     * Adds a pointer press to this queue.
+     *
+     * @param x the x coordinate of the pointer, relative to the game
+     * @param y the y coordinate of the pointer, relative to the game
+     * @return {@code true} if the command was added, {@code false} if the queue is full
+     */
+    public boolean offerPointerDown(double x, double y) {
+        return offer(POINTER_DOWN, 0, x, y);
+    } // offerPointerDown
+
+    /**
+     * Adds a pointer release to this queue.
+     *
+     * @return {@code true} if the command was added, {@code false} if the queue is full
+     */
+    public boolean offerPointerUp() {
+        return offer(POINTER_UP, 0, 0, 0);
+    } // offerPointerUp
+
+    /**
+     * Returns whether a command is ready to be consumed. Only the consumer may
+     * call this method.
+     *
+     * @return {@code true} if {@link #type()} and friends describe a command
+     */
+    boolean hasNext() {
+        return sequence.get((int) (head & mask)) == head + 1;
+    } // hasNext
+
+    /**
+     * Returns the type of the next command. Only valid if {@link #hasNext()}.
+     *
+     * @return the command type
+     */
+    int type() {
+        return types[(int) (head & mask)];
+    } // type
+
+    /**
+     * Returns the key code or action bit of the next command.
+     *
+     * @return the code
+     */
+    int code() {
+        return codes[(int) (head & mask)];
+    } // code
+
+    /**
+     * Returns the pointer x coordinate of the next command.
+     *
+     * @return the x coordinate
+     */
+    double x() {
+        return xs[(int) (head & mask)];
+    } // x
+
+    /**
+     * Returns the pointer y coordinate of the next command.
+     *
+     * @return the y coordinate
+     */
+    double y() {
+        return ys[(int) (head & mask)];
+    } // y
+
+    /**
+     * Frees the slot of the next command for the producers. Only the consumer
+     * may call this method.
+     */
+    void next() {
+        sequence.set((int) (head & mask), head + mask + 1);
+        head++;
+    } // next
+
+} // InputQueue
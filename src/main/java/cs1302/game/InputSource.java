@@ -0,0 +1,67 @@
+package cs1302.game;
+
+
+/**
+ * A source of the input for the steps of an {@link AsteroidsWorld}, e.g., a
+ * player or a bot.
+ * <p>
+ * Before each step, the source is asked to fill in the {@link TickInput} for that
+ * step. A source may look at the world, but must not change it.
+ */
+@FunctionalInterface
+public interface InputSource {
+
+    /**
+     * Fills in the input for the next step of the specified world.
+     *
+     * @param world the world about to be stepped
+     * @param input the input to fill in
+     */
+    void poll(AsteroidsWorld world, TickInput input);
+
+    /**
+     * Returns a source that only confirms pauses; the ship just sits there.
+     *
+     * @return the input source
+     */
+    static InputSource idle() {
+        return (world, input) -> input.set(TickInput.CONFIRM, 0, 0);
+    } // idle
+
+    /**
+     * Returns a source that keeps turning right and firing, and confirms every
+     * pause.
+     *
+     * @return the input source
+     */
+    static InputSource spinner() {
+        return (world, input) -> input.set(TickInput.ROTATE_RIGHT | TickInput.FIRE
+                | TickInput.CONFIRM, 0, 0);
+    } // spinner
+
+    /**
+     * Returns a source that presses random combinations of thrust, turning and
+     * firing, keeping each combination for a random number of steps, and
+     * confirms every pause. The same seed gives the same input for the same
+     * world.
+     *
+     * @param seed the seed of the random number generator
+     * @return the input source
+     */
+    static InputSource random(long seed) {
+        GameRandom rnd = new GameRandom(seed);
+        int[] state = new int[2]; // current actions, steps left
+        return (world, input) -> {
+            if (world.isWaitingForInteraction()) {
+                input.set(TickInput.CONFIRM, 0, 0);
+                return;
+            } // if
+            if (state[1]-- <= 0) {
+                state[0] = rnd.nextInt(TickInput.FIRE << 1);
+                state[1] = 5 + rnd.nextInt(40);
+            } // if
+            input.set(state[0], 0, 0);
+        };
+    } // random
+
+} // InputSource
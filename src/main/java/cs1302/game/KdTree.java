@@ -0,0 +1,300 @@
+package cs1302.game;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A 2-d tree over the centers of a list of objects, answering nearest-neighbor
+ * and radius queries in about logarithmic time.
+ * <p>
+ * The tree is stored implicitly in an array of list indices: the middle element
+ * of each range is the splitting point, the elements before it are not greater
+ * along the splitting axis, and the elements after it are not smaller. The
+ * axis alternates between x and y with the depth. Building partitions each
+ * range around its median with a quickselect, in O(n log n) overall, and reuses
+ * the arrays of the previous build.
+ * <p>
+ * Distances are plain Euclidean distances between centers; like collisions,
+ * they do not wrap around the edges of the game area. Query results are kept
+ * until the next query, see {@link #get}.
+ */
+final class KdTree {
+
+    private int[] order = new int[16]; // list indices, in tree order
+    private double[] xs = new double[16]; // centers, by list index
+    private double[] ys = new double[16];
+    private int size = 0;
+    private int[] result = new int[16]; // list indices found by the last query
+    private double[] resultDist = new double[16]; // their squared distances
+    private int resultCount = 0;
+
+    /**
+     * Rebuilds the tree over the current centers of the specified objects.
+     *
+     * @param objects the objects
+     */
+    void build(List<? extends AnimatedObject> objects) {
+        size = objects.size();
+        if (order.length < size) {
+            int n = Math.max(size, order.length * 2);
+            order = new int[n];
+            xs = new double[n];
+            ys = new double[n];
+        } // if
+        for (int i = 0; i < size; i++) {
+            AnimatedObject o = objects.get(i);
+            order[i] = i;
+            xs[i] = o.getCenterX();
+            ys[i] = o.getCenterY();
+        } // for
+        build(0, size, false);
+    } // build
+
+    /**
+     * Makes room for the specified number of objects, so building the tree over
+     * them and querying it does not allocate.
+     *
+     * @param n the number of objects
+     */
+    void reserve(int n) {
+        if (order.length < n) {
+            int length = Math.max(n, order.length * 2);
+            order = Arrays.copyOf(order, length);
+            xs = Arrays.copyOf(xs, length);
+            ys = Arrays.copyOf(ys, length);
+        } // if
+        ensureResultCapacity(n);
+    } // reserve
+
+    /**
+     * Returns the number of objects in the tree.
+     *
+     * @return the number of objects
+     */
+    int size() {
+        return size;
+    } // size
+
+    /**
+     * Finds the objects closest to a point.
+     *
+     * @param x the x coordinate of the point
+     * @param y the y coordinate of the point
+     * @param k the maximum number of objects to find
+     * @return the number of objects found, at most {@code k}; they are sorted by
+     *         distance, nearest first
+     */
+    int nearest(double x, double y, int k) {
+        ensureResultCapacity(k);
+        resultCount = 0;
+        if (k > 0) {
+            nearest(0, size, false, x, y, k);
+        } // if
+        return resultCount;
+    } // nearest
+
+    /**
+     * Finds the objects whose centers are closer to a point than the specified
+     * radius.
+     *
+     * @param x      the x coordinate of the point
+     * @param y      the y coordinate of the point
+     * @param radius the radius
+     * @return the number of objects found; they are sorted by distance, nearest
+     *         first
+     */
+    int within(double x, double y, double radius) {
+        resultCount = 0;
+        within(0, size, false, x, y, radius * radius);
+        // insertion sort, the result is usually small
+        for (int i = 1; i < resultCount; i++) {
+            int index = result[i];
+            double d = resultDist[i];
+            int j = i - 1;
+            while (j >= 0 && resultDist[j] > d) {
+                result[j + 1] = result[j];
+                resultDist[j + 1] = resultDist[j];
+                j--;
+            } // while
+            result[j + 1] = index;
+            resultDist[j + 1] = d;
+        } // for
+        return resultCount;
+    } // within
+
+    /**
+     * Returns an object found by the last query.
+     *
+     * @param i the number of the result, starting with the nearest one
+     * @return the index of the object in the list the tree was built from
+     */
+    int get(int i) {
+        return result[i];
+    } // get
+
+    /**
+     * Arranges a range of {@link #order} as a subtree.
+     *
+     * @param from  the first position of the range
+     * @param to    the position after the range
+     * @param yAxis whether the range is split along the y axis
+     */
+    private void build(int from, int to, boolean yAxis) {
+        while (to - from > 1) {
+            int mid = (from + to) >>> 1;
+            select(from, to, mid, yAxis ? ys : xs);
+            build(from, mid, !yAxis);
+            // the upper half continues in this loop
+            from = mid + 1;
+            yAxis = !yAxis;
+        } // while
+    } // build
+
+    /**
+     * Partially sorts a range of {@link #order} so that position {@code k} holds
+     * the element it would hold if the range were sorted by the specified
+     * coordinates, with smaller or equal elements before and larger or equal
+     * elements after it.
+     *
+     * @param from   the first position of the range
+     * @param to     the position after the range
+     * @param k      the position to select
+     * @param coords the coordinates to sort by
+     */
+    private void select(int from, int to, int k, double[] coords) {
+        int lo = from;
+        int hi = to - 1;
+        while (lo < hi) {
+            double pivot = coords[order[(lo + hi) >>> 1]];
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (coords[order[i]] < pivot) {
+                    i++;
+                } // while
+                while (coords[order[j]] > pivot) {
+                    j--;
+                } // while
+                if (i <= j) {
+                    int t = order[i];
+                    order[i] = order[j];
+                    order[j] = t;
+                    i++;
+                    j--;
+                } // if
+            } // while
+            if (k <= j) {
+                hi = j;
+            } else if (k >= i) {
+                lo = i;
+            } else {
+                return;
+            } // if
+        } // while
+    } // select
+
+    /**
+     * Searches a subtree for the nearest objects, keeping the best ones found
+     * so far sorted in the result.
+     *
+     * @param from  the first position of the subtree
+     * @param to    the position after the subtree
+     * @param yAxis whether the subtree is split along the y axis
+     * @param x     the x coordinate of the point
+     * @param y     the y coordinate of the point
+     * @param k     the maximum number of objects to find
+     */
+    private void nearest(int from, int to, boolean yAxis, double x, double y, int k) {
+        if (from >= to) {
+            return;
+        } // if
+        int mid = (from + to) >>> 1;
+        int index = order[mid];
+        double dx = xs[index] - x;
+        double dy = ys[index] - y;
+        offer(index, dx * dx + dy * dy, k);
+        double delta = yAxis ? -dy : -dx; // from the splitting point to the query
+        // the side of the query first, the other side only if it can be closer
+        if (delta < 0) {
+            nearest(from, mid, !yAxis, x, y, k);
+            if (resultCount < k || delta * delta < resultDist[resultCount - 1]) {
+                nearest(mid + 1, to, !yAxis, x, y, k);
+            } // if
+        } else {
+            nearest(mid + 1, to, !yAxis, x, y, k);
+            if (resultCount < k || delta * delta < resultDist[resultCount - 1]) {
+                nearest(from, mid, !yAxis, x, y, k);
+            } // if
+        } // if
+    } // nearest
+
+    /**
+     * Searches a subtree for the objects within a radius.
+     *
+     * @param from    the first position of the subtree
+     * @param to      the position after the subtree
+     * @param yAxis   whether the subtree is split along the y axis
+     * @param x       the x coordinate of the point
+     * @param y       the y coordinate of the point
+     * @param radius2 the square of the radius
+     */
+    private void within(int from, int to, boolean yAxis, double x, double y, double radius2) {
+        if (from >= to) {
+            return;
+        } // if
+        int mid = (from + to) >>> 1;
+        int index = order[mid];
+        double dx = xs[index] - x;
+        double dy = ys[index] - y;
+        double d = dx * dx + dy * dy;
+        if (d < radius2) {
+            ensureResultCapacity(resultCount + 1);
+            result[resultCount] = index;
+            resultDist[resultCount] = d;
+            resultCount++;
+        } // if
+        double delta = yAxis ? -dy : -dx;
+        if (delta < 0 || delta * delta < radius2) {
+            within(from, mid, !yAxis, x, y, radius2);
+        } // if
+        if (delta >= 0 || delta * delta < radius2) {
+            within(mid + 1, to, !yAxis, x, y, radius2);
+        } // if
+    } // within
+
+    /**
+     * Adds an object to the sorted result of a nearest query if it is among the
+     * {@code k} nearest ones so far.
+     *
+     * @param index the list index of the object
+     * @param d     the squared distance of the object
+     * @param k     the maximum number of objects to find
+     */
+    private void offer(int index, double d, int k) {
+        if (resultCount == k && d >= resultDist[k - 1]) {
+            return;
+        } // if
+        int j = resultCount < k ? resultCount++ : k - 1;
+        while (j > 0 && resultDist[j - 1] > d) {
+            result[j] = result[j - 1];
+            resultDist[j] = resultDist[j - 1];
+            j--;
+        } // while
+        result[j] = index;
+        resultDist[j] = d;
+    } // offer
+
+    /**
+     * Grows the result arrays if needed.
+     *
+     * @param capacity the number of results needed
+     */
+    private void ensureResultCapacity(int capacity) {
+        if (result.length < capacity) {
+            int n = Math.max(capacity, result.length * 2);
+            result = Arrays.copyOf(result, n);
+            resultDist = Arrays.copyOf(resultDist, n);
+        } // if
+    } // ensureResultCapacity
+
+} // KdTree
@@ -0,0 +1,64 @@
+package cs1302.game;
+
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Rectangle;
+import javafx.scene.shape.Shape;
+import javafx.util.Duration;
+
+/**
+ * A homing projectile. At every update, a missile turns towards the nearest
+ * asteroid by at most {@link #TURN_RATE} degrees, keeping its speed. The
+ * nearest asteroid is found with the spatial index of the world, so many
+ * missiles can be in flight at once.
+ */
+public class Missile extends Projectile {
+
+    /** The kind written by {@link #save}. */
+    static final byte KIND = 1;
+    /** The most a missile turns in one update, in degrees. */
+    public static final double TURN_RATE = 5;
+
+    /**
+     * Creates a new Missile with the specified world and display time. Negative
+     * display time is treated as 0. The speed of the missile is its max speed
+     * when it is launched.
+     * 
+     * @param world       the world containing this missile
+     * @param displayTime the display time
+     * @throws NullPointerException if world is null
+     */
+    public Missile(AsteroidsWorld world, Duration displayTime) {
+        super(world, displayTime);
+    }
+
+    @Override
+    byte getKind() {
+        return KIND;
+    }
+
+    @Override
+    public void update() {
+        Asteroid target = world.findNearestAsteroid(getCenterX(), getCenterY());
+        if (target != null) {
+            double heading = Math.toDegrees(Math.atan2(getVelocityY(), getVelocityX()));
+            double bearing = Math.toDegrees(Math.atan2(target.getCenterY() - getCenterY(),
+                    target.getCenterX() - getCenterX()));
+            // the shorter way around, in the [-180, 180] range
+            double turn = Math.IEEEremainder(bearing - heading, 360);
+            turn = Math.max(-TURN_RATE, Math.min(TURN_RATE, turn));
+            double rad = Math.toRadians(heading + turn);
+            double speed = getMaxSpeed();
+            setVelocity(Math.cos(rad) * speed, Math.sin(rad) * speed);
+            rotate(turn);
+        }
+        super.update();
+    }
+
+    @Override
+    public Shape createView() {
+        Rectangle view = new Rectangle(4, 4);
+        view.setFill(Color.ORANGE);
+        return view;
+    }
+
+}
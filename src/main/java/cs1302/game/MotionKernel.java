@@ -0,0 +1,126 @@
+package cs1302.game;
+
+/**
+ * The loops that move many objects of an {@link EntityStore} at once and that
+ * screen pairs of objects by their bounding circles.
+ * <p>
+ * There are two implementations with identical results: {@link #scalar()},
+ * plain Java loops, and {@link #vector()}, which uses the incubating Vector API
+ * to process several objects per instruction. The Vector API is only available
+ * if the {@code jdk.incubator.vector} module is added when starting the JVM,
+ * e.g., with {@code --add-modules jdk.incubator.vector}. It is slower than the
+ * scalar kernel for the worlds of this game, so it is only used if asked for,
+ * see {@link #getDefault()}. Both kernels do the
+ * arithmetic in the same order, and work that depends on the order of the
+ * objects, like handing out motion ids, is left to the caller, so the choice
+ * does not change the simulation.
+ */
+public abstract class MotionKernel {
+
+    /**
+     * Pairs closer than the sum of their radii times this are kept by
+     * {@link #screen}, so rounding never drops a pair an exact test would keep.
+     */
+    static final double SCREEN_SLACK = 1 + 1e-6;
+
+    private static final MotionKernel SCALAR = new ScalarMotionKernel();
+    private static final MotionKernel VECTOR = loadVector();
+    /** Whether new worlds use the vector kernel, if it is available. */
+    private static final boolean VECTOR_DEFAULT = Boolean.getBoolean("cs1302.game.vectorKernel");
+
+    /**
+     * Returns the kernel implemented with plain Java loops.
+     *
+     * @return the scalar kernel
+     */
+    public static MotionKernel scalar() {
+        return SCALAR;
+    } // scalar
+
+    /**
+     * Returns the kernel implemented with the Vector API, if it is available.
+     *
+     * @return the vector kernel, or {@code null} if the Vector API is not
+     *         available
+     */
+    public static MotionKernel vector() {
+        return VECTOR;
+    } // vector
+
+    /**
+     * Returns the kernel used by new worlds: the scalar kernel, unless the JVM
+     * is started with {@code -Dcs1302.game.vectorKernel=true} and the vector
+     * kernel is available. The choice is made once, when this class is loaded.
+     * <p>
+     * The vector kernel is not the default because it does not pay off here:
+     * with 1k to 100k asteroids, MotionBenchmark measures it at about half to
+     * six sevenths of the speed of the scalar kernel.
+     *
+     * @return the default kernel
+     */
+    public static MotionKernel getDefault() {
+        return VECTOR_DEFAULT && VECTOR != null ? VECTOR : SCALAR;
+    } // getDefault
+
+    /**
+     * Creates the vector kernel if the Vector API module is present.
+     *
+     * @return the vector kernel, or {@code null}
+     */
+    private static MotionKernel loadVector() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return null;
+        } // if
+        try {
+            return new VectorMotionKernel();
+        } catch (LinkageError e) {
+            return null;
+        } // try
+    } // loadVector
+
+    /**
+     * Returns a short name of this kernel, e.g., for diagnostics.
+     *
+     * @return the name
+     */
+    public abstract String getName();
+
+    /**
+     * Turns and moves the objects in slots {@code slots[from]} to
+     * {@code slots[to - 1]}, with the same result as
+     * {@link EntityStore#advance(int)} for each of them; the changes of the
+     * motion of {@code slots[k]} are written to {@code changes[k]}, to be passed
+     * to {@link EntityStore#startMotions} in order afterwards. Only the slots in
+     * the range are written, so disjoint ranges may be integrated by different
+     * threads at the same time.
+     *
+     * @param store   the store
+     * @param slots   the slots
+     * @param from    the first index into {@code slots}
+     * @param to      the index after the last one
+     * @param changes receives the changes of the motions
+     */
+    abstract void integrate(EntityStore store, int[] slots, int from, int to, byte[] changes);
+
+    /**
+     * Finds the pairs of objects whose bounding circles may overlap. Pair
+     * {@code k} consists of the objects in slots {@code first[k]} and
+     * {@code second[k]}; the numbers of the pairs kept are written to
+     * {@code kept} in increasing order. Pairs that are barely apart may be kept
+     * as well, see {@link #SCREEN_SLACK}.
+     *
+     * @param store  the store
+     * @param first  the slots of the first objects of the pairs
+     * @param second the slots of the second objects of the pairs
+     * @param count  the number of pairs
+     * @param kept   receives the numbers of the pairs kept
+     * @return the number of pairs kept
+     */
+    abstract int screen(EntityStore store, int[] first, int[] second, int count, int[] kept);
+
+    @Override
+    public String toString() {
+        return getName();
+    } // toString
+
+} // MotionKernel
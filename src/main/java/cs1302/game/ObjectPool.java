@@ -0,0 +1,106 @@
+package cs1302.game;
+
+/**
+ * A bounded pool of objects that are no longer used and may be reused instead
+ * of creating new ones. Objects are reused in last-in, first-out order; the
+ * user resets their state. The pool counts how often a request was served
+ * from it and how often a new object had to be created.
+ *
+ * @param <T> the type of the objects
+ */
+public final class ObjectPool<T> {
+
+    private final Object[] free;
+    private int size;
+    private long hits;
+    private long misses;
+
+    /**
+     * Creates an empty pool.
+     *
+     * @param capacity the most objects kept
+     * @throws IllegalArgumentException if {@code capacity} is negative
+     */
+    ObjectPool(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("negative capacity: " + capacity);
+        } // if
+        free = new Object[capacity];
+    } // ObjectPool
+
+    /**
+     * Takes an object out of this pool.
+     *
+     * @return the object, or {@code null} if this pool is empty, in which case
+     *         the caller creates a new object
+     */
+    @SuppressWarnings("unchecked")
+    T take() {
+        if (size == 0) {
+            misses++;
+            return null;
+        } // if
+        hits++;
+        T object = (T) free[--size];
+        free[size] = null;
+        return object;
+    } // take
+
+    /**
+     * Puts an object that is no longer used into this pool, unless it is full.
+     *
+     * @param object the object
+     * @return {@code true} if the object was kept; {@code false} if it is left to
+     *         the garbage collector
+     */
+    boolean give(T object) {
+        if (size == free.length) {
+            return false;
+        } // if
+        free[size++] = object;
+        return true;
+    } // give
+
+    /**
+     * Returns the number of objects in this pool.
+     *
+     * @return the number of objects
+     */
+    public int size() {
+        return size;
+    } // size
+
+    /**
+     * Returns the most objects this pool keeps.
+     *
+     * @return the capacity
+     */
+    public int getCapacity() {
+        return free.length;
+    } // getCapacity
+
+    /**
+     * Returns how many requests were served with an object from this pool.
+     *
+     * @return the number of hits
+     */
+    public long getHits() {
+        return hits;
+    } // getHits
+
+    /**
+     * Returns how many requests found this pool empty.
+     *
+     * @return the number of misses
+     */
+    public long getMisses() {
+        return misses;
+    } // getMisses
+
+    @Override
+    public String toString() {
+        return String.format("%d hits, %d misses, %d of %d kept", hits, misses, size,
+                free.length);
+    } // toString
+
+} // ObjectPool
@@ -0,0 +1,182 @@
+package cs1302.game;
+
+import java.util.Arrays;
+
+/**
+ * Remembers, for pairs of objects, the last step at which they certainly cannot
+ * touch yet, so their collision checks can be skipped until then.
+ * <p>
+ * Two objects whose bounding circles are {@code d} apart, and whose speeds add
+ * up to at most {@code v} per step, need at least {@code d / v} steps to touch.
+ * Pairs are identified by the {@link AnimatedObject#getMotionId() motion ids} of
+ * the objects, which change whenever an object jumps, so a pair whose objects
+ * did not move continuously is never found. Entries that have run out are
+ * dropped when the table fills up; the table only allocates when it grows.
+ * <p>
+ * The cache counts how many checks it was asked about and how many it could
+ * skip.
+ */
+final class PairCache {
+
+    private static final long EMPTY = -1;
+
+    private long[] keys;
+    private long[] until; // last step of each entry at which the pair can be skipped
+    private long[] spareKeys; // the table is rebuilt into these, then they are swapped
+    private long[] spareUntil;
+    private int size = 0;
+    private long queries = 0;
+    private long hits = 0;
+
+    /**
+     * Creates an empty cache.
+     *
+     * @param capacity the initial number of entries, a power of 2
+     */
+    PairCache(int capacity) {
+        keys = new long[capacity];
+        until = new long[capacity];
+        spareKeys = new long[capacity];
+        spareUntil = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+    } // PairCache
+
+    /**
+     * Returns {@code true} if the check of a pair can be skipped at the specified
+     * step.
+     *
+     * @param a    the motion id of the first object
+     * @param b    the motion id of the second object
+     * @param tick the step
+     * @return {@code true} if the objects cannot touch at the step
+     */
+    boolean skip(int a, int b, long tick) {
+        queries++;
+        long key = key(a, b);
+        int mask = keys.length - 1;
+        for (int i = slot(key); keys[i] != EMPTY; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                if (tick <= until[i]) {
+                    hits++;
+                    return true;
+                } // if
+                return false;
+            } // if
+        } // for
+        return false;
+    } // skip
+
+    /**
+     * Remembers that a pair cannot touch until after the specified step.
+     *
+     * @param a     the motion id of the first object
+     * @param b     the motion id of the second object
+     * @param tick  the current step; used to drop entries that have run out
+     * @param limit the last step at which the pair can be skipped
+     */
+    void put(int a, int b, long tick, long limit) {
+        if (size * 2 >= keys.length) {
+            rebuild(tick);
+        } // if
+        long key = key(a, b);
+        int mask = keys.length - 1;
+        int i = slot(key);
+        while (keys[i] != EMPTY && keys[i] != key) {
+            i = (i + 1) & mask;
+        } // while
+        if (keys[i] == EMPTY) {
+            keys[i] = key;
+            size++;
+        } // if
+        until[i] = limit;
+    } // put
+
+    /**
+     * Removes all entries. The counters are kept.
+     */
+    void clear() {
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+    } // clear
+
+    /**
+     * Returns the number of pairs the cache was asked about.
+     *
+     * @return the number of queries
+     */
+    long getQueries() {
+        return queries;
+    } // getQueries
+
+    /**
+     * Returns the number of pair checks the cache allowed to skip.
+     *
+     * @return the number of hits
+     */
+    long getHits() {
+        return hits;
+    } // getHits
+
+    /**
+     * Drops the entries that have run out at the specified step, and grows the
+     * table if it is still half full.
+     *
+     * @param tick the current step
+     */
+    private void rebuild(long tick) {
+        long[] oldKeys = keys;
+        long[] oldUntil = until;
+        int live = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY && oldUntil[i] >= tick) {
+                live++;
+            } // if
+        } // for
+        int capacity = live * 4 > oldKeys.length ? oldKeys.length * 2 : oldKeys.length;
+        if (spareKeys.length != capacity) {
+            spareKeys = new long[capacity];
+            spareUntil = new long[capacity];
+        } // if
+        keys = spareKeys;
+        until = spareUntil;
+        spareKeys = oldKeys;
+        spareUntil = oldUntil;
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY && oldUntil[i] >= tick) {
+                int j = slot(oldKeys[i]);
+                while (keys[j] != EMPTY) {
+                    j = (j + 1) & mask;
+                } // while
+                keys[j] = oldKeys[i];
+                until[j] = oldUntil[i];
+                size++;
+            } // if
+        } // for
+    } // rebuild
+
+    /**
+     * Returns the first slot to look at for a key.
+     *
+     * @param key the key
+     * @return the slot
+     */
+    private int slot(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & (keys.length - 1);
+    } // slot
+
+    /**
+     * Returns the key of a pair.
+     *
+     * @param a the motion id of the first object
+     * @param b the motion id of the second object
+     * @return the key
+     */
+    private static long key(int a, int b) {
+        return (long) a << 32 | (b & 0xFFFFFFFFL);
+    } // key
+
+} // PairCache
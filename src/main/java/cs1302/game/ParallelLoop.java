@@ -0,0 +1,104 @@
+package cs1302.game;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs a loop over a range of indices in chunks on a {@link ForkJoinPool}. The
+ * range is split in halves until the pieces are small enough; the chunks run
+ * in no particular order, so the body must only write state that belongs to
+ * its own indices. The call returns when all chunks are done, and everything
+ * they wrote is visible to the caller then.
+ */
+final class ParallelLoop {
+
+    /**
+     * The body of a loop.
+     */
+    @FunctionalInterface
+    interface Body {
+
+        /**
+         * Runs the loop for the indices from {@code from} to {@code to - 1}.
+         *
+         * @param from the first index
+         * @param to   the index after the last one
+         */
+        void run(int from, int to);
+
+    } // Body
+
+    /** Chunks per thread of the pool, so threads that finish early can help. */
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private final ForkJoinPool pool;
+    /** The smallest number of indices worth a chunk of its own. */
+    private final int grain;
+
+    /**
+     * Creates a loop that runs on the specified pool.
+     *
+     * @param pool  the pool
+     * @param grain the smallest number of indices worth a chunk of its own
+     */
+    ParallelLoop(ForkJoinPool pool, int grain) {
+        this.pool = pool;
+        this.grain = grain;
+    } // ParallelLoop
+
+    /**
+     * Runs the body for the indices from 0 to {@code count - 1}. Small ranges run
+     * on the calling thread.
+     *
+     * @param count the number of indices
+     * @param body  the body
+     */
+    void run(int count, Body body) {
+        int chunk = Math.max(grain, count / (pool.getParallelism() * CHUNKS_PER_THREAD) + 1);
+        if (count <= chunk) {
+            body.run(0, count);
+        } else {
+            pool.invoke(new Chunk(body, 0, count, chunk));
+        } // if
+    } // run
+
+    /**
+     * A part of the range, which is split until it is no larger than a chunk.
+     */
+    private static final class Chunk extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient Body body;
+        private final int from;
+        private final int to;
+        private final int chunk;
+
+        /**
+         * Creates a part of the range.
+         *
+         * @param body  the body
+         * @param from  the first index
+         * @param to    the index after the last one
+         * @param chunk the largest number of indices run without splitting
+         */
+        Chunk(Body body, int from, int to, int chunk) {
+            this.body = body;
+            this.from = from;
+            this.to = to;
+            this.chunk = chunk;
+        } // Chunk
+
+        @Override
+        protected void compute() {
+            if (to - from <= chunk) {
+                body.run(from, to);
+                return;
+            } // if
+            int middle = (from + to) >>> 1;
+            invokeAll(new Chunk(body, from, middle, chunk), new Chunk(body, middle, to, chunk));
+        } // compute
+
+    } // Chunk
+
+} // ParallelLoop
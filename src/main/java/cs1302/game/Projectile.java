@@ -1,31 +1,50 @@
 package cs1302.game;
 
+import java.nio.ByteBuffer;
+
 import javafx.scene.paint.Color;
 import javafx.scene.shape.Rectangle;
+import javafx.scene.shape.Shape;
+import javafx.util.Duration;
 
 /**
  * Class representing a projectile. Projectiles have a limited display time, and
- * they should disappear from the screen if {@link #getTimeLeft()} returns 0.
+ * they should disappear from the screen if {@link #isExpired()} returns
+ * {@code true}.
  * 
  */
 public class Projectile extends AnimatedObject {
 
-    /** Time left from display time. */
-    private int timeLeft;
+    /** The kind written by {@link #save}. */
+    static final byte KIND = 0;
+    /** A 4x4 square. */
+    private static final double[] VERTICES = { 0, 0, 4, 0, 4, 4, 0, 4 };
+
+    /** Time left from display time, in milliseconds. */
+    private double timeLeft;
 
     /**
-     * Creates a new Projectile with the specified Game end display time. Negative
+     * Creates a new Projectile with the specified world and display time. Negative
      * display time is treated as 0.
      * 
-     * @param game        the game containing this projectile
+     * @param world       the world containing this projectile
      * @param displayTime the display time
-     * @throws NullPointerException if game is null
+     * @throws NullPointerException if world is null
      */
-    public Projectile(Game game, int displayTime) {
-        super(game);
-        shape = new Rectangle(4, 4);
-        shape.setFill(Color.AQUAMARINE);
-        timeLeft = Math.max(0, displayTime);
+    public Projectile(AsteroidsWorld world, Duration displayTime) {
+        super(world, VERTICES);
+        timeLeft = Math.max(0, displayTime.toMillis());
+    }
+
+    /**
+     * Makes this projectile, which was removed from its world, a new one with the
+     * specified display time, see {@link AnimatedObject#reattach()}.
+     * 
+     * @param displayTime the display time
+     */
+    void reset(Duration displayTime) {
+        reattach();
+        timeLeft = Math.max(0, displayTime.toMillis());
     }
 
     /**
@@ -33,8 +52,17 @@ public class Projectile extends AnimatedObject {
      * 
      * @return the time left
      */
-    public int getTimeLeft() {
-        return timeLeft;
+    public Duration getTimeLeft() {
+        return Duration.millis(timeLeft);
+    }
+
+    /**
+     * Returns whether this projectile's display time is over.
+     * 
+     * @return {@code true} if there is no display time left, {@code false} otherwise
+     */
+    public boolean isExpired() {
+        return timeLeft <= 0;
     }
 
     /**
@@ -43,15 +71,91 @@ public class Projectile extends AnimatedObject {
      * 
      * @param timeLeft the new display time
      */
-    public void setTimeLeft(int timeLeft) {
-        this.timeLeft = Math.max(0, timeLeft);;
+    public void setTimeLeft(Duration timeLeft) {
+        this.timeLeft = Math.max(0, timeLeft.toMillis());
+    }
+
+    /**
+     * Returns when this projectile hit the specified object during the last
+     * update, as a fraction of the time step. The path of this projectile's
+     * center, relative to the moving object, is swept against the object's
+     * polygon, so fast projectiles cannot pass through small objects between two
+     * updates. A projectile that only touches the object with its edge at the
+     * end of the step hits it at 1.
+     * 
+     * @param target the object
+     * @return the fraction between 0 and 1, or {@code NaN} if the projectile
+     *         missed the object
+     */
+    double hitTime(AnimatedObject target) {
+        double x1 = getCenterX();
+        double y1 = getCenterY();
+        double x0 = x1 - getLastMoveX() + target.getLastMoveX();
+        double y0 = y1 - getLastMoveY() + target.getLastMoveY();
+        double t = target.sweep(x0, y0, x1, y1);
+        if (Double.isNaN(t) && collidesWith(target)) {
+            t = 1;
+        }
+        return t;
+    }
+
+    /**
+     * Returns the kind of this projectile, which {@link #save} writes first so
+     * {@link #load} can create the same class.
+     * 
+     * @return {@link #KIND} for plain projectiles
+     */
+    byte getKind() {
+        return KIND;
+    }
+
+    /**
+     * Creates a projectile from the state written by {@link #save}.
+     * 
+     * @param world  the world containing the projectile, which may reuse one
+     * @param buffer the buffer
+     * @return the projectile
+     */
+    static Projectile load(AsteroidsWorld world, ByteBuffer buffer) {
+        Projectile p = world.createProjectile(buffer.get(), Duration.ZERO);
+        p.restore(buffer);
+        return p;
+    }
+
+    @Override
+    int getStateSize() {
+        return 1 + super.getStateSize() + Double.BYTES;
+    }
+
+    /**
+     * {@inheritDoc} The state of a projectile starts with its kind, so it is read
+     * back with {@link #load}.
+     */
+    @Override
+    void save(ByteBuffer buffer) {
+        buffer.put(getKind());
+        super.save(buffer);
+        buffer.putDouble(timeLeft);
+    }
+
+    @Override
+    void restore(ByteBuffer buffer) {
+        super.restore(buffer);
+        timeLeft = buffer.getDouble();
     }
 
     @Override
     public void update() {
         updateDirection();
         updatePosition();
-        timeLeft = Math.max(0, timeLeft - 1);
+        timeLeft = Math.max(0, timeLeft - world.getTimeStep().toMillis());
+    }
+
+    @Override
+    public Shape createView() {
+        Rectangle view = new Rectangle(4, 4);
+        view.setFill(Color.AQUAMARINE);
+        return view;
     }
 
 }
@@ -0,0 +1,391 @@
+package cs1302.game;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import javafx.util.Duration;
+
+/**
+ * A recorded Asteroids game, as written by {@link ReplayRecorder}.
+ * <p>
+ * The whole replay is kept in memory. A {@link Player} recreates the world from
+ * the recorded seed and steps it with the recorded input, as fast as it is
+ * asked to, and can seek to any step by restoring the closest keyframe before
+ * it.
+ */
+public final class Replay {
+
+    /** First bytes of a replay: "AREP". */
+    static final int MAGIC = 0x41524550;
+    /** Version of the format. */
+    static final int VERSION = 6;
+    /** Record kinds, stored in the low 2 bits of the tag of a record. */
+    static final int REPEAT = 0;
+    static final int INPUT = 1;
+    static final int KEYFRAME = 2;
+    static final int END = 3;
+
+    private final byte[] data;
+    private final int start; // offset of the first record
+    private final double width;
+    private final double height;
+    private final Duration timeStep;
+    private final long seed;
+    private final boolean asteroidCollisions;
+    private final long[] keyframeTicks;
+    private final int[] keyframeOffsets; // offsets of the states of the keyframes
+    private final int[] keyframeSizes;
+    private final int keyframeCount;
+    private final long tickCount;
+    private final int finalScore;
+
+    /**
+     * Parses a replay and indexes its keyframes.
+     *
+     * @param data the contents of the replay
+     * @throws IOException if the data is not a valid replay
+     */
+    private Replay(byte[] data) throws IOException {
+        this.data = data;
+        ByteBuffer header = ByteBuffer.wrap(data).order(ByteOrder.BIG_ENDIAN);
+        if (data.length < 38 || header.getInt() != MAGIC) {
+            throw new IOException("not a replay");
+        } // if
+        int version = header.get();
+        if (version != VERSION) {
+            throw new IOException("unsupported replay version: " + version);
+        } // if
+        width = header.getDouble();
+        height = header.getDouble();
+        timeStep = Duration.millis(header.getDouble());
+        seed = header.getLong();
+        asteroidCollisions = header.get() != 0;
+        Reader reader = new Reader(header.position());
+        int interval = (int) reader.readVarLong();
+        start = reader.pos;
+
+        // scan all records once to find the keyframes and the length
+        long[] ticks = new long[16];
+        int[] offsets = new int[16];
+        int[] sizes = new int[16];
+        int count = 0;
+        long tick = 0;
+        int score = -1;
+        while (reader.pos < data.length) {
+            long tickBefore = tick;
+            int countBefore = count;
+            long tag = reader.readVarLong();
+            int kind = (int) (tag & 3);
+            if (kind == REPEAT) {
+                tick += tag >>> 2;
+            } else if (kind == INPUT) {
+                if (((tag >>> 2) & TickInput.AIM) != 0) {
+                    reader.readVarLong();
+                    reader.readVarLong();
+                } // if
+                tick++;
+            } else if (kind == KEYFRAME) {
+                if (count == ticks.length) {
+                    ticks = Arrays.copyOf(ticks, count * 2);
+                    offsets = Arrays.copyOf(offsets, count * 2);
+                    sizes = Arrays.copyOf(sizes, count * 2);
+                } // if
+                ticks[count] = tick;
+                offsets[count] = reader.pos;
+                sizes[count] = (int) (tag >>> 2);
+                reader.pos += sizes[count];
+                count++;
+            } else {
+                long endTick = reader.readVarLong();
+                score = (int) reader.readVarLong();
+                if (endTick != tick) {
+                    throw new IOException("corrupt replay: " + tick + " steps, expected "
+                            + endTick);
+                } // if
+                break;
+            } // if
+            if (reader.pos > data.length) {
+                // the recording was cut off, e.g., by a crash; keep what is complete
+                tick = tickBefore;
+                count = countBefore;
+                break;
+            } // if
+        } // while
+        keyframeTicks = ticks;
+        keyframeOffsets = offsets;
+        keyframeSizes = sizes;
+        keyframeCount = count;
+        tickCount = tick;
+        finalScore = score;
+    } // Replay
+
+    /**
+     * Reads a replay from the specified file.
+     *
+     * @param file the file
+     * @return the replay
+     * @throws IOException if reading fails or the file is not a valid replay
+     */
+    public static Replay read(Path file) throws IOException {
+        return new Replay(Files.readAllBytes(file));
+    } // read
+
+    /**
+     * Reads a replay from the specified stream, until its end.
+     *
+     * @param in the stream
+     * @return the replay
+     * @throws IOException if reading fails or the stream is not a valid replay
+     */
+    public static Replay read(InputStream in) throws IOException {
+        return new Replay(in.readAllBytes());
+    } // read
+
+    /**
+     * Returns the seed of the recorded world.
+     *
+     * @return the seed
+     */
+    public long getSeed() {
+        return seed;
+    } // getSeed
+
+    /**
+     * Returns the number of recorded steps.
+     *
+     * @return the number of steps
+     */
+    public long getTickCount() {
+        return tickCount;
+    } // getTickCount
+
+    /**
+     * Returns the recorded game time.
+     *
+     * @return the duration of the game
+     */
+    public Duration getDuration() {
+        return timeStep.multiply(tickCount);
+    } // getDuration
+
+    /**
+     * Returns the score at the end of the recording, or -1 if the recording was
+     * not closed properly. In that case, the replay ends with the last complete
+     * record.
+     *
+     * @return the final score
+     */
+    public int getFinalScore() {
+        return finalScore;
+    } // getFinalScore
+
+    /**
+     * Returns the number of keyframes.
+     *
+     * @return the number of keyframes
+     */
+    public int getKeyframeCount() {
+        return keyframeCount;
+    } // getKeyframeCount
+
+    /**
+     * Returns the size of the replay in bytes.
+     *
+     * @return the size
+     */
+    public int getSize() {
+        return data.length;
+    } // getSize
+
+    /**
+     * Creates a new player positioned at the start of this replay.
+     *
+     * @return the player
+     */
+    public Player newPlayer() {
+        return new Player();
+    } // newPlayer
+
+    /**
+     * Maps a signed number to a non-negative one, so small magnitudes of either
+     * sign stay small: 0, -1, 1, -2, ... become 0, 1, 2, 3, ...
+     *
+     * @param value the number
+     * @return the encoded number
+     */
+    static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    } // zigZag
+
+    /**
+     * Reverses {@link #zigZag}.
+     *
+     * @param value the encoded number
+     * @return the number
+     */
+    static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    } // unZigZag
+
+    /**
+     * Reads variable-length numbers from the data.
+     */
+    private final class Reader {
+
+        int pos;
+
+        Reader(int pos) {
+            this.pos = pos;
+        } // Reader
+
+        /**
+         * Reads a number written by {@code ReplayRecorder.writeVarLong}.
+         *
+         * @return the number
+         * @throws IllegalStateException if the data ends in the middle of the
+         *                               number
+         */
+        long readVarLong() {
+            long value = 0;
+            for (int shift = 0; ; shift += 7) {
+                if (pos >= data.length) {
+                    pos = data.length + 1;
+                    return 0;
+                } // if
+                int b = data[pos++];
+                value |= (long) (b & 0x7f) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                } // if
+            } // for
+        } // readVarLong
+
+    } // Reader
+
+    /**
+     * Plays a replay back by stepping a world with the recorded input.
+     */
+    public final class Player {
+
+        private final AsteroidsWorld world;
+        private final ByteBuffer initialState; // the world before the first step
+        private final TickInput input = new TickInput();
+        private final Reader reader = new Reader(start);
+        private long repeats; // steps left that repeat the current input
+        private int actions;
+        private long x; // bits of the pointer position
+        private long y;
+
+        private Player() {
+            world = new AsteroidsWorld(width, height, timeStep, seed);
+            world.setAsteroidCollisions(asteroidCollisions);
+            initialState = ByteBuffer.allocate(world.getStateSize());
+            world.save(initialState);
+        } // Player
+
+        /**
+         * Returns the world being played back. It must not be changed, except by
+         * this player.
+         *
+         * @return the world
+         */
+        public AsteroidsWorld getWorld() {
+            return world;
+        } // getWorld
+
+        /**
+         * Returns the number of steps played so far.
+         *
+         * @return the current step
+         */
+        public long getTick() {
+            return world.getTick();
+        } // getTick
+
+        /**
+         * Returns whether all recorded steps have been played.
+         *
+         * @return {@code true} if the replay is over; otherwise {@code false}
+         */
+        public boolean isFinished() {
+            return world.getTick() >= tickCount;
+        } // isFinished
+
+        /**
+         * Plays the next step, unless the replay is over.
+         *
+         * @return {@code true} if a step was played; {@code false} if the replay
+         *         is over
+         */
+        public boolean step() {
+            if (isFinished()) {
+                return false;
+            } // if
+            while (repeats == 0) {
+                long tag = reader.readVarLong();
+                int kind = (int) (tag & 3);
+                if (kind == REPEAT) {
+                    repeats = tag >>> 2;
+                } else if (kind == INPUT) {
+                    actions = (int) (tag >>> 2);
+                    if ((actions & TickInput.AIM) != 0) {
+                        x += unZigZag(reader.readVarLong());
+                        y += unZigZag(reader.readVarLong());
+                    } // if
+                    repeats = 1;
+                } else if (kind == KEYFRAME) {
+                    // already there; the input starts over after a keyframe
+                    reader.pos += (int) (tag >>> 2);
+                    actions = 0;
+                    x = 0;
+                    y = 0;
+                } // if
+            } // while
+            repeats--;
+            input.set(actions, Double.longBitsToDouble(x), Double.longBitsToDouble(y));
+            world.step(input);
+            return true;
+        } // step
+
+        /**
+         * Moves to the specified step, by restoring the closest keyframe before it,
+         * unless the step is just ahead, and playing the remaining steps.
+         *
+         * @param tick the step, between 0 and {@link #getTickCount()}
+         * @throws IllegalArgumentException if the step is out of range
+         */
+        public void seek(long tick) {
+            if (tick < 0 || tick > tickCount) {
+                throw new IllegalArgumentException("tick out of range: " + tick);
+            } // if
+            int k = Arrays.binarySearch(keyframeTicks, 0, keyframeCount, tick);
+            if (k < 0) {
+                k = -k - 2; // the last keyframe before the step
+            } // if
+            long from = k < 0 ? 0 : keyframeTicks[k];
+            // playing on is cheaper, unless the step is behind or past a keyframe
+            if (tick < world.getTick() || from > world.getTick()) {
+                if (k < 0) {
+                    world.restore(initialState.rewind());
+                    reader.pos = start;
+                } else {
+                    world.restore(ByteBuffer.wrap(data, keyframeOffsets[k], keyframeSizes[k]));
+                    reader.pos = keyframeOffsets[k] + keyframeSizes[k];
+                } // if
+                repeats = 0;
+                actions = 0;
+                x = 0;
+                y = 0;
+            } // if
+            while (world.getTick() < tick) {
+                step();
+            } // while
+        } // seek
+
+    } // Player
+
+} // Replay
@@ -0,0 +1,175 @@
+package cs1302.game;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+/**
+ * Records the input of an {@link AsteroidsWorld} into a compact replay that
+ * {@link Replay} can play back.
+ * <p>
+ * A replay starts with the size, time step, seed and physics mode of the
+ * world, followed by one record per change of input. Steps that repeat the
+ * previous input are counted, not stored, and the actions and pointer position
+ * are stored as variable-length integers, so a typical step takes well under a
+ * byte. Every {@code keyframeInterval} steps, the complete state of the world
+ * is stored as well, so playback can seek without simulating the game from the
+ * start.
+ * <p>
+ * The recorder must be created before the first step of the world, and
+ * {@link #record} must be called right before every step. The stream is flushed
+ * at every keyframe, so a replay that was never closed can still be played back,
+ * at least up to its last keyframe.
+ */
+public class ReplayRecorder implements Closeable {
+
+    private final AsteroidsWorld world;
+    private final DataOutputStream out;
+    private final int keyframeInterval;
+    private ByteBuffer keyframe = ByteBuffer.allocate(0);
+    private boolean hasPrevious = false; // is there an input to repeat?
+    private int prevActions;
+    private long prevX; // bits of the previous pointer position
+    private long prevY;
+    private long repeats = 0; // steps that repeated the previous input, not written yet
+
+    /**
+     * Creates a new recorder for the specified world and writes the header of
+     * the replay.
+     *
+     * @param world            the world, before its first step
+     * @param out              the stream to write to; it is closed by
+     *                         {@link #close()}
+     * @param keyframeInterval the number of steps between two keyframes
+     * @throws IOException              if writing fails
+     * @throws IllegalStateException    if the world was stepped already
+     * @throws IllegalArgumentException if {@code keyframeInterval} is not
+     *                                  positive
+     */
+    public ReplayRecorder(AsteroidsWorld world, OutputStream out, int keyframeInterval)
+            throws IOException {
+        Objects.requireNonNull(world);
+        if (world.getTick() != 0) {
+            throw new IllegalStateException("world already started");
+        } // if
+        if (keyframeInterval <= 0) {
+            throw new IllegalArgumentException("keyframeInterval must be positive");
+        } // if
+        this.world = world;
+        this.out = new DataOutputStream(new BufferedOutputStream(out));
+        this.keyframeInterval = keyframeInterval;
+        this.out.writeInt(Replay.MAGIC);
+        this.out.writeByte(Replay.VERSION);
+        this.out.writeDouble(world.getBounds().getWidth());
+        this.out.writeDouble(world.getBounds().getHeight());
+        this.out.writeDouble(world.getTimeStep().toMillis());
+        this.out.writeLong(world.getSeed());
+        this.out.writeBoolean(world.hasAsteroidCollisions());
+        writeVarLong(keyframeInterval);
+    } // ReplayRecorder
+
+    /**
+     * Records the input of the next step of the world. Must be called right
+     * before the world is stepped with the same input.
+     *
+     * @param input the input of the step
+     * @throws IOException if writing fails
+     */
+    public void record(TickInput input) throws IOException {
+        long tick = world.getTick();
+        if (tick > 0 && tick % keyframeInterval == 0) {
+            writeKeyframe();
+        } // if
+        int actions = input.getActions();
+        boolean aim = (actions & TickInput.AIM) != 0;
+        // the pointer only matters while aiming
+        long x = aim ? Double.doubleToLongBits(input.getPointerX()) : prevX;
+        long y = aim ? Double.doubleToLongBits(input.getPointerY()) : prevY;
+        if (hasPrevious && actions == prevActions && x == prevX && y == prevY) {
+            repeats++;
+            return;
+        } // if
+        flushRepeats();
+        writeVarLong(((long) actions << 2) | Replay.INPUT);
+        if (aim) {
+            writeVarLong(Replay.zigZag(x - prevX));
+            writeVarLong(Replay.zigZag(y - prevY));
+        } // if
+        hasPrevious = true;
+        prevActions = actions;
+        prevX = x;
+        prevY = y;
+    } // record
+
+    /**
+     * Writes the end of the replay, with the final step and score for
+     * verification, and closes the stream.
+     *
+     * @throws IOException if writing fails
+     */
+    @Override
+    public void close() throws IOException {
+        try (out) {
+            flushRepeats();
+            writeVarLong(Replay.END);
+            writeVarLong(world.getTick());
+            writeVarLong(world.getScore());
+        } // try
+    } // close
+
+    /**
+     * Writes the current state of the world. The input after a keyframe is
+     * written in full, so playback can start at any keyframe.
+     *
+     * @throws IOException if writing fails
+     */
+    private void writeKeyframe() throws IOException {
+        flushRepeats();
+        int size = world.getStateSize();
+        if (keyframe.capacity() < size) {
+            keyframe = ByteBuffer.allocate(size * 2);
+        } // if
+        keyframe.clear();
+        world.save(keyframe);
+        writeVarLong(((long) size << 2) | Replay.KEYFRAME);
+        out.write(keyframe.array(), 0, size);
+        // if the game never closes the recorder, at most one interval is lost
+        out.flush();
+        hasPrevious = false;
+        prevActions = 0;
+        prevX = 0;
+        prevY = 0;
+    } // writeKeyframe
+
+    /**
+     * Writes the pending number of repeated steps, if any.
+     *
+     * @throws IOException if writing fails
+     */
+    private void flushRepeats() throws IOException {
+        if (repeats > 0) {
+            writeVarLong((repeats << 2) | Replay.REPEAT);
+            repeats = 0;
+        } // if
+    } // flushRepeats
+
+    /**
+     * Writes a non-negative number in 7-bit groups, least significant first; the
+     * high bit of a byte is set if more bytes follow.
+     *
+     * @param value the number
+     * @throws IOException if writing fails
+     */
+    private void writeVarLong(long value) throws IOException {
+        while ((value & ~0x7fL) != 0) {
+            out.writeByte((int) (value & 0x7f) | 0x80);
+            value >>>= 7;
+        } // while
+        out.writeByte((int) value);
+    } // writeVarLong
+
+} // ReplayRecorder
@@ -0,0 +1,111 @@
+package cs1302.game;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A ring of the most recent states of an {@link AsteroidsWorld}, used to rewind
+ * the game.
+ * <p>
+ * The states are kept outside the Java heap, in one direct buffer allocated up
+ * front and split into equally sized slots, so recording a state every step
+ * neither allocates nor adds work for the garbage collector. A state that does
+ * not fit into its slot gets a larger direct buffer of its own; this only
+ * happens when the world holds far more objects than usual.
+ * <p>
+ * A rewind buffer must only be used by one thread at a time.
+ */
+public class RewindBuffer {
+
+    private final ByteBuffer[] slots;
+    private int head = 0; // slot of the next state
+    private int size = 0; // number of states kept
+
+    /**
+     * Creates a new rewind buffer.
+     *
+     * @param capacity the maximum number of states kept
+     * @param slotSize the number of bytes reserved per state
+     * @throws IllegalArgumentException if {@code capacity} or {@code slotSize} is
+     *                                  not positive
+     */
+    public RewindBuffer(int capacity, int slotSize) {
+        if (capacity <= 0 || slotSize <= 0) {
+            throw new IllegalArgumentException("capacity and slotSize must be positive");
+        } // if
+        ByteBuffer slab = ByteBuffer.allocateDirect(Math.multiplyExact(capacity, slotSize));
+        slots = new ByteBuffer[capacity];
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = slab.slice(i * slotSize, slotSize);
+        } // for
+    } // RewindBuffer
+
+    /**
+     * Adds the current state of the specified world, replacing the oldest state
+     * if the buffer is full.
+     *
+     * @param world the world
+     */
+    public void push(AsteroidsWorld world) {
+        int stateSize = world.getStateSize();
+        if (slots[head].capacity() < stateSize) {
+            slots[head] = ByteBuffer.allocateDirect(stateSize * 2);
+        } // if
+        ByteBuffer slot = slots[head];
+        slot.clear();
+        world.save(slot);
+        slot.flip();
+        head = (head + 1) % slots.length;
+        size = Math.min(size + 1, slots.length);
+    } // push
+
+    /**
+     * Restores the specified world to the state that was added the specified
+     * number of states before the latest one, and discards the newer states.
+     * Asteroids and projectiles are replaced by new objects, see
+     * {@link AsteroidsWorld#restore}.
+     *
+     * @param world the world
+     * @param steps the number of states to go back; 0 restores the latest state
+     * @return {@code true} if the state was restored; {@code false} if the buffer
+     *         does not reach back that far, in which case nothing changes
+     */
+    public boolean rewind(AsteroidsWorld world, int steps) {
+        if (steps < 0 || steps >= size) {
+            return false;
+        } // if
+        int index = Math.floorMod(head - 1 - steps, slots.length);
+        ByteBuffer slot = slots[index];
+        slot.rewind();
+        world.restore(slot);
+        head = (index + 1) % slots.length;
+        size -= steps;
+        return true;
+    } // rewind
+
+    /**
+     * Returns the number of states kept.
+     *
+     * @return the number of states
+     */
+    public int size() {
+        return size;
+    } // size
+
+    /**
+     * Returns the maximum number of states kept.
+     *
+     * @return the capacity
+     */
+    public int getCapacity() {
+        return slots.length;
+    } // getCapacity
+
+    /**
+     * Discards all states.
+     */
+    public void clear() {
+        head = 0;
+        size = 0;
+    } // clear
+
+} // RewindBuffer
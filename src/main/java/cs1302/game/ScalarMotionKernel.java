@@ -0,0 +1,58 @@
+package cs1302.game;
+
+/**
+ * The {@link MotionKernel} implemented with plain Java loops.
+ */
+final class ScalarMotionKernel extends MotionKernel {
+
+    @Override
+    public String getName() {
+        return "scalar";
+    } // getName
+
+    @Override
+    void integrate(EntityStore store, int[] slots, int from, int to, byte[] changes) {
+        for (int k = from; k < to; k++) {
+            changes[k] = (byte) store.advance(slots[k]);
+        } // for
+    } // integrate
+
+    @Override
+    int screen(EntityStore store, int[] first, int[] second, int count, int[] kept) {
+        return screen(store, first, second, 0, count, kept, 0);
+    } // screen
+
+    /**
+     * Screens the pairs from {@code from} to {@code count}, like
+     * {@link MotionKernel#screen}, appending to the pairs already kept.
+     *
+     * @param store  the store
+     * @param first  the slots of the first objects of the pairs
+     * @param second the slots of the second objects of the pairs
+     * @param from   the first pair to screen
+     * @param count  the number of pairs
+     * @param kept   receives the numbers of the pairs kept
+     * @param n      the number of pairs already kept
+     * @return the number of pairs kept in total
+     */
+    static int screen(EntityStore store, int[] first, int[] second, int from, int count,
+            int[] kept, int n) {
+        double[] x = store.x;
+        double[] y = store.y;
+        double[] px = store.pivotX;
+        double[] py = store.pivotY;
+        double[] radius = store.radius;
+        for (int k = from; k < count; k++) {
+            int a = first[k];
+            int b = second[k];
+            double dx = (x[b] + px[b]) - (x[a] + px[a]);
+            double dy = (y[b] + py[b]) - (y[a] + py[a]);
+            double r = radius[a] + radius[b];
+            if (dx * dx + dy * dy < r * r * SCREEN_SLACK) {
+                kept[n++] = k;
+            } // if
+        } // for
+        return n;
+    } // screen
+
+} // ScalarMotionKernel
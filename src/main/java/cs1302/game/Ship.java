@@ -1,56 +1,73 @@
 package cs1302.game;
 
+import java.nio.ByteBuffer;
+
 import javafx.scene.image.Image;
 import javafx.scene.paint.ImagePattern;
 import javafx.scene.shape.Polygon;
+import javafx.scene.shape.Shape;
+import javafx.util.Duration;
 
 /**
  * An animated object representing the player's ship.
  */
 public class Ship extends AnimatedObject {
 
-    /** Ship with engines on. */
-    private static final ImagePattern SHIP_ON = new ImagePattern(
-            new Image("file:resources/game/ship_r_on.png"));
-    /** Ship with engines off. */
-    private static final ImagePattern SHIP_OFF = new ImagePattern(
-            new Image("file:resources/game/ship_r.png"));
+    /**
+     * The images of the ship. They are only loaded when the ship is displayed, so
+     * a ship can be simulated without the JavaFX toolkit.
+     */
+    private static final class Images {
+        /** Ship with engines on. */
+        static final ImagePattern SHIP_ON = new ImagePattern(
+                new Image("file:resources/game/ship_r_on.png"));
+        /** Ship with engines off. */
+        static final ImagePattern SHIP_OFF = new ImagePattern(
+                new Image("file:resources/game/ship_r.png"));
+    }
+
+    /**
+     * This polygon covers roughly the same area as the visible pixels of the ship
+     * image.
+     */
+    private static final double[] VERTICES = { 0.0, 0.0, //
+        12.0, 0.0, //
+        21.0, 4.0, //
+        30.0, 13.0, //
+        30.0, 15.0, //
+        21.0, 26.0, //
+        12.0, 30.0, //
+        0.0, 30.0, //
+        0.0, 0.0 };
 
-    private static final int DEFAULT_WEAPON_COOLDOWN = 60;
+    private static final Duration DEFAULT_WEAPON_COOLDOWN = Duration.seconds(1);
 
     /** Whether the engines are on or not. */
     private boolean enginesOn;
-    /** Cooldown remaining until the weapon can be fired. */
-    private int cooldownRemaining;
-    /** The weapon cooldown. */
-    private int weaponCooldown;
+    /** Cooldown remaining until the weapon can be fired, in milliseconds. */
+    private double cooldownRemaining;
+    /** The weapon cooldown, in milliseconds. */
+    private double weaponCooldown;
+    /** Cooldown remaining until a missile can be launched, in milliseconds. */
+    private double missileCooldownRemaining;
+    /** The missile launcher cooldown, in milliseconds. */
+    private double missileCooldown;
 
     /**
-     * Creates a new Ship with the specified Game.
+     * Creates a new Ship with the specified world.
      * 
-     * @param game he game containing this ship
-     * @throws NullPointerException if the game is null
+     * @param world the world containing this ship
+     * @throws NullPointerException if the world is null
      */
-    public Ship(Game game) {
-        super(game);
-        // this polygon covers roughly the same area as the visible pixels of the
-        // ship image
-        Polygon shipShape = new Polygon(0.0, 0.0, //
-                12.0, 0.0, //
-                21.0, 4.0, //
-                30.0, 13.0, //
-                30.0, 15.0, //
-                21.0, 26.0, //
-                12.0, 30.0, //
-                0.0, 30.0, //
-                0.0, 0.0);
-        shape = shipShape;
-        shape.setFill(SHIP_OFF);
+    public Ship(AsteroidsWorld world) {
+        super(world, VERTICES);
         // defaults 
         setMaxSpeed(5);
         enginesOn = false;
-        weaponCooldown = DEFAULT_WEAPON_COOLDOWN;
-        cooldownRemaining = DEFAULT_WEAPON_COOLDOWN;
+        weaponCooldown = DEFAULT_WEAPON_COOLDOWN.toMillis();
+        cooldownRemaining = weaponCooldown;
+        missileCooldown = DEFAULT_WEAPON_COOLDOWN.toMillis();
+        missileCooldownRemaining = missileCooldown;
     }
 
     /**
@@ -76,10 +93,20 @@ public class Ship extends AnimatedObject {
      * Sets the weapon cooldown of this ship. Negative values are treated as zero(no
      * cooldown).
      * 
-     * @param cooldown
+     * @param cooldown the game time that has to pass between two shots
+     */
+    public void setWeaponCooldown(Duration cooldown) {
+        weaponCooldown = cooldown.toMillis();
+    }
+
+    /**
+     * Returns whether the weapon has cooled down, i.e., whether {@link #fire}
+     * would succeed.
+     * 
+     * @return {@code true} if the weapon is ready, {@code false} otherwise.
      */
-    public void setWeaponCooldown(int cooldown) {
-        weaponCooldown = cooldown;
+    public boolean isWeaponReady() {
+        return cooldownRemaining <= 0;
     }
 
     /**
@@ -88,7 +115,7 @@ public class Ship extends AnimatedObject {
      * @return {@code true} if the weapon was successfully fired, {@code false} otherwise.
      */
     public boolean fire() {
-        if (cooldownRemaining != 0) {
+        if (cooldownRemaining > 0) {
             return false;
         } else {
             cooldownRemaining = Math.max(0, weaponCooldown);
@@ -96,21 +123,86 @@ public class Ship extends AnimatedObject {
         }
     }
 
+    /**
+     * Sets the cooldown of this ship's missile launcher, which is separate from
+     * the weapon. Negative values are treated as zero(no cooldown).
+     * 
+     * @param cooldown the game time that has to pass between two missiles
+     */
+    public void setMissileCooldown(Duration cooldown) {
+        missileCooldown = cooldown.toMillis();
+    }
+
+    /**
+     * Attempts to launch a missile and returns the result of the operation.
+     * 
+     * @return {@code true} if a missile was launched, {@code false} otherwise.
+     */
+    public boolean launchMissile() {
+        if (missileCooldownRemaining > 0) {
+            return false;
+        } else {
+            missileCooldownRemaining = Math.max(0, missileCooldown);
+            return true;
+        }
+    }
+
+    @Override
+    int getStateSize() {
+        return super.getStateSize() + 1 + 4 * Double.BYTES;
+    }
+
+    @Override
+    void save(ByteBuffer buffer) {
+        super.save(buffer);
+        buffer.put((byte) (enginesOn ? 1 : 0));
+        buffer.putDouble(cooldownRemaining).putDouble(weaponCooldown);
+        buffer.putDouble(missileCooldownRemaining).putDouble(missileCooldown);
+    }
+
+    @Override
+    void restore(ByteBuffer buffer) {
+        super.restore(buffer);
+        enginesOn = buffer.get() != 0;
+        cooldownRemaining = buffer.getDouble();
+        weaponCooldown = buffer.getDouble();
+        missileCooldownRemaining = buffer.getDouble();
+        missileCooldown = buffer.getDouble();
+    }
+
     @Override
     public void update() {
         // apply thrust if the engines are on
         if (enginesOn) {
-            changeVelocity(getDirection().multiply(0.05));
-            shape.setFill(SHIP_ON);
-        } else {
-            shape.setFill(SHIP_OFF);
+            changeVelocity(getDirectionX() * 0.05, getDirectionY() * 0.05);
         }
 
         // rotation
         updateDirection();
         // position
         updatePosition();
-        cooldownRemaining = Math.max(0, cooldownRemaining - 1);
+        cooldownRemaining = Math.max(0, cooldownRemaining - world.getTimeStep().toMillis());
+        missileCooldownRemaining = Math.max(0,
+                missileCooldownRemaining - world.getTimeStep().toMillis());
+    }
+
+    @Override
+    public Shape createView() {
+        Polygon view = new Polygon(VERTICES);
+        view.setFill(Images.SHIP_OFF);
+        // ship should be rendered last
+        view.setViewOrder(-1);
+        return view;
+    }
+
+    @Override
+    protected int getViewState() {
+        return enginesOn ? 1 : 0;
+    }
+
+    @Override
+    protected void updateView(Shape view, int state) {
+        view.setFill(state == 1 ? Images.SHIP_ON : Images.SHIP_OFF);
     }
 
 }
@@ -0,0 +1,266 @@
+package cs1302.game;
+
+import java.util.Arrays;
+
+/**
+ * A uniform grid of cells over a game area that wraps around, used to find the
+ * pairs of objects that may collide without testing every pair.
+ * <p>
+ * Each object is entered into every cell touched by the box around its
+ * bounding circle, swept from its position before the last update to its
+ * current one. Cell coordinates wrap around at the edges of the grid, so
+ * objects that are partly outside the game area, as {@link AnimatedObject#wrap()}
+ * allows, still map to cells of the grid. Collisions themselves are not
+ * toroidal, so two objects are only reported as a pair if their boxes
+ * overlap in world coordinates, and only once, in the cell that contains the
+ * upper-left corner of the overlap.
+ * <p>
+ * Objects have a type bit, and a pair is only reported if its types match the
+ * requested filter; e.g., asteroid pairs are skipped with a type check unless
+ * asked for. The grid is meant to be cleared and refilled every step; it does
+ * not allocate once its arrays have grown to the number of objects, which
+ * {@link #reserve} does ahead of time.
+ */
+final class SpatialGrid {
+
+    /**
+     * Receives the pairs found by {@link SpatialGrid#forEachPair}.
+     */
+    @FunctionalInterface
+    interface PairVisitor {
+
+        /**
+         * Visits a pair of objects.
+         *
+         * @param a the id of the object matching the first type filter
+         * @param b the id of the object matching the second type filter
+         */
+        void visit(int a, int b);
+
+    } // PairVisitor
+
+    /** Entries reserved per object by {@link #reserve}, three cells in each direction. */
+    private static final int RESERVED_ENTRIES = 9;
+
+    private final double cellSize;
+    private final int columns;
+    private final int rows;
+    private final int[] cellHead; // first entry of each cell, or -1
+    private int[] entryNext = new int[64]; // next entry in the same cell, or -1
+    private int[] entryObject = new int[64]; // the object of each entry
+    private int entryCount = 0;
+    private AnimatedObject[] objects = new AnimatedObject[16];
+    private int[] types = new int[16];
+    // box around the swept bounding circle of each object, in world and cell coordinates
+    private double[] minX = new double[16];
+    private double[] minY = new double[16];
+    private double[] maxX = new double[16];
+    private double[] maxY = new double[16];
+    private int[] cellMinX = new int[16];
+    private int[] cellMinY = new int[16];
+    private int objectCount = 0;
+
+    /**
+     * Creates a new, empty grid.
+     *
+     * @param width    width of the game area
+     * @param height   height of the game area
+     * @param cellSize the size of a cell; ideally about the size of the largest
+     *                 objects
+     */
+    SpatialGrid(double width, double height, double cellSize) {
+        this.cellSize = cellSize;
+        this.columns = Math.max(1, (int) Math.ceil(width / cellSize));
+        this.rows = Math.max(1, (int) Math.ceil(height / cellSize));
+        this.cellHead = new int[columns * rows];
+        Arrays.fill(cellHead, -1);
+    } // SpatialGrid
+
+    /**
+     * Removes all objects.
+     */
+    void clear() {
+        Arrays.fill(cellHead, -1);
+        Arrays.fill(objects, 0, objectCount, null);
+        entryCount = 0;
+        objectCount = 0;
+    } // clear
+
+    /**
+     * Makes room for the specified number of objects, so adding them does not
+     * allocate as long as the swept box of each touches at most
+     * {@value #RESERVED_ENTRIES} cells, which holds for objects up to about the
+     * size of a cell.
+     *
+     * @param n the number of objects
+     */
+    void reserve(int n) {
+        if (objects.length < n) {
+            growObjects(Math.max(n, objects.length * 2));
+        } // if
+        int entries = n * RESERVED_ENTRIES;
+        if (entryNext.length < entries) {
+            growEntries(Math.max(entries, entryNext.length * 2));
+        } // if
+    } // reserve
+
+    /**
+     * Adds an object at its current and previous position. Ids are assigned in the order
+     * objects are added, starting at 0.
+     *
+     * @param object the object
+     * @param type   the type bit of the object
+     * @return the id of the object
+     */
+    int add(AnimatedObject object, int type) {
+        if (objectCount == objects.length) {
+            growObjects(objectCount * 2);
+        } // if
+        int id = objectCount++;
+        double r = object.getRadius();
+        double cx = object.getCenterX();
+        double cy = object.getCenterY();
+        objects[id] = object;
+        types[id] = type;
+        // include where the object was before the last update, for swept tests
+        double px = cx - object.getLastMoveX();
+        double py = cy - object.getLastMoveY();
+        minX[id] = Math.min(cx, px) - r;
+        minY[id] = Math.min(cy, py) - r;
+        maxX[id] = Math.max(cx, px) + r;
+        maxY[id] = Math.max(cy, py) + r;
+        int x0 = (int) Math.floor(minX[id] / cellSize);
+        int y0 = (int) Math.floor(minY[id] / cellSize);
+        // an object larger than the grid enters each cell only once
+        int x1 = Math.min((int) Math.floor(maxX[id] / cellSize), x0 + columns - 1);
+        int y1 = Math.min((int) Math.floor(maxY[id] / cellSize), y0 + rows - 1);
+        cellMinX[id] = x0;
+        cellMinY[id] = y0;
+        for (int y = y0; y <= y1; y++) {
+            for (int x = x0; x <= x1; x++) {
+                addEntry(Math.floorMod(y, rows) * columns + Math.floorMod(x, columns), id);
+            } // for
+        } // for
+        return id;
+    } // add
+
+    /**
+     * Returns the object with the specified id.
+     *
+     * @param id the id
+     * @return the object
+     */
+    AnimatedObject get(int id) {
+        return objects[id];
+    } // get
+
+    /**
+     * Returns the number of objects.
+     *
+     * @return the number of objects
+     */
+    int size() {
+        return objectCount;
+    } // size
+
+    /**
+     * Visits every pair of objects whose boxes overlap, where one object has a
+     * type in {@code typesA} and the other one a type in {@code typesB}. Each
+     * pair is visited once. If both objects match both filters, the one added
+     * first is passed first.
+     *
+     * @param typesA  the type bits of the first object
+     * @param typesB  the type bits of the second object
+     * @param visitor receives the pairs
+     */
+    void forEachPair(int typesA, int typesB, PairVisitor visitor) {
+        for (int cy = 0; cy < rows; cy++) {
+            for (int cx = 0; cx < columns; cx++) {
+                int head = cellHead[cy * columns + cx];
+                // only objects of the second kind start a search, e.g., the few
+                // projectiles among many asteroids
+                for (int e = head; e != -1; e = entryNext[e]) {
+                    int b = entryObject[e];
+                    int tb = types[b];
+                    if ((tb & typesB) == 0) {
+                        continue;
+                    } // if
+                    for (int f = head; f != -1; f = entryNext[f]) {
+                        int a = entryObject[f];
+                        int ta = types[a];
+                        if (f == e || (ta & typesA) == 0) {
+                            continue;
+                        } // if
+                        // a pair that matches both ways is visited from its later object
+                        if (a > b && (tb & typesA) != 0 && (ta & typesB) != 0) {
+                            continue;
+                        } // if
+                        if (overlapStartsIn(a, b, cx, cy)) {
+                            visitor.visit(a, b);
+                        } // if
+                    } // for
+                } // for
+            } // for
+        } // for
+    } // forEachPair
+
+    /**
+     * Returns {@code true} if the boxes of two objects overlap and the overlap
+     * starts in the specified cell.
+     *
+     * @param i  the id of the first object
+     * @param j  the id of the second object
+     * @param cx the column of the cell
+     * @param cy the row of the cell
+     * @return {@code true} if the pair should be reported in the cell
+     */
+    private boolean overlapStartsIn(int i, int j, int cx, int cy) {
+        if (maxX[i] < minX[j] || maxX[j] < minX[i] || maxY[i] < minY[j] || maxY[j] < minY[i]) {
+            return false;
+        } // if
+        return Math.floorMod(Math.max(cellMinX[i], cellMinX[j]), columns) == cx
+                && Math.floorMod(Math.max(cellMinY[i], cellMinY[j]), rows) == cy;
+    } // overlapStartsIn
+
+    /**
+     * Adds an entry for an object to a cell.
+     *
+     * @param cell the index of the cell
+     * @param id   the id of the object
+     */
+    private void addEntry(int cell, int id) {
+        if (entryCount == entryNext.length) {
+            growEntries(entryCount * 2);
+        } // if
+        entryNext[entryCount] = cellHead[cell];
+        entryObject[entryCount] = id;
+        cellHead[cell] = entryCount++;
+    } // addEntry
+
+    /**
+     * Grows the arrays of the objects.
+     *
+     * @param n the new length
+     */
+    private void growObjects(int n) {
+        objects = Arrays.copyOf(objects, n);
+        types = Arrays.copyOf(types, n);
+        minX = Arrays.copyOf(minX, n);
+        minY = Arrays.copyOf(minY, n);
+        maxX = Arrays.copyOf(maxX, n);
+        maxY = Arrays.copyOf(maxY, n);
+        cellMinX = Arrays.copyOf(cellMinX, n);
+        cellMinY = Arrays.copyOf(cellMinY, n);
+    } // growObjects
+
+    /**
+     * Grows the arrays of the entries.
+     *
+     * @param n the new length
+     */
+    private void growEntries(int n) {
+        entryNext = Arrays.copyOf(entryNext, n);
+        entryObject = Arrays.copyOf(entryObject, n);
+    } // growEntries
+
+} // SpatialGrid
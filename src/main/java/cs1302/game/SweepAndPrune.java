@@ -0,0 +1,191 @@
+package cs1302.game;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Finds the pairs of objects whose bounding circles may overlap, by sorting the
+ * x extents of the circles and sweeping over them.
+ * <p>
+ * The sorted endpoints are kept between passes. Objects move only a little
+ * from one step to the next, so the list is nearly sorted and an insertion sort
+ * brings it back in order in about linear time. Objects that left the list are
+ * dropped and new objects are appended before sorting. Pairs are found in
+ * endpoint order, then sorted by list index, so the result does not depend on
+ * how ties between endpoints were ordered.
+ */
+final class SweepAndPrune {
+
+    private AnimatedObject[] endObject = new AnimatedObject[64];
+    private boolean[] endIsMax = new boolean[64];
+    private double[] endValue = new double[64];
+    private int endCount = 0;
+    private int pass = 0;
+    private AnimatedObject[] active = new AnimatedObject[16]; // objects being swept over
+    private int[] activePos = new int[16]; // position in active, by list index
+    private long[] pairs = new long[64];
+    private int pairCount = 0;
+
+    /**
+     * Brings the endpoints up to date with the specified objects and finds the
+     * pairs whose bounding boxes overlap.
+     *
+     * @param objects the objects
+     * @return the number of pairs, see {@link #getFirst} and {@link #getSecond}
+     */
+    int update(List<? extends AnimatedObject> objects) {
+        int n = objects.size();
+        pass++;
+        for (int i = 0; i < n; i++) {
+            AnimatedObject o = objects.get(i);
+            o.sweepPass = pass;
+            o.sweepIndex = i;
+        } // for
+        // drop the endpoints of objects that left
+        int kept = 0;
+        for (int e = 0; e < endCount; e++) {
+            AnimatedObject o = endObject[e];
+            if (Math.abs(o.sweepPass) == pass) {
+                endObject[kept] = o;
+                endIsMax[kept] = endIsMax[e];
+                kept++;
+                if (!endIsMax[e]) {
+                    // mark as known
+                    o.sweepPass = -pass;
+                } // if
+            } // if
+        } // for
+        Arrays.fill(endObject, kept, endCount, null);
+        endCount = kept;
+        // append new objects
+        for (int i = 0; i < n; i++) {
+            AnimatedObject o = objects.get(i);
+            if (o.sweepPass == pass) {
+                addEndpoint(o, false);
+                addEndpoint(o, true);
+            } // if
+        } // for
+        sort();
+        return sweep(n);
+    } // update
+
+    /**
+     * Returns the list index of the first object of a pair. It is smaller than
+     * the index of the second object, and pairs are sorted by both indices.
+     *
+     * @param pair the number of the pair
+     * @return the list index
+     */
+    int getFirst(int pair) {
+        return (int) (pairs[pair] >>> 32);
+    } // getFirst
+
+    /**
+     * Returns the list index of the second object of a pair.
+     *
+     * @param pair the number of the pair
+     * @return the list index
+     */
+    int getSecond(int pair) {
+        return (int) pairs[pair];
+    } // getSecond
+
+    /**
+     * Updates the endpoint values from the current positions and sorts them
+     * with an insertion sort.
+     */
+    private void sort() {
+        for (int e = 0; e < endCount; e++) {
+            AnimatedObject o = endObject[e];
+            double r = endIsMax[e] ? o.getRadius() : -o.getRadius();
+            endValue[e] = o.getCenterX() + r;
+        } // for
+        for (int i = 1; i < endCount; i++) {
+            AnimatedObject o = endObject[i];
+            boolean isMax = endIsMax[i];
+            double v = endValue[i];
+            int j = i - 1;
+            // a min endpoint goes before a max endpoint with the same value
+            while (j >= 0 && (endValue[j] > v || endValue[j] == v && endIsMax[j] && !isMax)) {
+                endObject[j + 1] = endObject[j];
+                endIsMax[j + 1] = endIsMax[j];
+                endValue[j + 1] = endValue[j];
+                j--;
+            } // while
+            endObject[j + 1] = o;
+            endIsMax[j + 1] = isMax;
+            endValue[j + 1] = v;
+        } // for
+    } // sort
+
+    /**
+     * Sweeps over the sorted endpoints and collects the pairs whose boxes also
+     * overlap on the y axis.
+     *
+     * @param n the number of objects
+     * @return the number of pairs
+     */
+    private int sweep(int n) {
+        if (active.length < n) {
+            active = new AnimatedObject[Math.max(n, active.length * 2)];
+            activePos = new int[active.length];
+        } // if
+        int activeCount = 0;
+        pairCount = 0;
+        for (int e = 0; e < endCount; e++) {
+            AnimatedObject o = endObject[e];
+            int i = o.sweepIndex;
+            if (endIsMax[e]) {
+                // swap remove
+                AnimatedObject last = active[--activeCount];
+                active[activePos[i]] = last;
+                activePos[last.sweepIndex] = activePos[i];
+                active[activeCount] = null;
+                continue;
+            } // if
+            double y = o.getCenterY();
+            double r = o.getRadius();
+            for (int k = 0; k < activeCount; k++) {
+                AnimatedObject other = active[k];
+                if (Math.abs(other.getCenterY() - y) < other.getRadius() + r) {
+                    addPair(i, other.sweepIndex);
+                } // if
+            } // for
+            activePos[i] = activeCount;
+            active[activeCount++] = o;
+        } // for
+        Arrays.sort(pairs, 0, pairCount);
+        return pairCount;
+    } // sweep
+
+    /**
+     * Adds a pair of list indices.
+     *
+     * @param i the index of one object
+     * @param j the index of the other object
+     */
+    private void addPair(int i, int j) {
+        if (pairCount == pairs.length) {
+            pairs = Arrays.copyOf(pairs, pairCount * 2);
+        } // if
+        pairs[pairCount++] = (long) Math.min(i, j) << 32 | Math.max(i, j);
+    } // addPair
+
+    /**
+     * Appends an endpoint of an object.
+     *
+     * @param o     the object
+     * @param isMax whether it is the max endpoint
+     */
+    private void addEndpoint(AnimatedObject o, boolean isMax) {
+        if (endCount == endObject.length) {
+            endObject = Arrays.copyOf(endObject, endCount * 2);
+            endIsMax = Arrays.copyOf(endIsMax, endCount * 2);
+            endValue = Arrays.copyOf(endValue, endCount * 2);
+        } // if
+        endObject[endCount] = o;
+        endIsMax[endCount] = isMax;
+        endCount++;
+    } // addEndpoint
+
+} // SweepAndPrune
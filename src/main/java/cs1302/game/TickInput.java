@@ -0,0 +1,89 @@
+package cs1302.game;
+
+/**
+ * The input applied during one step of a game: a bitmask of active actions and
+ * the position of the pointer.
+ * <p>
+ * A game fills this object once at the start of each step from the commands in
+ * its {@link InputQueue} and its key bindings, see
+ * {@link Game#bindKey(javafx.scene.input.KeyCode, int)}. Reading it does not
+ * allocate.
+ */
+public final class TickInput {
+
+    /** Apply thrust. */
+    public static final int THRUST = 1;
+    /** Turn left. */
+    public static final int ROTATE_LEFT = 1 << 1;
+    /** Turn right. */
+    public static final int ROTATE_RIGHT = 1 << 2;
+    /** Fire the weapon. */
+    public static final int FIRE = 1 << 3;
+    /** Confirm, e.g., continue after a pause. */
+    public static final int CONFIRM = 1 << 4;
+    /** Turn towards the pointer. */
+    public static final int AIM = 1 << 5;
+    /** Go back in time instead of stepping; handled by the game, not the world. */
+    public static final int REWIND = 1 << 6;
+    /** Launch a homing missile. */
+    public static final int LAUNCH = 1 << 7;
+    /** Snap the pointer to a nearby target while aiming. */
+    public static final int AIM_ASSIST = 1 << 8;
+
+    private int actions;
+    private double pointerX;
+    private double pointerY;
+
+    /**
+     * Returns the bitmask of active actions.
+     *
+     * @return the actions
+     */
+    public int getActions() {
+        return actions;
+    } // getActions
+
+    /**
+     * Returns whether all of the specified actions are active.
+     *
+     * @param action one or more action bits
+     * @return {@code true} if the actions are active; otherwise {@code false}
+     */
+    public boolean isActive(int action) {
+        return (actions & action) == action;
+    } // isActive
+
+    /**
+     * Returns the x coordinate of the pointer. Only meaningful if {@link #AIM}
+     * is active.
+     *
+     * @return the x coordinate
+     */
+    public double getPointerX() {
+        return pointerX;
+    } // getPointerX
+
+    /**
+     * Returns the y coordinate of the pointer. Only meaningful if {@link #AIM}
+     * is active.
+     *
+     * @return the y coordinate
+     */
+    public double getPointerY() {
+        return pointerY;
+    } // getPointerY
+
+    /**
+     * Sets the input for a step.
+     *
+     * @param actions  the bitmask of active actions
+     * @param pointerX the x coordinate of the pointer
+     * @param pointerY the y coordinate of the pointer
+     */
+    public void set(int actions, double pointerX, double pointerY) {
+        this.actions = actions;
+        this.pointerX = pointerX;
+        this.pointerY = pointerY;
+    } // set
+
+} // TickInput
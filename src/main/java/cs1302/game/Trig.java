@@ -0,0 +1,80 @@
+package cs1302.game;
+
+/**
+ * Sine and cosine of angles in degrees, looked up in a table instead of being
+ * computed, for code that needs many of them at once, such as generating
+ * polygons.
+ * <p>
+ * The table holds {@link Math#sin} and {@link Math#cos} at every
+ * {@code 1 / RESOLUTION} of a degree from 0 to 360. Angles on that grid, which
+ * includes all whole degrees, get exactly the value {@code Math} returns for
+ * them, so using the table instead of {@code Math} changes nothing for them.
+ * Other angles are interpolated linearly between the two closest entries,
+ * with an error below {@link #MAX_ERROR}.
+ */
+public final class Trig {
+
+    /** The number of table entries per degree. */
+    public static final int RESOLUTION = 32;
+    /** The maximum absolute error of angles between table entries. */
+    public static final double MAX_ERROR = 1e-7;
+
+    private static final double[] SIN = new double[360 * RESOLUTION + 1];
+    private static final double[] COS = new double[360 * RESOLUTION + 1];
+
+    static {
+        for (int i = 0; i < SIN.length; i++) {
+            double rad = Math.toRadians(i / (double) RESOLUTION);
+            SIN[i] = Math.sin(rad);
+            COS[i] = Math.cos(rad);
+        } // for
+    } // static
+
+    /** There are no instances. */
+    private Trig() {
+    } // Trig
+
+    /**
+     * Returns the sine of the specified angle.
+     *
+     * @param degrees the angle in degrees
+     * @return the sine
+     */
+    public static double sin(double degrees) {
+        return lookup(SIN, degrees);
+    } // sin
+
+    /**
+     * Returns the cosine of the specified angle.
+     *
+     * @param degrees the angle in degrees
+     * @return the cosine
+     */
+    public static double cos(double degrees) {
+        return lookup(COS, degrees);
+    } // cos
+
+    /**
+     * Returns the value of the specified table at the specified angle,
+     * interpolating between entries.
+     *
+     * @param table   the table
+     * @param degrees the angle in degrees
+     * @return the value
+     */
+    private static double lookup(double[] table, double degrees) {
+        // 360 itself has an entry, so only angles outside of [0, 360] are reduced
+        if (degrees < 0 || degrees > 360) {
+            degrees -= 360 * Math.floor(degrees / 360);
+        } // if
+        double pos = degrees * RESOLUTION;
+        int i = (int) pos;
+        double frac = pos - i;
+        // rounding may put reduced angles right above 360
+        if (frac == 0 || i >= table.length - 1) {
+            return table[Math.min(i, table.length - 1)];
+        } // if
+        return table[i] + (table[i + 1] - table[i]) * frac;
+    } // lookup
+
+} // Trig
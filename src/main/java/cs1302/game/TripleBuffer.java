@@ -0,0 +1,79 @@
+package cs1302.game;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * A lock-free triple buffer that hands objects from one writer thread to one
+ * reader thread.
+ * <p>
+ * The writer fills the object returned by {@link #back()} and calls
+ * {@link #publish()}. The reader calls {@link #acquire()} to get the most
+ * recently published object, which is not touched by the writer until the
+ * reader acquires a newer one. Neither side ever waits for the other; if the
+ * writer publishes faster than the reader acquires, intermediate objects are
+ * simply skipped.
+ *
+ * @param <T> the type of the buffered objects
+ */
+final class TripleBuffer<T> {
+
+    /** Set in {@link #middle} if it holds an object not yet acquired. */
+    private static final int DIRTY = 4;
+    /** Masks the buffer index in {@link #middle}. */
+    private static final int INDEX = 3;
+
+    private final Object[] buffers = new Object[3];
+    /** Index of the buffer exchanged between the two sides, plus {@link #DIRTY}. */
+    private final AtomicInteger middle = new AtomicInteger(1);
+    /** Index of the buffer owned by the writer. */
+    private int back = 0;
+    /** Index of the buffer owned by the reader. */
+    private int front = 2;
+
+    /**
+     * Creates a new triple buffer with three objects from the specified factory.
+     *
+     * @param factory creates the buffered objects
+     */
+    TripleBuffer(Supplier<T> factory) {
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = factory.get();
+        } // for
+    } // TripleBuffer
+
+    /**
+     * Returns the object owned by the writer. Only the writer thread may call
+     * this method.
+     *
+     * @return the object to fill before the next {@link #publish()}
+     */
+    @SuppressWarnings("unchecked")
+    T back() {
+        return (T) buffers[back];
+    } // back
+
+    /**
+     * Makes the object returned by {@link #back()} available to the reader, and
+     * gives the writer a different object. Only the writer thread may call this
+     * method.
+     */
+    void publish() {
+        back = middle.getAndSet(back | DIRTY) & INDEX;
+    } // publish
+
+    /**
+     * Returns the most recently published object. Only the reader thread may call
+     * this method. The returned object stays valid until the next call.
+     *
+     * @return the latest object
+     */
+    @SuppressWarnings("unchecked")
+    T acquire() {
+        if ((middle.get() & DIRTY) != 0) {
+            front = middle.getAndSet(front) & INDEX;
+        } // if
+        return (T) buffers[front];
+    } // acquire
+
+} // TripleBuffer
@@ -0,0 +1,124 @@
+package cs1302.game;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The {@link MotionKernel} implemented with the Vector API. Each loop handles
+ * as many objects as fit into the preferred vector size at once, gathering
+ * their state from the slots of the {@link EntityStore} and scattering it back;
+ * the objects left over are handled by the scalar code.
+ * <p>
+ * Only additions, subtractions, multiplications and comparisons are
+ * vectorized, in the same order as in {@link EntityStore}, so the results are
+ * identical. The cosine and sine of new directions are updated afterwards, one
+ * object at a time, see {@link EntityStore#finishAdvance}.
+ */
+final class VectorMotionKernel extends MotionKernel {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    @Override
+    public String getName() {
+        return "vector" + SPECIES.length();
+    } // getName
+
+    @Override
+    void integrate(EntityStore s, int[] slots, int from, int to, byte[] changes) {
+        int lanes = SPECIES.length();
+        int upper = to - (to - from) % lanes;
+        DoubleVector zero = DoubleVector.zero(SPECIES);
+        DoubleVector full = DoubleVector.broadcast(SPECIES, 360);
+        DoubleVector width = DoubleVector.broadcast(SPECIES, s.width);
+        DoubleVector height = DoubleVector.broadcast(SPECIES, s.height);
+        for (int k = from; k < upper; k += lanes) {
+            // turn
+            DoubleVector dir = DoubleVector.fromArray(SPECIES, s.direction, 0, slots, k);
+            DoubleVector rot = DoubleVector.fromArray(SPECIES, s.rotate, 0, slots, k);
+            DoubleVector spin = DoubleVector.fromArray(SPECIES, s.spin, 0, slots, k);
+            dir.intoArray(s.prevDirection, 0, slots, k);
+            VectorMask<Double> turned = rot.compare(VectorOperators.NE, 0)
+                    .or(spin.compare(VectorOperators.NE, 0));
+            DoubleVector d = dir.add(rot).add(spin);
+            d = d.blend(full.sub(d).neg(), d.compare(VectorOperators.GT, 180));
+            d = d.blend(full.add(d), d.compare(VectorOperators.LT, -180));
+            dir.blend(d, turned).intoArray(s.direction, 0, slots, k);
+            rot.blend(zero, turned).intoArray(s.rotate, 0, slots, k);
+            // move
+            DoubleVector x = DoubleVector.fromArray(SPECIES, s.x, 0, slots, k);
+            DoubleVector y = DoubleVector.fromArray(SPECIES, s.y, 0, slots, k);
+            DoubleVector prevX = x.add(DoubleVector.fromArray(SPECIES, s.mx, 0, slots, k));
+            DoubleVector prevY = y.add(DoubleVector.fromArray(SPECIES, s.my, 0, slots, k));
+            DoubleVector newX = prevX.add(DoubleVector.fromArray(SPECIES, s.vx, 0, slots, k));
+            DoubleVector newY = prevY.add(DoubleVector.fromArray(SPECIES, s.vy, 0, slots, k));
+            VectorMask<Double> moved = newX.compare(VectorOperators.NE, x)
+                    .or(newY.compare(VectorOperators.NE, y));
+            zero.intoArray(s.mx, 0, slots, k);
+            zero.intoArray(s.my, 0, slots, k);
+            // wrap
+            DoubleVector cx = newX.add(DoubleVector.fromArray(SPECIES, s.pivotX, 0, slots, k));
+            DoubleVector cy = newY.add(DoubleVector.fromArray(SPECIES, s.pivotY, 0, slots, k));
+            DoubleVector w = DoubleVector.fromArray(SPECIES, s.wrapX, 0, slots, k);
+            DoubleVector h = DoubleVector.fromArray(SPECIES, s.wrapY, 0, slots, k);
+            VectorMask<Double> right = cx.sub(w).compare(VectorOperators.GT, width);
+            VectorMask<Double> left = cx.add(w).compare(VectorOperators.LT, 0).andNot(right);
+            VectorMask<Double> below = cy.sub(h).compare(VectorOperators.GT, height);
+            VectorMask<Double> above = cy.add(h).compare(VectorOperators.LT, 0).andNot(below);
+            prevX = prevX.blend(prevX.add(w.neg().sub(newX)), right)
+                    .blend(prevX.add(width.sub(w).sub(newX)), left);
+            prevY = prevY.blend(prevY.add(h.neg().sub(newY)), below)
+                    .blend(prevY.add(height.sub(h).sub(newY)), above);
+            DoubleVector wrappedX = newX.blend(w.neg(), right).blend(width.sub(w), left);
+            DoubleVector wrappedY = newY.blend(h.neg(), below).blend(height.sub(h), above);
+            VectorMask<Double> wrapped = wrappedX.compare(VectorOperators.NE, newX)
+                    .or(wrappedY.compare(VectorOperators.NE, newY));
+            prevX.intoArray(s.prevX, 0, slots, k);
+            prevY.intoArray(s.prevY, 0, slots, k);
+            wrappedX.intoArray(s.x, 0, slots, k);
+            wrappedY.intoArray(s.y, 0, slots, k);
+            // the rest is done one object at a time
+            long turnedBits = turned.toLong();
+            long movedBits = moved.toLong();
+            long wrappedBits = wrapped.toLong();
+            for (int j = 0; j < lanes; j++) {
+                changes[k + j] = (byte) s.finishAdvance(slots[k + j],
+                        (turnedBits >>> j & 1) != 0, (movedBits >>> j & 1) != 0,
+                        (wrappedBits >>> j & 1) != 0);
+            } // for
+        } // for
+        for (int k = upper; k < to; k++) {
+            changes[k] = (byte) s.advance(slots[k]);
+        } // for
+    } // integrate
+
+    @Override
+    int screen(EntityStore s, int[] first, int[] second, int count, int[] kept) {
+        int lanes = SPECIES.length();
+        int upper = count - count % lanes;
+        int n = 0;
+        for (int k = 0; k < upper; k += lanes) {
+            DoubleVector ax = DoubleVector.fromArray(SPECIES, s.x, 0, first, k)
+                    .add(DoubleVector.fromArray(SPECIES, s.pivotX, 0, first, k));
+            DoubleVector ay = DoubleVector.fromArray(SPECIES, s.y, 0, first, k)
+                    .add(DoubleVector.fromArray(SPECIES, s.pivotY, 0, first, k));
+            DoubleVector bx = DoubleVector.fromArray(SPECIES, s.x, 0, second, k)
+                    .add(DoubleVector.fromArray(SPECIES, s.pivotX, 0, second, k));
+            DoubleVector by = DoubleVector.fromArray(SPECIES, s.y, 0, second, k)
+                    .add(DoubleVector.fromArray(SPECIES, s.pivotY, 0, second, k));
+            DoubleVector r = DoubleVector.fromArray(SPECIES, s.radius, 0, first, k)
+                    .add(DoubleVector.fromArray(SPECIES, s.radius, 0, second, k));
+            DoubleVector dx = bx.sub(ax);
+            DoubleVector dy = by.sub(ay);
+            long bits = dx.mul(dx).add(dy.mul(dy))
+                    .compare(VectorOperators.LT, r.mul(r).mul(SCREEN_SLACK)).toLong();
+            while (bits != 0) {
+                kept[n++] = k + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+            } // while
+        } // for
+        return ScalarMotionKernel.screen(s, first, second, upper, count, kept, n);
+    } // screen
+
+} // VectorMotionKernel
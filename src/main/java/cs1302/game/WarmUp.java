@@ -0,0 +1,162 @@
+package cs1302.game;
+
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
+import javafx.util.Duration;
+
+/**
+ * Runs throwaway Asteroids games without a display, so the JIT compiler compiles
+ * the simulation before the player starts the real game.
+ * <p>
+ * The games are played by an {@link Autopilot}, so they exercise the same code
+ * as a real game: movement, wrapping, collisions and splitting asteroids. The
+ * warm-up runs in bursts of steps until a burst no longer adds compilation time,
+ * it runs out of time, or it is {@link #cancel() cancelled}. If the JVM does not
+ * report compilation time, a fixed number of bursts is run.
+ * <p>
+ * The result may be read from any thread once {@link #isDone()} returns
+ * {@code true}.
+ */
+public class WarmUp implements Runnable {
+
+    /** Steps per burst. */
+    private static final int BURST_STEPS = 2000;
+    /** Consecutive bursts without compilation after which the warm-up is done. */
+    private static final int QUIET_BURSTS = 2;
+    /** Bursts run if compilation time is not available. */
+    private static final int FALLBACK_BURSTS = 20;
+
+    private final double width;
+    private final double height;
+    private final Duration timeStep;
+    private final long maxNanos;
+    private volatile boolean cancelled = false;
+    private volatile boolean done = false;
+    private volatile long steps;
+    private volatile long elapsedNanos;
+    private volatile long compilationMillis = -1;
+
+    /**
+     * Creates a new warm-up with games of the specified size.
+     *
+     * @param width       width of the game area
+     * @param height      height of the game area
+     * @param timeStep    the game time simulated by one step
+     * @param maxDuration the maximum wall-clock time to spend
+     */
+    public WarmUp(double width, double height, Duration timeStep, Duration maxDuration) {
+        this.width = width;
+        this.height = height;
+        this.timeStep = timeStep;
+        this.maxNanos = (long) (maxDuration.toMillis() * 1_000_000);
+    } // WarmUp
+
+    /**
+     * Runs the warm-up on the calling thread.
+     */
+    @Override
+    public void run() {
+        CompilationMXBean jit = ManagementFactory.getCompilationMXBean();
+        boolean monitored = jit != null && jit.isCompilationTimeMonitoringSupported();
+        long compileStart = monitored ? jit.getTotalCompilationTime() : 0;
+        long compiled = compileStart;
+        int quiet = 0;
+        int bursts = 0;
+        long start = System.nanoTime();
+        long seed = 0;
+        AsteroidsWorld world = new AsteroidsWorld(width, height, timeStep, seed);
+        Autopilot autopilot = new Autopilot();
+        TickInput input = new TickInput();
+        while (!cancelled && System.nanoTime() - start < maxNanos) {
+            for (int i = 0; i < BURST_STEPS; i++) {
+                autopilot.poll(world, input);
+                world.step(input);
+                if (world.isGameOver()) {
+                    world = new AsteroidsWorld(width, height, timeStep, ++seed);
+                } // if
+            } // for
+            steps += BURST_STEPS;
+            bursts++;
+            if (monitored) {
+                long total = jit.getTotalCompilationTime();
+                quiet = total == compiled ? quiet + 1 : 0;
+                compiled = total;
+                if (quiet == QUIET_BURSTS) {
+                    break;
+                } // if
+            } else if (bursts == FALLBACK_BURSTS) {
+                break;
+            } // if
+        } // while
+        elapsedNanos = System.nanoTime() - start;
+        if (monitored) {
+            compilationMillis = compiled - compileStart;
+        } // if
+        done = true;
+    } // run
+
+    /**
+     * Stops the warm-up after the current burst, e.g., because the real game
+     * started and needs the processor.
+     */
+    public void cancel() {
+        cancelled = true;
+    } // cancel
+
+    /**
+     * Returns whether the warm-up has finished, either on its own or because it
+     * was cancelled.
+     *
+     * @return {@code true} if the warm-up has finished
+     */
+    public boolean isDone() {
+        return done;
+    } // isDone
+
+    /**
+     * Returns whether the warm-up was cancelled before it finished on its own.
+     *
+     * @return {@code true} if the warm-up was cancelled
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    } // isCancelled
+
+    /**
+     * Returns the number of steps simulated.
+     *
+     * @return the number of steps
+     */
+    public long getSteps() {
+        return steps;
+    } // getSteps
+
+    /**
+     * Returns the wall-clock time the warm-up took.
+     *
+     * @return the elapsed time
+     */
+    public Duration getElapsed() {
+        return Duration.millis(elapsedNanos / 1e6);
+    } // getElapsed
+
+    /**
+     * Returns the time the JIT compiler spent compiling during the warm-up, on
+     * all compiler threads. This includes compilations unrelated to the game.
+     *
+     * @return the compilation time, or {@code null} if the JVM does not report it
+     */
+    public Duration getCompilationTime() {
+        return compilationMillis < 0 ? null : Duration.millis(compilationMillis);
+    } // getCompilationTime
+
+    @Override
+    public String toString() {
+        Duration compilation = getCompilationTime();
+        return String.format("warm-up: %d steps in %.0f ms%s%s", steps, getElapsed().toMillis(),
+                compilation == null ? "" : String.format(", %.0f ms compiling",
+                        compilation.toMillis()),
+                cancelled ? " (cancelled)" : "");
+    } // toString
+
+} // WarmUp
@@ -0,0 +1,97 @@
+package cs1302.game;
+
+import java.util.Arrays;
+
+/**
+ * The state of an {@link AsteroidsGame} after one step, as needed to draw it.
+ * <p>
+ * A snapshot is filled by the simulation and then handed to the JavaFX
+ * Application Thread through a {@link TripleBuffer}. Once published, it is not
+ * modified until the renderer is done with it. Snapshots are reused, so the
+ * arrays only grow when the number of objects exceeds all previous steps.
+ */
+final class WorldSnapshot {
+
+    /** Number of objects in this snapshot. */
+    int count;
+    /** The objects; only their immutable properties may be read. */
+    AnimatedObject[] objects = new AnimatedObject[64];
+    double[] prevX = new double[64];
+    double[] prevY = new double[64];
+    double[] x = new double[64];
+    double[] y = new double[64];
+    double[] prevDirection = new double[64];
+    double[] direction = new double[64];
+    boolean[] visible = new boolean[64];
+    /** Object specific state, see {@link AnimatedObject#getViewState()}. */
+    int[] viewState = new int[64];
+
+    /** Game score. */
+    int score;
+    /** Number of lives displayed. */
+    int livesShown;
+    /** Text displayed in the info area. */
+    String info = "";
+    /** Whether the game is waiting for the player; nothing moves then. */
+    boolean waiting;
+    /** Whether the game has ended. */
+    boolean gameOver;
+    /** Whether the game is going back in time; moving forward to the next state would be wrong. */
+    boolean rewinding;
+
+    /**
+     * Removes all objects from this snapshot.
+     */
+    void clear() {
+        // do not keep removed objects reachable
+        Arrays.fill(objects, 0, count, null);
+        count = 0;
+    } // clear
+
+    /**
+     * Adds the state of an object to this snapshot.
+     *
+     * @param object        the object
+     * @param prevX         x coordinate before the last step
+     * @param prevY         y coordinate before the last step
+     * @param x             x coordinate
+     * @param y             y coordinate
+     * @param prevDirection direction before the last step
+     * @param direction     direction
+     * @param visible       whether the object is visible
+     * @param viewState     object specific state
+     */
+    void add(AnimatedObject object, double prevX, double prevY, double x, double y,
+            double prevDirection, double direction, boolean visible, int viewState) {
+        if (count == objects.length) {
+            grow();
+        } // if
+        int i = count++;
+        this.objects[i] = object;
+        this.prevX[i] = prevX;
+        this.prevY[i] = prevY;
+        this.x[i] = x;
+        this.y[i] = y;
+        this.prevDirection[i] = prevDirection;
+        this.direction[i] = direction;
+        this.visible[i] = visible;
+        this.viewState[i] = viewState;
+    } // add
+
+    /**
+     * Doubles the capacity of this snapshot.
+     */
+    private void grow() {
+        int capacity = objects.length * 2;
+        objects = Arrays.copyOf(objects, capacity);
+        prevX = Arrays.copyOf(prevX, capacity);
+        prevY = Arrays.copyOf(prevY, capacity);
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        prevDirection = Arrays.copyOf(prevDirection, capacity);
+        direction = Arrays.copyOf(direction, capacity);
+        visible = Arrays.copyOf(visible, capacity);
+        viewState = Arrays.copyOf(viewState, capacity);
+    } // grow
+
+} // WorldSnapshot
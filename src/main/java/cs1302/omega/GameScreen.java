@@ -1,10 +1,13 @@
 package cs1302.omega;
 
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 
 import cs1302.game.AsteroidsGame;
+import cs1302.game.AsteroidsWorld;
+import cs1302.game.Autopilot;
 import cs1302.game.Game;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
@@ -108,7 +111,30 @@ public class GameScreen {
         infoArea.getChildren().add(space2);
         infoArea.getChildren().add(scoreArea);
 
-        game = new AsteroidsGame(width, height - INFO_HEIGHT, this);
+        AsteroidsGame asteroidsGame = new AsteroidsGame(width, height - INFO_HEIGHT, this);
+        game = asteroidsGame;
+        // run the simulation off the JavaFX Application Thread if requested
+        game.setSimulationThreaded(Boolean.getBoolean("cs1302.game.threaded"));
+        // report steps that take 5 frames or longer, unless disabled with 0
+        game.setWatchdog(Double.parseDouble(System.getProperty("cs1302.game.watchdog", "5")),
+                Path.of(System.getProperty("cs1302.game.diagnostics", "diagnostics")));
+        // warm up the JIT compiler behind the start screen, unless disabled
+        asteroidsGame.setWarmUpEnabled(
+                Boolean.parseBoolean(System.getProperty("cs1302.game.warmup", "true")));
+        // record the game to a replay file if requested
+        String recording = System.getProperty("cs1302.game.record");
+        if (recording != null) {
+            asteroidsGame.setRecordingFile(Path.of(recording));
+        }
+        // let asteroids bounce off each other
+        asteroidsGame.setAsteroidCollisions(Boolean.getBoolean("cs1302.game.asteroidCollisions"));
+        // run steps with many objects in parallel, see AsteroidsWorld.setParallelThreshold
+        asteroidsGame.setParallelThreshold(Integer.getInteger("cs1302.game.parallelThreshold",
+                AsteroidsWorld.DEFAULT_PARALLEL_THRESHOLD));
+        // let a bot play instead, e.g., for unattended soak runs
+        if (Boolean.getBoolean("cs1302.game.autopilot")) {
+            asteroidsGame.setInputSource(new Autopilot());
+        }
         game.setBackground(new Background(new BackgroundFill(Color.BLACK, null, null)));
         // this makes the game area render after the info area without affecting the
         // layout
@@ -2,6 +2,9 @@
  * Provides the starter code for the <strong>cs1302-omega</strong> project.
  */
 module cs1302.omega {
+    requires java.management;
+    requires jdk.management;
+    requires static jdk.incubator.vector;
     requires transitive java.logging;
     requires transitive javafx.controls;
     requires transitive javafx.fxml;
@@ -0,0 +1,303 @@
+package cs1302.game;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.sun.management.ThreadMXBean;
+import cs1302.game.Asteroid.AsteroidType;
+import cs1302.omega.GameScreen;
+import cs1302.omega.OmegaApp;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.FutureTask;
+import javafx.application.Platform;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+/**
+ * Checks that steps of {@link AsteroidsGame} in which nothing is created do not
+ * allocate any memory, neither in {@link AsteroidsGame#update()} nor in
+ * {@link AsteroidsGame#render(double)}.
+ * <p>
+ * Each scenario plays a few games with the same seeds, one after the other,
+ * and drives them through the update and render methods of the game on the
+ * JavaFX Application Thread, which runs headless on Monocle, see the surefire
+ * configuration. Only steps that create nothing are checked: the ship does not
+ * fire or launch a missile in them, and no asteroid is destroyed, which is seen
+ * from the score, since that may split it. Neither are steps in which the game
+ * pauses or resumes, since JavaFX lays out the info text anew then. The
+ * {@code VOLLEY} scenario fires now and then, so the steps checked in between
+ * move projectiles and missiles and test them for hits. The first steps of
+ * every game are not checked either, since the buffers of a new game grow to
+ * fit its objects then. The allocated bytes of each step are read with
+ * {@link ThreadMXBean#getCurrentThreadAllocatedBytes()}.
+ * <p>
+ * Every scenario is played three times. The first time only warms up, so code
+ * run for the first time, which may load classes or resolve constants, does
+ * not count. When the JIT compiler runs, now and then a single step allocates
+ * a few bytes, but which step it is changes from time to time; so a step fails
+ * only if it allocates both the second and the third time.
+ */
+class AllocationTest {
+
+    /** The number of steps played per scenario. */
+    private static final int STEPS = 5_000;
+    /** Steps of a new game that are not checked. */
+    private static final int SETTLE_STEPS = 10;
+    /** The number of states kept for rewinding, as in the game. */
+    private static final int REWIND_STEPS = 600;
+    /** Steps between the starts of two volleys of the {@code VOLLEY} scenario. */
+    private static final int VOLLEY_PERIOD = 300;
+    /** Steps in which a volley fires, about two shots and seven missiles. */
+    private static final int VOLLEY_STEPS = 60;
+    /** The position between the last two states at which the game is rendered. */
+    private static final double ALPHA = 0.5;
+    /** The most allocating steps listed per scenario. */
+    private static final int LISTED_STEPS = 10;
+    /** The seed of the first game of a scenario. */
+    private static final long SEED = 1302;
+
+    /**
+     * A way to play a game.
+     */
+    private enum Scenario {
+
+        /** Only confirms pauses. */
+        DRIFT(TickInput.CONFIRM, 0, false, false, SETTLE_STEPS),
+        /** Turns and thrusts all the time. */
+        STEER(TickInput.CONFIRM | TickInput.ROTATE_LEFT | TickInput.THRUST, 0, false, false,
+                SETTLE_STEPS),
+        /** Aims at a moving pointer with aim assist. */
+        AIM(TickInput.CONFIRM | TickInput.AIM | TickInput.AIM_ASSIST, 0, false, false,
+                SETTLE_STEPS),
+        /**
+         * Only confirms pauses, among asteroids that bounce off each other. The
+         * states of so many asteroids do not fit the slots reserved for rewinding,
+         * which grow when each is used the first time, so those steps are not
+         * checked either.
+         */
+        CROWD(TickInput.CONFIRM, 300, false, true, REWIND_STEPS + SETTLE_STEPS),
+        /** Lets the autopilot play, but not fire. */
+        AUTOPILOT(-1, 0, false, false, SETTLE_STEPS),
+        /** Turns, and fires and launches missiles now and then. */
+        VOLLEY(TickInput.CONFIRM | TickInput.ROTATE_LEFT, 0, true, false, SETTLE_STEPS);
+
+        private final int actions;
+        private final int extraAsteroids;
+        private final boolean volleys;
+        private final boolean asteroidCollisions;
+        private final int settleSteps;
+
+        /**
+         * Creates a scenario.
+         *
+         * @param actions            the actions of every step, or -1 for the
+         *                           autopilot
+         * @param extraAsteroids     small asteroids added to each world
+         * @param volleys            whether the ship fires volleys
+         * @param asteroidCollisions whether asteroids bounce off each other
+         * @param settleSteps        steps of a new game that are not checked
+         */
+        Scenario(int actions, int extraAsteroids, boolean volleys,
+                boolean asteroidCollisions, int settleSteps) {
+            this.actions = actions;
+            this.extraAsteroids = extraAsteroids;
+            this.volleys = volleys;
+            this.asteroidCollisions = asteroidCollisions;
+            this.settleSteps = settleSteps;
+        } // Scenario
+
+    } // Scenario
+
+    /**
+     * Starts the JavaFX toolkit, which the nodes of the game need.
+     *
+     * @throws InterruptedException if interrupted while waiting for it
+     */
+    @BeforeAll
+    static void startToolkit() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        try {
+            Platform.startup(started::countDown);
+        } catch (IllegalStateException e) {
+            // started by another test already
+            started.countDown();
+        } // try
+        started.await();
+    } // startToolkit
+
+    /**
+     * Checks that the steps of a scenario that create nothing do not allocate
+     * memory.
+     *
+     * @param scenario the scenario
+     * @throws Exception if playing the scenario fails
+     */
+    @ParameterizedTest
+    @EnumSource(Scenario.class)
+    void stepsThatCreateNothingDoNotAllocate(Scenario scenario) throws Exception {
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assertTrue(threads.isThreadAllocatedMemorySupported(),
+                "measuring allocated memory is not supported by this JVM");
+        threads.setThreadAllocatedMemoryEnabled(true);
+        play(scenario, threads);
+        Play measured = play(scenario, threads);
+        Play remeasured = play(scenario, threads);
+        assertTrue(measured.checked > 0, "no step checked");
+        assertTrue(!scenario.volleys || measured.inFlight > 0,
+                "no step checked with shots in flight");
+        StringBuilder listed = new StringBuilder();
+        int failing = 0;
+        for (int i = 0; i < STEPS; i++) {
+            if (measured.bytes[i] > 0 && remeasured.bytes[i] > 0) {
+                if (++failing <= LISTED_STEPS) {
+                    listed.append(String.format("%n    step %d: %d and %d bytes", i,
+                            measured.bytes[i], remeasured.bytes[i]));
+                } // if
+            } // if
+        } // for
+        assertTrue(failing == 0, failing + " of " + measured.checked
+                + " steps allocated memory both times" + listed);
+    } // stepsThatCreateNothingDoNotAllocate
+
+    /**
+     * Plays a scenario on the JavaFX Application Thread.
+     *
+     * @param scenario the scenario
+     * @param threads  the bean reading the allocated bytes
+     * @return the steps played
+     * @throws Exception if playing the scenario fails
+     */
+    private static Play play(Scenario scenario, ThreadMXBean threads) throws Exception {
+        FutureTask<Play> task = new FutureTask<>(() -> new Play(scenario, threads));
+        Platform.runLater(task);
+        return task.get();
+    } // play
+
+    /**
+     * Creates a game for a scenario.
+     *
+     * @param scenario the scenario
+     * @param input    the input of the scenario
+     * @param seed     the seed
+     * @return the game, initialized
+     */
+    private static AsteroidsGame createGame(Scenario scenario, ScenarioInput input,
+            long seed) {
+        GameScreen screen = new GameScreen(OmegaApp.SCENE_WIDTH, OmegaApp.SCENE_HEIGHT, null) {
+            @Override
+            public void afterGame(int score) {
+                // there is no app to go back to
+            } // afterGame
+        };
+        AsteroidsGame game = new AsteroidsGame(OmegaApp.SCENE_WIDTH,
+                OmegaApp.SCENE_HEIGHT - GameScreen.INFO_HEIGHT, screen);
+        game.setSeed(seed);
+        game.setParallelThreshold(Integer.MAX_VALUE);
+        game.setAsteroidCollisions(scenario.asteroidCollisions);
+        game.setInputSource(input);
+        game.init();
+        return game;
+    } // createGame
+
+    /**
+     * The steps of a scenario played once.
+     */
+    private static class Play {
+
+        /** The bytes allocated by each step, 0 if it was not checked. */
+        final long[] bytes = new long[STEPS];
+        /** The number of steps checked. */
+        int checked;
+        /** The number of steps checked with shots in flight. */
+        int inFlight;
+
+        /**
+         * Plays a scenario. Must be called on the JavaFX Application Thread.
+         *
+         * @param scenario the scenario
+         * @param threads  the bean reading the allocated bytes
+         */
+        Play(Scenario scenario, ThreadMXBean threads) {
+            long seed = SEED;
+            ScenarioInput input = new ScenarioInput(scenario);
+            AsteroidsGame game = createGame(scenario, input, seed);
+            for (int i = 0; i < STEPS; i++) {
+                int score = input.world != null ? input.world.getScore() : -1;
+                boolean waiting = input.world != null && input.world.isWaitingForInteraction();
+                long before = threads.getCurrentThreadAllocatedBytes();
+                game.update();
+                game.render(ALPHA);
+                long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+                AsteroidsWorld world = input.world;
+                if (world.isGameOver()) {
+                    game = createGame(scenario, input, ++seed);
+                    continue;
+                } // if
+                if (world.getTick() <= scenario.settleSteps || input.creating
+                        || world.getScore() != score
+                        || world.isWaitingForInteraction() != waiting) {
+                    continue;
+                } // if
+                checked++;
+                if (!world.getProjectiles().isEmpty()) {
+                    inFlight++;
+                } // if
+                bytes[i] = allocated;
+            } // for
+        } // Play
+
+    } // Play
+
+    /**
+     * The input of a scenario. A scenario with extra asteroids adds them when
+     * it sees a new world.
+     */
+    private static class ScenarioInput implements InputSource {
+
+        private final Scenario scenario;
+        private final Autopilot autopilot = new Autopilot();
+        /** The world polled last. */
+        AsteroidsWorld world;
+        /** Whether the ship fires or launches a missile in the next step. */
+        boolean creating;
+
+        /**
+         * Creates the input of a scenario.
+         *
+         * @param scenario the scenario
+         */
+        ScenarioInput(Scenario scenario) {
+            this.scenario = scenario;
+        } // ScenarioInput
+
+        @Override
+        public void poll(AsteroidsWorld world, TickInput input) {
+            if (world != this.world) {
+                this.world = world;
+                if (scenario.extraAsteroids > 0) {
+                    world.spawnAsteroids(scenario.extraAsteroids, AsteroidType.SMALL);
+                } // if
+            } // if
+            if (scenario.actions < 0) {
+                autopilot.poll(world, input);
+                // only the autopilot's steering, not its shots
+                input.set(input.getActions() & ~(TickInput.FIRE | TickInput.LAUNCH),
+                        input.getPointerX(), input.getPointerY());
+            } else {
+                // circle around the center of the game area
+                double angle = world.getTick() * 0.01;
+                int actions = scenario.actions;
+                if (scenario.volleys && world.getTick() % VOLLEY_PERIOD < VOLLEY_STEPS) {
+                    actions |= TickInput.FIRE | TickInput.LAUNCH;
+                } // if
+                input.set(actions,
+                        world.getBounds().getCenterX() * (1 + 0.5 * Math.cos(angle)),
+                        world.getBounds().getCenterY() * (1 + 0.5 * Math.sin(angle)));
+            } // if
+            creating = input.isActive(TickInput.FIRE) || input.isActive(TickInput.LAUNCH);
+        } // poll
+
+    } // ScenarioInput
+
+} // AllocationTest
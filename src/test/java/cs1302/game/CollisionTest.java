@@ -0,0 +1,103 @@
+package cs1302.game;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import cs1302.omega.GameScreen;
+import cs1302.omega.OmegaApp;
+import java.util.ArrayList;
+import java.util.List;
+import javafx.geometry.Bounds;
+import javafx.scene.shape.Polygon;
+import javafx.scene.shape.Shape;
+import javafx.util.Duration;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks {@link AnimatedObject#collidesWith} against {@link Shape#intersect},
+ * the reference it replaced.
+ * <p>
+ * The pairs come from games played by the {@link Autopilot}: every asteroid
+ * against the ship, every projectile and every other asteroid, at every step.
+ * Pairs whose overlap according to {@code Shape.intersect} is smaller than a
+ * tenth of a pixel are counted as touching rather than as mismatches, since
+ * {@code Shape.intersect} works in single precision.
+ * <p>
+ * {@code Shape.intersect} needs the graphics pipeline; without a display, it
+ * runs with {@code -Dprism.order=sw}, see the surefire configuration.
+ */
+class CollisionTest {
+
+    /** The number of steps checked. */
+    private static final int STEPS = 1_000;
+    /** Overlaps smaller than this, in pixels, count as touching. */
+    private static final double TOUCHING = 0.1;
+
+    /**
+     * Checks that {@code collidesWith} agrees with {@code Shape.intersect} for
+     * the pairs of objects of a few games.
+     */
+    @Test
+    void collidesWithMatchesShapeIntersect() {
+        AsteroidsWorld world = new AsteroidsWorld(OmegaApp.SCENE_WIDTH,
+                OmegaApp.SCENE_HEIGHT - GameScreen.INFO_HEIGHT, Duration.millis(1000.0 / 60), 1);
+        Autopilot autopilot = new Autopilot();
+        TickInput input = new TickInput();
+        List<AnimatedObject[]> pairs = new ArrayList<>();
+        long checked = 0;
+        long hits = 0;
+        long mismatches = 0;
+        for (int i = 0; i < STEPS; i++) {
+            autopilot.poll(world, input);
+            world.step(input);
+            if (world.isGameOver()) {
+                world = new AsteroidsWorld(world.getBounds().getWidth(),
+                        world.getBounds().getHeight(), world.getTimeStep(), i);
+            } // if
+            pairs.clear();
+            List<Asteroid> asteroids = world.getAsteroids();
+            for (int a = 0; a < asteroids.size(); a++) {
+                pairs.add(new AnimatedObject[] { asteroids.get(a), world.getPlayer() });
+                for (AnimatedObject p : world.getProjectiles()) {
+                    pairs.add(new AnimatedObject[] { asteroids.get(a), p });
+                } // for
+                for (int b = a + 1; b < asteroids.size(); b++) {
+                    pairs.add(new AnimatedObject[] { asteroids.get(a), asteroids.get(b) });
+                } // for
+            } // for
+            for (AnimatedObject[] pair : pairs) {
+                boolean fast = pair[0].collidesWith(pair[1]);
+                Bounds overlap = Shape.intersect(shape(pair[0]), shape(pair[1]))
+                        .getBoundsInLocal();
+                boolean reference = !overlap.isEmpty();
+                boolean tiny = reference
+                        && Math.min(overlap.getWidth(), overlap.getHeight()) < TOUCHING;
+                if (fast != reference && !tiny) {
+                    mismatches++;
+                } // if
+                if (fast) {
+                    hits++;
+                } // if
+            } // for
+            checked += pairs.size();
+        } // for
+        assertTrue(hits > 0, "no colliding pairs among " + checked);
+        assertEquals(0, mismatches, "mismatches among " + checked + " pairs");
+    } // collidesWithMatchesShapeIntersect
+
+    /**
+     * Returns a polygon node at the position and rotation of the specified
+     * object, like the node that displays it.
+     *
+     * @param object the object
+     * @return the node
+     */
+    private static Shape shape(AnimatedObject object) {
+        Polygon polygon = new Polygon(object.getVertices());
+        polygon.setTranslateX(object.getX());
+        polygon.setTranslateY(object.getY());
+        polygon.setRotate(object.getDirectionInDegrees());
+        return polygon;
+    } // shape
+
+} // CollisionTest
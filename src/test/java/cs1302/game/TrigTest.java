@@ -0,0 +1,50 @@
+package cs1302.game;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the lookup tables of {@link Trig} against {@link Math}.
+ * <p>
+ * Angles on the table grid must give exactly the value of {@code Math}, since
+ * asteroid polygons are generated with them and replays depend on it. Random
+ * angles, including negative ones and ones beyond a full turn, must be within
+ * {@link Trig#MAX_ERROR}.
+ */
+class TrigTest {
+
+    /** The number of random angles checked. */
+    private static final int ANGLES = 1_000_000;
+
+    /**
+     * Checks that the angles on the table grid are exact.
+     */
+    @Test
+    void gridAnglesAreExact() {
+        for (int i = 0; i <= 360 * Trig.RESOLUTION; i++) {
+            double degrees = i / (double) Trig.RESOLUTION;
+            double rad = Math.toRadians(degrees);
+            assertEquals(Math.sin(rad), Trig.sin(degrees), "sin " + degrees);
+            assertEquals(Math.cos(rad), Trig.cos(degrees), "cos " + degrees);
+        } // for
+    } // gridAnglesAreExact
+
+    /**
+     * Checks that random angles are within the maximum error.
+     */
+    @Test
+    void randomAnglesAreWithinMaxError() {
+        GameRandom rnd = new GameRandom(1);
+        double maxError = 0;
+        for (int i = 0; i < ANGLES; i++) {
+            double degrees = rnd.nextDouble(-720, 720);
+            double rad = Math.toRadians(degrees);
+            maxError = Math.max(maxError, Math.abs(Trig.sin(degrees) - Math.sin(rad)));
+            maxError = Math.max(maxError, Math.abs(Trig.cos(degrees) - Math.cos(rad)));
+        } // for
+        assertTrue(maxError <= Trig.MAX_ERROR, "max error " + maxError);
+    } // randomAnglesAreWithinMaxError
+
+} // TrigTest
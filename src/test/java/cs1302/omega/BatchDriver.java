@@ -0,0 +1,64 @@
+package cs1302.omega;
+
+import cs1302.game.Autopilot;
+import cs1302.game.BatchRunner;
+import cs1302.game.InputSource;
+import java.util.function.LongFunction;
+import javafx.util.Duration;
+
+/**
+ * Driver that simulates a batch of Asteroids games on all cores, without a
+ * display, and reports the throughput and the score distribution for 1, 2, 4,
+ * ... up to all available threads.
+ * <p>
+ * Every run simulates the same seeded sessions, so the score distributions are
+ * identical and only the throughput differs.
+ */
+public class BatchDriver {
+
+    /** The number of sessions per batch if none is specified. */
+    private static final int DEFAULT_SESSIONS = 1000;
+    /** The step limit of a session if none is specified; ten minutes of game time. */
+    private static final long DEFAULT_MAX_TICKS = 36_000;
+
+    /**
+     * Main entry-point into the batch simulation.
+     * @param args the command-line arguments: the number of sessions, the step
+     *             limit of a session, and the input policy, one of
+     *             {@code spinner} (the default), {@code random}, {@code idle}
+     *             or {@code autopilot}.
+     */
+    public static void main(String[] args) {
+        int sessions = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_SESSIONS;
+        long maxTicks = args.length > 1 ? Long.parseLong(args[1]) : DEFAULT_MAX_TICKS;
+        String name = args.length > 2 ? args[2] : "spinner";
+        LongFunction<InputSource> policy = switch (name) {
+        case "spinner" -> seed -> InputSource.spinner();
+        case "random" -> InputSource::random;
+        case "idle" -> seed -> InputSource.idle();
+        case "autopilot" -> seed -> new Autopilot();
+        default -> throw new IllegalArgumentException("unknown policy: " + name);
+        };
+        BatchRunner runner = new BatchRunner(OmegaApp.SCENE_WIDTH,
+                OmegaApp.SCENE_HEIGHT - GameScreen.INFO_HEIGHT,
+                Duration.millis(1000.0 / 60), maxTicks, policy);
+
+        // warm up, so the first measured run is not mostly interpreted
+        runner.run(Math.max(1, sessions / 10), 0, Runtime.getRuntime().availableProcessors());
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        double baseline = 0;
+        for (int threads = 1; ; threads = Math.min(threads * 2, cores)) {
+            BatchRunner.Report report = runner.run(sessions, 0, threads);
+            if (threads == 1) {
+                baseline = report.getTicksPerSecond();
+            } // if
+            System.out.println(report);
+            System.out.printf("    speedup %.2fx%n", report.getTicksPerSecond() / baseline);
+            if (threads == cores) {
+                break;
+            } // if
+        } // for
+    } // main
+
+} // BatchDriver
@@ -0,0 +1,94 @@
+package cs1302.omega;
+
+import cs1302.game.Asteroid.AsteroidType;
+import cs1302.game.AsteroidsWorld;
+import cs1302.game.TickInput;
+import java.util.Arrays;
+import javafx.util.Duration;
+
+/**
+ * Driver that measures how long steps take with thousands of asteroids that
+ * bounce off each other, and compares them with the frame time at 60 fps.
+ * <p>
+ * The world is filled with small and medium asteroids on top of the usual
+ * ones, and the ship only confirms pauses, which are not timed. A new, equally
+ * crowded world is started when the game ends; creating it is not timed
+ * either. The game area is as large as the game screen unless specified;
+ * thousands of asteroids only fit on it on top of each other, so a large
+ * display is closer to a real crowd.
+ */
+public class CrowdDriver {
+
+    /** The number of asteroids added if none is specified. */
+    private static final int DEFAULT_ASTEROIDS = 3_000;
+    /** The number of steps measured if none is specified. */
+    private static final int DEFAULT_STEPS = 2_000;
+    /** Steps simulated before measuring, so the JIT compiler can catch up. */
+    private static final int WARM_UP_STEPS = 500;
+    /** The time available for a frame at 60 fps, in milliseconds. */
+    private static final double FRAME_MILLIS = 1000.0 / 60;
+
+    /**
+     * Main entry-point into the crowd measurement.
+     * @param args the command-line arguments: the number of asteroids, the
+     *             number of steps, whether asteroids collide (default
+     *             {@code true}), and the width and height of the game area.
+     */
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_ASTEROIDS;
+        int steps = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_STEPS;
+        boolean collisions = args.length > 2 ? Boolean.parseBoolean(args[2]) : true;
+        int width = args.length > 3 ? Integer.parseInt(args[3]) : OmegaApp.SCENE_WIDTH;
+        int height = args.length > 4 ? Integer.parseInt(args[4])
+                : OmegaApp.SCENE_HEIGHT - GameScreen.INFO_HEIGHT;
+        TickInput input = new TickInput();
+        input.set(TickInput.CONFIRM, 0, 0);
+
+        AsteroidsWorld world = createWorld(count, collisions, width, height);
+        long[] times = new long[steps];
+        for (int i = -WARM_UP_STEPS; i < steps;) {
+            if (world.isGameOver()) {
+                world = createWorld(count, collisions, width, height);
+            } // if
+            // paused steps do nothing and are not counted
+            boolean waiting = world.isWaitingForInteraction();
+            long start = System.nanoTime();
+            world.step(input);
+            long time = System.nanoTime() - start;
+            if (!waiting) {
+                if (i >= 0) {
+                    times[i] = time;
+                } // if
+                i++;
+            } // if
+        } // for
+        Arrays.sort(times);
+        double mean = Arrays.stream(times).average().orElse(0) / 1e6;
+        System.out.printf("%d asteroids on %dx%d, asteroid collisions %s, %d steps%n",
+                world.getAsteroids().size(), width, height, collisions ? "on" : "off", steps);
+        System.out.printf("    step mean %.3f ms, p50 %.3f ms, p99 %.3f ms, max %.3f ms%n",
+                mean, times[steps / 2] / 1e6, times[steps * 99 / 100] / 1e6,
+                times[steps - 1] / 1e6);
+        System.out.printf("    %.1f%% of the %.1f ms frame on average%n",
+                100 * mean / FRAME_MILLIS, FRAME_MILLIS);
+    } // main
+
+    /**
+     * Creates a world crowded with asteroids.
+     *
+     * @param count      the number of asteroids to add
+     * @param collisions whether asteroids collide
+     * @param width      the width of the game area
+     * @param height     the height of the game area
+     * @return the world
+     */
+    private static AsteroidsWorld createWorld(int count, boolean collisions, int width,
+            int height) {
+        AsteroidsWorld world = new AsteroidsWorld(width, height, Duration.millis(FRAME_MILLIS));
+        world.setAsteroidCollisions(collisions);
+        world.spawnAsteroids(count * 4 / 5, AsteroidType.SMALL);
+        world.spawnAsteroids(count / 5, AsteroidType.MEDIUM);
+        return world;
+    } // createWorld
+
+} // CrowdDriver
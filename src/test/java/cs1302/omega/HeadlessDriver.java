@@ -0,0 +1,56 @@
+package cs1302.omega;
+
+import cs1302.game.AsteroidsWorld;
+import cs1302.game.TickInput;
+import javafx.util.Duration;
+
+/**
+ * Driver that simulates Asteroids games without a display, as fast as possible,
+ * and reports how many steps per second were simulated and how many collision
+ * checks the pair cache saved.
+ * <p>
+ * The ship keeps turning and firing, and confirms every pause, so the games see
+ * a realistic number of asteroids and projectiles. When a game ends, a new one
+ * is started.
+ */
+public class HeadlessDriver {
+
+    /** The number of steps simulated if none is specified. */
+    private static final long DEFAULT_STEPS = 100_000;
+
+    /**
+     * Main entry-point into the headless simulation.
+     * @param args the command-line arguments: the number of steps to simulate.
+     */
+    public static void main(String[] args) {
+        long steps = args.length > 0 ? Long.parseLong(args[0]) : DEFAULT_STEPS;
+        int width = OmegaApp.SCENE_WIDTH;
+        int height = OmegaApp.SCENE_HEIGHT - GameScreen.INFO_HEIGHT;
+        Duration timeStep = Duration.millis(1000.0 / 60);
+        TickInput input = new TickInput();
+        input.set(TickInput.ROTATE_RIGHT | TickInput.FIRE | TickInput.CONFIRM, 0, 0);
+
+        AsteroidsWorld world = new AsteroidsWorld(width, height, timeStep);
+        int games = 1;
+        long pairChecks = 0;
+        long pairsCulled = 0;
+        long start = System.nanoTime();
+        for (long i = 0; i < steps; i++) {
+            world.step(input);
+            if (world.isGameOver()) {
+                pairChecks += world.getPairChecks();
+                pairsCulled += world.getPairsCulled();
+                world = new AsteroidsWorld(width, height, timeStep);
+                games++;
+            } // if
+        } // for
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d steps in %.3f s (%.0f steps/s), %d games, last score %d%n",
+                steps, seconds, steps / seconds, games, world.getScore());
+        pairChecks += world.getPairChecks();
+        pairsCulled += world.getPairsCulled();
+        System.out.printf("%d collision pairs, %d (%.1f%%) culled by the pair cache%n",
+                pairChecks, pairsCulled, 100.0 * pairsCulled / Math.max(1, pairChecks));
+    } // main
+
+} // HeadlessDriver
@@ -0,0 +1,138 @@
+package cs1302.omega;
+
+import cs1302.game.Asteroid.AsteroidType;
+import cs1302.game.AsteroidsWorld;
+import cs1302.game.MotionKernel;
+import cs1302.game.TickInput;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import javafx.util.Duration;
+
+/**
+ * Driver that compares the scalar and the vector {@link MotionKernel} with 1k,
+ * 10k and 100k asteroids that bounce off each other, and checks that both
+ * leave the worlds in the same state.
+ * <p>
+ * The game area grows with the number of asteroids, so they are as crowded as
+ * 3000 asteroids on a 4K display. The ship only confirms pauses, which are not
+ * measured, and a new world is started when the game ends. The vector kernel
+ * needs the Vector API; run with {@code --add-modules jdk.incubator.vector},
+ * otherwise only the scalar kernel is measured.
+ */
+public class MotionBenchmark {
+
+    /** The numbers of asteroids measured if none are specified. */
+    private static final int[] DEFAULT_COUNTS = { 1_000, 10_000, 100_000 };
+    /** Area of the game per asteroid, in square pixels. */
+    private static final double AREA_PER_ASTEROID = 3840.0 * 2160 / 3000;
+    /** Steps measured for 1000 asteroids; fewer for more asteroids. */
+    private static final int STEPS_PER_1K = 1_000;
+
+    /**
+     * Main entry-point into the motion benchmark.
+     * @param args the command-line arguments: the numbers of asteroids.
+     */
+    public static void main(String[] args) {
+        int[] counts = args.length > 0
+                ? Arrays.stream(args).mapToInt(Integer::parseInt).toArray() : DEFAULT_COUNTS;
+        MotionKernel vector = MotionKernel.vector();
+        if (vector == null) {
+            System.out.println("the Vector API is not available, "
+                    + "run with --add-modules jdk.incubator.vector to compare");
+        } // if
+        for (int count : counts) {
+            int steps = Math.max(20, STEPS_PER_1K * 1_000 / count);
+            System.out.printf("%d asteroids, %d steps:%n", count, steps);
+            // a round of both, so the one measured first is not at a disadvantage
+            run(MotionKernel.scalar(), count, steps);
+            if (vector != null) {
+                run(vector, count, steps);
+            } // if
+            Result scalar = run(MotionKernel.scalar(), count, steps);
+            System.out.println(scalar);
+            if (vector != null) {
+                Result result = run(vector, count, steps);
+                System.out.println(result);
+                System.out.printf("    kernel speedup %.2fx, step speedup %.2fx, state %s%n",
+                        (double) scalar.kernelNanos / result.kernelNanos,
+                        (double) scalar.stepNanos / result.stepNanos,
+                        Arrays.equals(scalar.state, result.state) ? "equal" : "DIFFERENT");
+            } // if
+        } // for
+    } // main
+
+    /**
+     * Simulates a crowded world with the specified kernel.
+     *
+     * @param kernel the kernel
+     * @param count  the number of asteroids
+     * @param steps  the number of steps measured
+     * @return the result
+     */
+    private static Result run(MotionKernel kernel, int count, int steps) {
+        AsteroidsWorld world = createWorld(kernel, count);
+        TickInput input = new TickInput();
+        input.set(TickInput.CONFIRM, 0, 0);
+        Result result = new Result();
+        result.kernel = kernel;
+        // as many steps again before measuring, so the JIT compiler can catch up
+        for (int i = -steps; i < steps;) {
+            if (world.isGameOver()) {
+                world = createWorld(kernel, count);
+            } // if
+            // paused steps do nothing and are not counted
+            boolean waiting = world.isWaitingForInteraction();
+            long kernelBefore = world.getMotionKernelNanos();
+            long start = System.nanoTime();
+            world.step(input);
+            long time = System.nanoTime() - start;
+            if (!waiting) {
+                if (i >= 0) {
+                    result.steps++;
+                    result.stepNanos += time;
+                    result.kernelNanos += world.getMotionKernelNanos() - kernelBefore;
+                } // if
+                i++;
+            } // if
+        } // for
+        ByteBuffer buffer = ByteBuffer.allocate(world.getStateSize());
+        world.save(buffer);
+        result.state = buffer.array();
+        return result;
+    } // run
+
+    /**
+     * Creates a crowded world with the specified kernel.
+     *
+     * @param kernel the kernel
+     * @param count  the number of asteroids
+     * @return the world
+     */
+    private static AsteroidsWorld createWorld(MotionKernel kernel, int count) {
+        double height = Math.sqrt(count * AREA_PER_ASTEROID * 9 / 16);
+        AsteroidsWorld world = new AsteroidsWorld(height * 16 / 9, height,
+                Duration.millis(1000.0 / 60), 1);
+        world.setMotionKernel(kernel);
+        world.setAsteroidCollisions(true);
+        world.spawnAsteroids(count, AsteroidType.SMALL);
+        return world;
+    } // createWorld
+
+    /** The measurements of one run. */
+    private static class Result {
+
+        private MotionKernel kernel;
+        private int steps;
+        private long stepNanos;
+        private long kernelNanos;
+        private byte[] state;
+
+        @Override
+        public String toString() {
+            return String.format("    %-8s step %8.3f ms, kernel %7.3f ms", kernel,
+                    stepNanos / 1e6 / steps, kernelNanos / 1e6 / steps);
+        } // toString
+
+    } // Result
+
+} // MotionBenchmark
@@ -0,0 +1,135 @@
+package cs1302.omega;
+
+import cs1302.game.Asteroid.AsteroidType;
+import cs1302.game.AsteroidsWorld;
+import cs1302.game.TickInput;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import javafx.util.Duration;
+
+/**
+ * Driver that compares serial and parallel steps, see
+ * {@link AsteroidsWorld#setParallelThreshold}, with 2k, 10k and 50k asteroids
+ * that bounce off each other, and checks that both leave the worlds in the same
+ * state.
+ * <p>
+ * The asteroids are as crowded as 3000 asteroids on a 4K display. The ship
+ * spins and fires all the time, so asteroids are hit, split and removed, and
+ * confirms pauses, which are not measured. A new world with the same seed is
+ * started when the game ends. The parallel steps use the common
+ * {@link ForkJoinPool}; its size can be set with
+ * {@code -Djava.util.concurrent.ForkJoinPool.common.parallelism=n}.
+ */
+public class ParallelBenchmark {
+
+    /** The numbers of asteroids measured if none are specified. */
+    private static final int[] DEFAULT_COUNTS = { 2_000, 10_000, 50_000 };
+    /** Area of the game per asteroid, in square pixels. */
+    private static final double AREA_PER_ASTEROID = 3840.0 * 2160 / 3000;
+    /** Steps measured for 1000 asteroids; fewer for more asteroids. */
+    private static final int STEPS_PER_1K = 500;
+    /** The seed of all worlds. */
+    private static final long SEED = 1302;
+
+    /**
+     * Main entry-point into the parallel benchmark.
+     * @param args the command-line arguments: the numbers of asteroids.
+     */
+    public static void main(String[] args) {
+        int[] counts = args.length > 0
+                ? Arrays.stream(args).mapToInt(Integer::parseInt).toArray() : DEFAULT_COUNTS;
+        System.out.printf("common pool parallelism %d, %d processors%n",
+                ForkJoinPool.getCommonPoolParallelism(),
+                Runtime.getRuntime().availableProcessors());
+        for (int count : counts) {
+            int steps = Math.max(20, STEPS_PER_1K * 1_000 / count);
+            System.out.printf("%d asteroids, %d steps:%n", count, steps);
+            // a round of both, so the one measured first is not at a disadvantage
+            run(false, count, steps);
+            run(true, count, steps);
+            Result serial = run(false, count, steps);
+            Result parallel = run(true, count, steps);
+            System.out.println(serial);
+            System.out.println(parallel);
+            System.out.printf("    speedup %.2fx, score %d and %d, state %s%n",
+                    (double) serial.stepNanos / parallel.stepNanos, serial.score,
+                    parallel.score,
+                    Arrays.equals(serial.state, parallel.state) ? "equal" : "DIFFERENT");
+        } // for
+    } // main
+
+    /**
+     * Simulates a crowded world, serially or in parallel.
+     *
+     * @param parallel whether all steps run in parallel
+     * @param count    the number of asteroids
+     * @param steps    the number of steps measured
+     * @return the result
+     */
+    private static Result run(boolean parallel, int count, int steps) {
+        AsteroidsWorld world = createWorld(parallel, count);
+        TickInput input = new TickInput();
+        input.set(TickInput.CONFIRM | TickInput.FIRE | TickInput.ROTATE_LEFT, 0, 0);
+        Result result = new Result();
+        result.parallel = parallel;
+        // as many steps again before measuring, so the JIT compiler can catch up
+        for (int i = -steps; i < steps;) {
+            if (world.isGameOver()) {
+                world = createWorld(parallel, count);
+            } // if
+            // paused steps do nothing and are not counted
+            boolean waiting = world.isWaitingForInteraction();
+            long start = System.nanoTime();
+            world.step(input);
+            long time = System.nanoTime() - start;
+            if (!waiting) {
+                if (i >= 0) {
+                    result.steps++;
+                    result.stepNanos += time;
+                } // if
+                i++;
+            } // if
+        } // for
+        result.score = world.getScore();
+        ByteBuffer buffer = ByteBuffer.allocate(world.getStateSize());
+        world.save(buffer);
+        result.state = buffer.array();
+        return result;
+    } // run
+
+    /**
+     * Creates a crowded world.
+     *
+     * @param parallel whether all steps run in parallel
+     * @param count    the number of asteroids
+     * @return the world
+     */
+    private static AsteroidsWorld createWorld(boolean parallel, int count) {
+        double height = Math.sqrt(count * AREA_PER_ASTEROID * 9 / 16);
+        AsteroidsWorld world = new AsteroidsWorld(height * 16 / 9, height,
+                Duration.millis(1000.0 / 60), SEED);
+        world.setParallelThreshold(parallel ? 0 : Integer.MAX_VALUE);
+        world.setAsteroidCollisions(true);
+        world.spawnAsteroids(count, AsteroidType.SMALL);
+        return world;
+    } // createWorld
+
+    /** The measurements of one run. */
+    private static class Result {
+
+        private boolean parallel;
+        private int steps;
+        private long stepNanos;
+        private int score;
+        private byte[] state;
+
+        @Override
+        public String toString() {
+            return String.format("    %-8s step %8.3f ms", parallel ? "parallel" : "serial",
+                    stepNanos / 1e6 / steps);
+        } // toString
+
+    } // Result
+
+} // ParallelBenchmark
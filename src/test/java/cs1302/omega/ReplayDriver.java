@@ -0,0 +1,147 @@
+package cs1302.omega;
+
+import cs1302.game.AsteroidsWorld;
+import cs1302.game.Autopilot;
+import cs1302.game.Replay;
+import cs1302.game.ReplayRecorder;
+import cs1302.game.TickInput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import javafx.util.Duration;
+
+/**
+ * Driver that records and plays back Asteroids replays without a display.
+ * <p>
+ * {@code record <file> [steps] [seed]} records a game played by the
+ * {@link Autopilot}. {@code play <file>} plays a replay back as fast as possible,
+ * reports how much faster than real time that is, and checks that the final
+ * score matches the recording. It then seeks to random steps, forwards and
+ * backwards, and checks that the state of the world is the same as when the
+ * step was reached by playing from the start.
+ * <p>
+ * Games recorded in the running application with
+ * {@code -Dcs1302.game.record=<file>} can be played back the same way.
+ */
+public class ReplayDriver {
+
+    /** The step limit of a recording if none is specified; ten minutes of game time. */
+    private static final long DEFAULT_STEPS = 36_000;
+    /** Number of random seeks checked during playback. */
+    private static final int SEEKS = 50;
+
+    /**
+     * Main entry-point into the replay tool.
+     * @param args the command-line arguments, see the class description
+     * @throws IOException if reading or writing the replay fails
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: ReplayDriver record <file> [steps] [seed]");
+            System.err.println("       ReplayDriver play <file>");
+            System.exit(1);
+        } // if
+        Path file = Path.of(args[1]);
+        if (args[0].equals("record")) {
+            long steps = args.length > 2 ? Long.parseLong(args[2]) : DEFAULT_STEPS;
+            long seed = args.length > 3 ? Long.parseLong(args[3]) : new Random().nextLong();
+            record(file, steps, seed);
+        } else {
+            play(file);
+        } // if
+    } // main
+
+    /**
+     * Records a game played by the autopilot.
+     *
+     * @param file  the file to write
+     * @param steps the maximum number of steps
+     * @param seed  the seed of the world
+     * @throws IOException if writing fails
+     */
+    private static void record(Path file, long steps, long seed) throws IOException {
+        AsteroidsWorld world = new AsteroidsWorld(OmegaApp.SCENE_WIDTH,
+                OmegaApp.SCENE_HEIGHT - GameScreen.INFO_HEIGHT, Duration.millis(1000.0 / 60),
+                seed);
+        Autopilot autopilot = new Autopilot();
+        TickInput input = new TickInput();
+        try (ReplayRecorder recorder = new ReplayRecorder(world, Files.newOutputStream(file),
+                600)) {
+            while (!world.isGameOver() && world.getTick() < steps) {
+                autopilot.poll(world, input);
+                recorder.record(input);
+                world.step(input);
+            } // while
+        } // try
+        System.out.printf("recorded %d steps, seed %d, score %d: %d bytes (%.2f bytes/step)%n",
+                world.getTick(), seed, world.getScore(), Files.size(file),
+                (double) Files.size(file) / world.getTick());
+    } // record
+
+    /**
+     * Plays a replay back and checks playback and seeking.
+     *
+     * @param file the file to read
+     * @throws IOException if reading fails
+     */
+    private static void play(Path file) throws IOException {
+        Replay replay = Replay.read(file);
+        System.out.printf("%d steps (%.1f s of game time), seed %d, %d keyframes, %d bytes%n",
+                replay.getTickCount(), replay.getDuration().toSeconds(), replay.getSeed(),
+                replay.getKeyframeCount(), replay.getSize());
+
+        // play from the start, remembering the state at some steps
+        Random rnd = new Random(replay.getSeed());
+        long[] ticks = new long[SEEKS];
+        for (int i = 0; i < SEEKS; i++) {
+            ticks[i] = (long) (rnd.nextDouble() * replay.getTickCount());
+        } // for
+        long[] sorted = ticks.clone();
+        Arrays.sort(sorted);
+        byte[][] states = new byte[SEEKS][];
+        Replay.Player player = replay.newPlayer();
+        long start = System.nanoTime();
+        int next = 0;
+        do {
+            while (next < SEEKS && sorted[next] == player.getTick()) {
+                states[next++] = state(player.getWorld());
+            } // while
+        } while (player.step());
+        double seconds = (System.nanoTime() - start) / 1e9;
+        int score = player.getWorld().getScore();
+        System.out.printf("played in %.3f s, %.0fx real time, final score %d (recorded %d) %s%n",
+                seconds, replay.getDuration().toSeconds() / seconds, score,
+                replay.getFinalScore(),
+                replay.getFinalScore() < 0 || score == replay.getFinalScore() ? "OK" : "MISMATCH");
+
+        // seek in random order and compare
+        int mismatches = 0;
+        start = System.nanoTime();
+        for (long tick : ticks) {
+            player.seek(tick);
+            int i = Arrays.binarySearch(sorted, tick);
+            if (!Arrays.equals(states[i], state(player.getWorld()))) {
+                mismatches++;
+            } // if
+        } // for
+        seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d seeks in %.3f s, %d mismatches %s%n", SEEKS, seconds, mismatches,
+                mismatches == 0 ? "OK" : "MISMATCH");
+    } // play
+
+    /**
+     * Returns the complete state of the specified world.
+     *
+     * @param world the world
+     * @return the state
+     */
+    private static byte[] state(AsteroidsWorld world) {
+        ByteBuffer buffer = ByteBuffer.allocate(world.getStateSize());
+        world.save(buffer);
+        return buffer.array();
+    } // state
+
+} // ReplayDriver